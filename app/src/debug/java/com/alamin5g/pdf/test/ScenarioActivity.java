@@ -0,0 +1,329 @@
+package com.alamin5g.pdf.test;
+
+import android.os.Build;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.os.StrictMode;
+import android.util.Log;
+import android.view.MotionEvent;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.alamin5g.pdf.PDFView;
+import com.alamin5g.pdf.PdfRenderEngine;
+import com.alamin5g.pdf.RenderStats;
+import com.alamin5g.pdf.synthetic.SyntheticPdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Scripted performance scenarios: open a synthetic document, scroll through it,
+ * pinch zoom in and out, then rotate. The document is a SyntheticPdf corpus
+ * picked with the "corpus" extra (standard, large, mixed, paths, images), e.g.
+ * {@code adb shell am start -n com.alamin5g.pdf.test/.ScenarioActivity --es corpus large}.
+ * After each scenario the view's RenderStats are checked against fixed budgets,
+ * main-thread disk/network access is reported through StrictMode, and the frame
+ * timing of each gesture session is logged. Results go to the screen and to
+ * logcat (tag "ScenarioActivity"), one PASS/FAIL line per check.
+ */
+public class ScenarioActivity extends AppCompatActivity {
+
+    private static final String TAG = "ScenarioActivity";
+    static final String EXTRA_CORPUS = "corpus";
+    private static final int MAX_SCROLL_PAGES = 200;         // scroll scenario stops after these
+
+    // Budgets
+    private static final int MAX_RENDERS_PER_PAGE = 6;       // initial + zoom in/out + resize, each possibly degraded first
+    private static final int MAX_ALLOCATIONS_PER_PAGE = 2;   // scroll: one bitmap per page, plus a re-render
+    private static final int MAX_MAIN_THREAD_RENDERS = 0;
+    private static final int MAX_STRICT_MODE_VIOLATIONS = 0;
+
+    private static final int SCROLL_STEP_PX = 400;           // per frame, like a fast drag
+    private static final int MAX_SCROLL_FRAMES = 5000;
+    private static final int PINCH_FRAMES = 30;
+    private static final long SETTLE_MS = 1500;              // renders to finish and quality to upgrade
+
+    private PDFView pdfView;
+    private TextView txtReport;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ExecutorService generator = Executors.newSingleThreadExecutor(); // writes the document off the main thread
+    private final StringBuilder report = new StringBuilder();
+    private final List<String> violations = new ArrayList<>();
+    private StrictMode.ThreadPolicy previousPolicy;
+    private boolean failed = false;
+    private int scrollPages;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_scenario);
+        pdfView = findViewById(R.id.pdfView);
+        txtReport = findViewById(R.id.txtReport);
+        setTitle("Performance Scenarios");
+
+        SyntheticPdf.Corpus corpus = SyntheticPdf.named(getIntent().getStringExtra(EXTRA_CORPUS));
+        scrollPages = Math.min(corpus.pages, MAX_SCROLL_PAGES);
+        log("Generating " + corpus + "...");
+        generator.execute(() -> {
+            try {
+                long start = SystemClock.uptimeMillis();
+                File file = SyntheticPdf.write(getCacheDir(), corpus);
+                Log.d(TAG, "Generated " + corpus + " in " + (SystemClock.uptimeMillis() - start) + "ms");
+                handler.post(() -> {
+                    if (!isDestroyed()) {
+                        open(file);
+                    }
+                });
+            } catch (IOException e) {
+                handler.post(() -> log("FAIL cannot generate document: " + e.getMessage()));
+            }
+        });
+    }
+
+    private void open(File file) {
+        startStrictMode();
+        long start = SystemClock.uptimeMillis();
+        pdfView.fromFile(file)
+                .continuousScroll(true)
+                .enableSwipe(false) // Drags must scroll, not jump pages
+                .useBestQuality(true)
+                .spacing(10)
+                .onLoad(nbPages -> {
+                    log("Opened " + nbPages + " pages in " + (SystemClock.uptimeMillis() - start) + " ms");
+                    handler.postDelayed(() -> {
+                        checkBudgets("open", 0);
+                        scrollToEnd();
+                    }, SETTLE_MS);
+                })
+                .onError(t -> log("FAIL open: " + t.getMessage()))
+                .onFrameStats(stats -> log("  " + stats)) // One line per scroll/zoom session
+                .load();
+    }
+
+    // Scenario: scroll until the last of the first scrollPages pages has been rendered
+
+    private void scrollToEnd() {
+        pdfView.getRenderStats().reset();
+        log("Scrolling " + scrollPages + " pages...");
+        float x = pdfView.getWidth() / 2f;
+        float y = pdfView.getHeight() * 0.8f;
+        long downTime = SystemClock.uptimeMillis();
+        touch(downTime, MotionEvent.ACTION_DOWN, x, y);
+        scrollFrame(downTime, x, y, 0);
+    }
+
+    private void scrollFrame(long downTime, float x, float y, int frame) {
+        RenderStats stats = pdfView.getRenderStats();
+        if (stats.getRenders(scrollPages - 1) > 0 || frame >= MAX_SCROLL_FRAMES) {
+            touch(downTime, MotionEvent.ACTION_UP, x, y);
+            if (frame >= MAX_SCROLL_FRAMES) {
+                fail("scroll did not reach page " + scrollPages + " in " + frame + " frames");
+            }
+            handler.postDelayed(() -> {
+                checkBudgets("scroll", scrollPages);
+                pinchZoom();
+            }, SETTLE_MS);
+            return;
+        }
+        // Drag upwards from the same finger position: move by a step, then lift and re-press
+        // near the bottom so the drag never leaves the view
+        float nextY = y - SCROLL_STEP_PX;
+        touch(downTime, MotionEvent.ACTION_MOVE, x, nextY);
+        if (nextY < pdfView.getHeight() * 0.2f) {
+            touch(downTime, MotionEvent.ACTION_UP, x, nextY);
+            long newDown = SystemClock.uptimeMillis();
+            float startY = pdfView.getHeight() * 0.8f;
+            touch(newDown, MotionEvent.ACTION_DOWN, x, startY);
+            handler.postDelayed(() -> scrollFrame(newDown, x, startY, frame + 1), 16);
+        } else {
+            handler.postDelayed(() -> scrollFrame(downTime, x, nextY, frame + 1), 16);
+        }
+    }
+
+    private void touch(long downTime, int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, x, y, 0);
+        pdfView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    // Scenario: two-finger pinch out to 2.5x and back
+
+    private void pinchZoom() {
+        pdfView.getRenderStats().reset();
+        log("Pinch zoom...");
+        float cx = pdfView.getWidth() / 2f;
+        float cy = pdfView.getHeight() / 2f;
+        long downTime = SystemClock.uptimeMillis();
+        dispatchPinch(downTime, MotionEvent.ACTION_DOWN, cx, cy, 100, 1);
+        dispatchPinch(downTime, MotionEvent.ACTION_POINTER_DOWN | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT),
+                cx, cy, 100, 2);
+        pinchFrame(downTime, cx, cy, 1, true);
+    }
+
+    private void pinchFrame(long downTime, float cx, float cy, int frame, boolean zoomingIn) {
+        float progress = (float) frame / PINCH_FRAMES;
+        float spread = zoomingIn ? 100 + 150 * progress : 250 - 150 * progress;
+        dispatchPinch(downTime, MotionEvent.ACTION_MOVE, cx, cy, spread, 2);
+        if (frame < PINCH_FRAMES) {
+            handler.postDelayed(() -> pinchFrame(downTime, cx, cy, frame + 1, zoomingIn), 16);
+        } else if (zoomingIn) {
+            log("Zoomed to " + pdfView.getZoom());
+            handler.postDelayed(() -> pinchFrame(downTime, cx, cy, 1, false), SETTLE_MS);
+        } else {
+            dispatchPinch(downTime, MotionEvent.ACTION_POINTER_UP | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT),
+                    cx, cy, spread, 2);
+            dispatchPinch(downTime, MotionEvent.ACTION_UP, cx, cy, spread, 1);
+            handler.postDelayed(() -> {
+                checkBudgets("pinch zoom", 0);
+                rotate();
+            }, SETTLE_MS);
+        }
+    }
+
+    /**
+     * Two pointers placed symmetrically around the centre, spread apart vertically
+     */
+    private void dispatchPinch(long downTime, int action, float cx, float cy, float spread, int pointers) {
+        MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[pointers];
+        MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[pointers];
+        for (int i = 0; i < pointers; i++) {
+            properties[i] = new MotionEvent.PointerProperties();
+            properties[i].id = i;
+            properties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            coords[i] = new MotionEvent.PointerCoords();
+            coords[i].x = cx;
+            coords[i].y = i == 0 ? cy - spread : cy + spread;
+            coords[i].pressure = 1f;
+            coords[i].size = 1f;
+        }
+        MotionEvent event = MotionEvent.obtain(downTime, SystemClock.uptimeMillis(), action, pointers,
+                properties, coords, 0, 0, 1f, 1f, 0, 0, 0, 0);
+        pdfView.dispatchTouchEvent(event);
+        event.recycle();
+    }
+
+    // Scenario: rotation, simulated by swapping the view's width and height so the
+    // resize path runs without recreating the activity and losing the stats
+
+    private void rotate() {
+        pdfView.getRenderStats().reset();
+        log("Rotate...");
+        int width = pdfView.getWidth();
+        int height = pdfView.getHeight();
+        pdfView.setLayoutParams(new FrameLayout.LayoutParams(height, width));
+        handler.postDelayed(() -> {
+            pdfView.setLayoutParams(new FrameLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+            handler.postDelayed(() -> {
+                checkBudgets("rotate", 0);
+                reportResult();
+            }, SETTLE_MS);
+        }, SETTLE_MS);
+    }
+
+    /**
+     * @param pagesVisited Pages the scenario brought on screen; bounds the allocation count
+     */
+    private void checkBudgets(String scenario, int pagesVisited) {
+        RenderStats stats = pdfView.getRenderStats();
+        log(scenario + ": " + stats);
+        check(scenario, "renders per page", stats.getMaxRendersPerPage(), MAX_RENDERS_PER_PAGE);
+        check(scenario, "main-thread renders", stats.getMainThreadRenders(), MAX_MAIN_THREAD_RENDERS);
+        check(scenario, "peak bitmap KB", stats.getPeakBitmapBytes() / 1024,
+                PdfRenderEngine.getInstance().getMemoryBudget() / 1024);
+        if (pagesVisited > 0) {
+            check(scenario, "bitmap allocations", stats.getBitmapAllocations(),
+                    (long) pagesVisited * MAX_ALLOCATIONS_PER_PAGE);
+        }
+        synchronized (violations) {
+            check(scenario, "StrictMode violations", violations.size(), MAX_STRICT_MODE_VIOLATIONS);
+            for (String violation : violations) {
+                log("  " + violation);
+            }
+            violations.clear();
+        }
+    }
+
+    private void check(String scenario, String what, long value, long budget) {
+        boolean ok = value <= budget;
+        if (!ok) {
+            failed = true;
+        }
+        log((ok ? "PASS " : "FAIL ") + scenario + " - " + what + ": " + value + " (budget " + budget + ")");
+    }
+
+    private void fail(String message) {
+        failed = true;
+        log("FAIL " + message);
+    }
+
+    private void reportResult() {
+        stopStrictMode();
+        log(failed ? "SCENARIOS FAILED" : "ALL SCENARIOS PASSED");
+    }
+
+    /**
+     * Report disk and network access on the main thread while the scenarios run
+     */
+    private void startStrictMode() {
+        previousPolicy = StrictMode.getThreadPolicy();
+        StrictMode.ThreadPolicy.Builder builder = new StrictMode.ThreadPolicy.Builder()
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            builder.penaltyListener(Runnable::run, violation -> {
+                synchronized (violations) {
+                    violations.add(violation.getClass().getSimpleName() + " at " + firstFrame(violation));
+                }
+            });
+        } else {
+            builder.penaltyLog(); // No listener before Android 9 - violations only go to logcat
+        }
+        StrictMode.setThreadPolicy(builder.build());
+    }
+
+    private void stopStrictMode() {
+        if (previousPolicy != null) {
+            StrictMode.setThreadPolicy(previousPolicy);
+            previousPolicy = null;
+        }
+    }
+
+    private static String firstFrame(Throwable violation) {
+        StackTraceElement[] stack = violation.getStackTrace();
+        for (StackTraceElement frame : stack) {
+            if (frame.getClassName().startsWith("com.alamin5g.pdf")) {
+                return frame.toString();
+            }
+        }
+        return stack.length > 0 ? stack[0].toString() : "?";
+    }
+
+    private void log(String line) {
+        Log.d(TAG, line);
+        report.append(line).append('\n');
+        txtReport.setText(report);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        generator.shutdown(); // A document still being written finishes, but is not opened
+        handler.removeCallbacksAndMessages(null);
+        stopStrictMode();
+        if (pdfView != null) {
+            pdfView.recycle();
+        }
+    }
+}
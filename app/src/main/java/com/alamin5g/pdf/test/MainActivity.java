@@ -10,7 +10,7 @@ import androidx.appcompat.app.AppCompatActivity;
 
 public class MainActivity extends AppCompatActivity {
 
-    Button btnReadAsset, btnReadUrl, btnTestFeatures;
+    Button btnReadAsset, btnReadUrl, btnTestFeatures, btnScenarios;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -20,6 +20,7 @@ public class MainActivity extends AppCompatActivity {
         btnReadAsset = findViewById(R.id.btnReadAsset);
         btnReadUrl = findViewById(R.id.btnReadUrl);
         btnTestFeatures = findViewById(R.id.btnTestFeatures);
+        btnScenarios = findViewById(R.id.btnScenarios);
 
         // Read PDF from Assets
         btnReadAsset.setOnClickListener(new View.OnClickListener() {
@@ -52,5 +53,17 @@ public class MainActivity extends AppCompatActivity {
                 startActivity(intent);
             }
         });
+
+        // Scripted scroll/zoom/rotate scenarios checked against render budgets - debug builds only
+        final Intent scenarios = new Intent().setClassName(this, "com.alamin5g.pdf.test.ScenarioActivity");
+        if (scenarios.resolveActivity(getPackageManager()) == null) {
+            btnScenarios.setVisibility(View.GONE);
+        }
+        btnScenarios.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                startActivity(scenarios);
+            }
+        });
     }
 }
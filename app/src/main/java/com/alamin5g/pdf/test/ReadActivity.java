@@ -140,8 +140,8 @@ public class ReadActivity extends AppCompatActivity {
                         Log.e(TAG, "Error downloading/loading PDF: " + t.getMessage());
                         Toast.makeText(ReadActivity.this, "Error: " + t.getMessage(), Toast.LENGTH_LONG).show();
                     }
-                });
-                // Note: fromUrl() automatically calls load() after download
+                })
+                .load();
     }
 
     private void testAllFeatures() {
@@ -0,0 +1,229 @@
+package com.alamin5g.pdf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Geometry of continuous mode: where each page sits at the current bitmap width,
+ * which pages intersect the viewport, which to ask for next and which to drop.
+ * Positions are in content pixels, top being the scroll offset (-panY in PDFView).
+ *
+ * UI thread only.
+ */
+final class ContinuousLayout {
+
+    static final int PREFETCH_DISTANCE = 2; // pages kept around the viewport under light pressure
+    static final int MEASURE_BATCH_SIZE = 16; // pages measured per render-lane task
+
+    private final List<Float> offsets = new ArrayList<>();
+    private final List<Float> heights = new ArrayList<>();
+    private float contentHeight = 0f;
+    private int pageWidth = 0; // bitmap width pages should have (view width * zoom), 0 before the first layout
+
+    /**
+     * Forget all pages
+     */
+    void clear() {
+        offsets.clear();
+        heights.clear();
+        contentHeight = 0f;
+        pageWidth = 0;
+    }
+
+    /**
+     * Take over the geometry of a view being replaced
+     */
+    void adopt(List<Float> offsets, List<Float> heights, float contentHeight, int pageWidth) {
+        clear();
+        this.offsets.addAll(offsets);
+        this.heights.addAll(heights);
+        this.contentHeight = contentHeight;
+        this.pageWidth = pageWidth;
+    }
+
+    /**
+     * Set page heights and offsets for a bitmap width from measured or estimated aspects
+     * @param aspects Height / width per page, 0 for pages not measured yet; null if none are
+     */
+    void layout(int pages, int width, float[] aspects, float estimatedAspect, float spacing) {
+        while (offsets.size() > pages) {
+            offsets.remove(offsets.size() - 1);
+            heights.remove(heights.size() - 1);
+        }
+        float y = 0f;
+        for (int i = 0; i < pages; i++) {
+            float aspect = aspects != null && aspects[i] > 0 ? aspects[i] : estimatedAspect;
+            float height = (int) (width * aspect);
+            if (i < offsets.size()) {
+                offsets.set(i, y);
+                heights.set(i, height);
+            } else {
+                offsets.add(y);
+                heights.add(height);
+            }
+            y += height + spacing;
+        }
+        contentHeight = y;
+        pageWidth = width;
+    }
+
+    /**
+     * Lay out again at the same width after aspects changed, keeping the first visible
+     * page at its distance from the top of the viewport
+     * @return The new top, within the content
+     */
+    float layoutKeepingPosition(float[] aspects, float estimatedAspect, float spacing, float top, float viewHeight) {
+        int page = firstVisible(top);
+        float intoPage = top - offsets.get(page);
+        layout(offsets.size(), pageWidth, aspects, estimatedAspect, spacing);
+        return Math.max(0, Math.min(offsets.get(page) + intoPage, maxTop(viewHeight)));
+    }
+
+    /**
+     * Store newly measured aspects of pages from..from + measured.length
+     * @param measured 0 for pages that could not be measured
+     * @return true if any aspect changed, so the layout needs updating
+     */
+    static boolean applyMeasured(float[] aspects, int from, float[] measured) {
+        boolean changed = false;
+        for (int k = 0; k < measured.length; k++) {
+            if (measured[k] > 0 && aspects[from + k] != measured[k]) {
+                aspects[from + k] = measured[k];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    boolean isEmpty() {
+        return offsets.isEmpty();
+    }
+
+    int size() {
+        return offsets.size();
+    }
+
+    float offset(int page) {
+        return offsets.get(page);
+    }
+
+    float height(int page) {
+        return heights.get(page);
+    }
+
+    List<Float> offsets() {
+        return offsets;
+    }
+
+    List<Float> heights() {
+        return heights;
+    }
+
+    float contentHeight() {
+        return contentHeight;
+    }
+
+    int pageWidth() {
+        return pageWidth;
+    }
+
+    /**
+     * Largest top that still fills the viewport
+     */
+    float maxTop(float viewHeight) {
+        return Math.max(0, contentHeight - viewHeight);
+    }
+
+    /**
+     * First page intersecting the viewport
+     */
+    int firstVisible(float top) {
+        int low = 0;
+        int high = offsets.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (offsets.get(mid) + heights.get(mid) < top) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return Math.max(0, low);
+    }
+
+    /**
+     * Last page intersecting the viewport
+     */
+    int lastVisible(float top, float viewHeight) {
+        float bottom = top + viewHeight;
+        int last = firstVisible(top);
+        while (last + 1 < offsets.size() && offsets.get(last + 1) <= bottom) {
+            last++;
+        }
+        return last;
+    }
+
+    /**
+     * Page under the middle of the viewport, among the visible pages first..last
+     */
+    int middle(int first, int last, float top, float viewHeight) {
+        float middle = top + viewHeight / 2f;
+        int center = first;
+        while (center < last && offsets.get(center) + heights.get(center) < middle) {
+            center++;
+        }
+        return center;
+    }
+
+    /**
+     * Bitmap bytes of a page rendered for this layout
+     * @param bestQuality false renders at about half the pixels
+     */
+    long pageBytes(int page, boolean bestQuality) {
+        long bytes = (long) pageWidth * heights.get(page).intValue() * 4; // ARGB_8888
+        return bestQuality ? bytes : bytes / 2;
+    }
+
+    /**
+     * Visit the pages to render for the visible pages first..last: the visible ones
+     * from the middle outward, then up to prefetchDistance on both sides while they
+     * fit the quota
+     */
+    void visitRequests(int first, int last, float top, float viewHeight, int prefetchDistance,
+                       long quota, boolean bestQuality, IntConsumer visitor) {
+        PageRequests.visit(first, last, middle(first, last, top, viewHeight), offsets.size(), prefetchDistance,
+                page -> pageBytes(page, bestQuality), quota, visitor);
+    }
+
+    /**
+     * Walk outward from the visible pages first..last and drop what is outside
+     * keepDistance or the quota. Visible pages always stay.
+     * @param kept Bytes already held, visible pages included
+     * @param held Bytes a page holds, negative if it holds nothing
+     * @return Pages dropped
+     */
+    static int trim(int first, int last, int count, int keepDistance, long kept, long quota,
+                    IntToLongFunction held, IntConsumer drop) {
+        int dropped = 0;
+        for (int d = 1; first - d >= 0 || last + d < count; d++) {
+            for (int i : new int[]{first - d, last + d}) {
+                if (i < 0 || i >= count) {
+                    continue;
+                }
+                long bytes = held.applyAsLong(i);
+                if (bytes < 0) {
+                    continue;
+                }
+                if (d <= keepDistance && kept + bytes <= quota) {
+                    kept += bytes;
+                    continue;
+                }
+                drop.accept(i);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+}
@@ -0,0 +1,196 @@
+package com.alamin5g.pdf;
+
+import android.graphics.pdf.PdfRenderer;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Sole owner of an open document's PdfRenderer and file descriptor. Measuring,
+ * rendering, text extraction and closing are requests in this actor's mailbox and
+ * run strictly one after another, so the renderer never has two pages open and is
+ * never closed under a render. Callers get results through a Future or a callback
+ * on the main thread; nothing outside a request ever touches the renderer.
+ *
+ * The mailbox is drained on the shared render engine - one request per task on the
+ * lane of the view showing the document, so visible-first scheduling still applies.
+ * When the document moves to another view (configuration change, open document
+ * cache) the lane changes, but only one drain is live at a time. close() drops what
+ * is queued, waits for the request in progress and closes on the I/O pool. The
+ * scheduling itself is RequestMailbox.
+ */
+final class DocumentActor {
+
+    private static final String TAG = "DocumentActor";
+
+    /**
+     * Work on the open document. Runs on the actor; the renderer must not escape it.
+     */
+    interface Task<T> extends RequestMailbox.Request<PdfRenderer, T> {
+    }
+
+    /**
+     * Work on one open page
+     */
+    interface PageTask<T> {
+        T run(PdfRenderer.Page page) throws Exception;
+    }
+
+    /**
+     * Result of a request on the main thread - error is set instead if it failed or
+     * was dropped (CancellationException) because the document was closed or handed over
+     */
+    interface Callback<T> {
+        void onResult(T result, Exception error);
+    }
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    private final RequestMailbox<PdfRenderer> mailbox;
+    private final int pageCount;
+    private final long fileSize;
+    private final String sourceVersion;
+    private long fingerprint = -1; // Not computed yet; guarded by this, like descriptor
+
+    // Released by closeNow, the mailbox's last request
+    private ParcelFileDescriptor descriptor;
+    private PdfRenderer renderer;
+
+    /**
+     * Open a document. Blocking - call off the main thread. The descriptor is owned
+     * by the actor from now on, and closed if opening fails.
+     * @param sourceVersion DocumentSource.getVersion() taken before the source was opened
+     */
+    static DocumentActor open(ParcelFileDescriptor descriptor, String sourceVersion) throws IOException {
+        try {
+            return new DocumentActor(descriptor, new PdfRenderer(descriptor), sourceVersion);
+        } catch (IOException | RuntimeException e) {
+            try {
+                descriptor.close();
+            } catch (IOException ignored) {
+            }
+            throw e;
+        }
+    }
+
+    private DocumentActor(ParcelFileDescriptor descriptor, PdfRenderer renderer, String sourceVersion) {
+        this.descriptor = descriptor;
+        this.sourceVersion = sourceVersion;
+        this.renderer = renderer;
+        this.pageCount = renderer.getPageCount();
+        this.fileSize = Math.max(0, descriptor.getStatSize());
+        this.mailbox = new RequestMailbox<>(renderer, mainHandler::post,
+                task -> PdfRenderEngine.getInstance().executeIo(task), this::closeNow);
+    }
+
+    int getPageCount() {
+        return pageCount;
+    }
+
+    long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Version of the source this was opened from, null if unknown
+     */
+    String getSourceVersion() {
+        return sourceVersion;
+    }
+
+    /**
+     * Content hash for recognizing the document again, see PageMetadataStore.fingerprint.
+     * Read from the file on first use, so only documents whose page sizes are looked
+     * up or saved pay for it. Blocking - call off the main thread.
+     * @return 0 if unknown, e.g. the document was closed before it was needed
+     */
+    synchronized long getFingerprint() {
+        if (fingerprint < 0) {
+            if (descriptor == null) {
+                return 0;
+            }
+            fingerprint = PageMetadataStore.fingerprint(descriptor.getFileDescriptor(), fileSize);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Where requests run from now on - the lane of the view that took the document over
+     */
+    void setExecutor(Executor executor) {
+        mailbox.setExecutor(executor);
+    }
+
+    <T> Future<T> submit(Task<T> task) {
+        return mailbox.submit(task);
+    }
+
+    <T> void submit(Task<T> task, Callback<T> callback) {
+        mailbox.submit(task, callback);
+    }
+
+    <T> void submit(int pageIndex, PageTask<T> task, Callback<T> callback) {
+        mailbox.submit(onPage(pageIndex, task), callback);
+    }
+
+    <T> Future<T> submit(int pageIndex, PageTask<T> task) {
+        return mailbox.submit(onPage(pageIndex, task));
+    }
+
+    /**
+     * Page height / width ratio, without rendering
+     */
+    static float measureAspect(PdfRenderer.Page page) {
+        return (float) page.getHeight() / page.getWidth();
+    }
+
+    /**
+     * Drop requests that have not started, e.g. when the document is handed to another
+     * view. Their callbacks get a CancellationException.
+     */
+    void cancelQueued() {
+        mailbox.cancelQueued();
+    }
+
+    /**
+     * Drop queued requests and close after the one in progress, on the I/O pool.
+     * Never blocks the caller. Later requests fail with a CancellationException.
+     */
+    void close() {
+        mailbox.close();
+    }
+
+    private static <T> Task<T> onPage(int pageIndex, PageTask<T> task) {
+        return renderer -> {
+            PdfRenderer.Page page = renderer.openPage(pageIndex);
+            try {
+                return task.run(page);
+            } finally {
+                page.close();
+            }
+        };
+    }
+
+    private void closeNow() {
+        if (renderer != null) {
+            renderer.close();
+            renderer = null;
+        }
+        synchronized (this) { // Not while getFingerprint reads it
+            if (descriptor != null) {
+                try {
+                    descriptor.close();
+                } catch (IOException e) {
+                    Log.e(TAG, "Error closing file descriptor: " + e.getMessage());
+                }
+                descriptor = null;
+            }
+        }
+        Log.d(TAG, "Document closed");
+    }
+}
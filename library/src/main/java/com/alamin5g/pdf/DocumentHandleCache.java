@@ -0,0 +1,162 @@
+package com.alamin5g.pdf;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Recently closed documents kept open, so going back to one skips reopening and
+ * re-parsing it. When a PDFView closes a document whose source has a key, the
+ * renderer, its descriptor and the page-size index go here instead of being
+ * closed; loading the same source again takes them back.
+ *
+ * Bounded by document count and an estimated byte cost (parser overhead plus
+ * index - the file itself is read through the descriptor, not held), least
+ * recently used first out. After each addition the process's open file
+ * descriptors are counted off the main thread, and the cache is emptied if they
+ * get close to the limit. A handle is used by one view at a time - take()
+ * removes it, and PDFView only reuses it if the source's version still matches
+ * the one the document was opened at.
+ * Main thread only.
+ */
+final class DocumentHandleCache {
+
+    private static final String TAG = "DocumentHandleCache";
+
+    static final int DEFAULT_MAX_DOCUMENTS = 4;
+    static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    private static final long HANDLE_OVERHEAD_BYTES = 256 * 1024; // parsed document structures, roughly
+    private static final float FD_HIGH_WATER = 0.75f; // share of the FD limit at which the cache lets go
+
+    private static final LinkedHashMap<String, Handle> handles = new LinkedHashMap<>(8, 0.75f, true);
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+    private static int maxDocuments = DEFAULT_MAX_DOCUMENTS;
+    private static long maxBytes = DEFAULT_MAX_BYTES;
+    private static long bytes = 0;
+    private static volatile int fdLimit = -1; // soft RLIMIT_NOFILE, read once
+
+    private DocumentHandleCache() {
+    }
+
+    static void put(String key, Handle handle) {
+        if (maxDocuments <= 0) {
+            handle.close();
+            return;
+        }
+        Handle previous = handles.remove(key);
+        if (previous != null) {
+            bytes -= previous.cost;
+            previous.close();
+        }
+        handle.cost = handle.estimateCost();
+        handles.put(key, handle);
+        bytes += handle.cost;
+        trim(maxDocuments, maxBytes);
+        Log.d(TAG, "Kept " + key + " open (" + handles.size() + " documents, " + (bytes / 1024) + "KB)");
+        PdfRenderEngine.getInstance().executeIo(DocumentHandleCache::checkDescriptorLimit);
+    }
+
+    static Handle take(String key) {
+        Handle handle = handles.remove(key);
+        if (handle != null) {
+            bytes -= handle.cost;
+            Log.d(TAG, "Reusing open document " + key);
+        }
+        return handle;
+    }
+
+    static void setLimits(int documents, long maxBytes) {
+        maxDocuments = Math.max(0, documents);
+        DocumentHandleCache.maxBytes = Math.max(0, maxBytes);
+        trim(maxDocuments, DocumentHandleCache.maxBytes);
+    }
+
+    static int getMaxDocuments() {
+        return maxDocuments;
+    }
+
+    static void closeAll() {
+        trim(0, 0);
+    }
+
+    /**
+     * Close least recently used documents until both limits hold
+     */
+    private static void trim(int documents, long limitBytes) {
+        Iterator<Map.Entry<String, Handle>> iterator = handles.entrySet().iterator();
+        while (iterator.hasNext() && (handles.size() > documents || bytes > limitBytes)) {
+            Map.Entry<String, Handle> eldest = iterator.next();
+            iterator.remove();
+            bytes -= eldest.getValue().cost;
+            eldest.getValue().close();
+            Log.d(TAG, "Closed cached document " + eldest.getKey());
+        }
+    }
+
+    /**
+     * Runs on the I/O pool: counting descriptors lists /proc, which is disk access
+     */
+    private static void checkDescriptorLimit() {
+        if (fdLimit < 0) {
+            fdLimit = readDescriptorLimit();
+        }
+        String[] open = new File("/proc/self/fd").list();
+        if (fdLimit <= 0 || open == null) {
+            return;
+        }
+        if (open.length > fdLimit * FD_HIGH_WATER) {
+            Log.w(TAG, open.length + " of " + fdLimit + " file descriptors in use, closing cached documents");
+            handler.post(DocumentHandleCache::closeAll);
+        }
+    }
+
+    /**
+     * Soft "Max open files" limit of this process, or 0 if it cannot be read
+     */
+    private static int readDescriptorLimit() {
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/limits"))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("Max open files")) {
+                    String[] fields = line.substring("Max open files".length()).trim().split("\\s+");
+                    return Integer.parseInt(fields[0]);
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            Log.w(TAG, "Cannot read file descriptor limit: " + e.getMessage());
+        }
+        return 0;
+    }
+
+    /**
+     * An open document - ownership moves with it
+     */
+    static final class Handle {
+        DocumentActor document;
+        int[] pages; // page order the index was built for
+        float[] pageAspects; // page-size index, 0 for pages not measured yet
+        float estimatedPageAspect;
+
+        private long cost;
+
+        private long estimateCost() {
+            long indexBytes = pageAspects != null ? pageAspects.length * 4L : 0;
+            return HANDLE_OVERHEAD_BYTES + indexBytes;
+        }
+
+        void close() {
+            if (document != null) {
+                document.close();
+                document = null;
+            }
+        }
+    }
+}
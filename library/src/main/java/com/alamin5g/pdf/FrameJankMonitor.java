@@ -0,0 +1,277 @@
+package com.alamin5g.pdf;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.util.Log;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import androidx.annotation.RequiresApi;
+
+import com.alamin5g.pdf.listener.OnFrameStatsListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects per-frame timing of a PDFView's window while the user scrolls, flings or
+ * zooms, and summarizes each session as FrameStats. A session starts with the first
+ * gesture and ends SESSION_IDLE_MS after the last one; frames are attributed by
+ * their vsync time. Render results and cache misses during a session are recorded
+ * with timestamps, so janky frames can be matched against them.
+ *
+ * Frame metrics arrive on a shared background thread; everything else is called on
+ * the main thread. Only registered with the window while a listener is set.
+ */
+final class FrameJankMonitor {
+
+    private static final String TAG = "FrameJankMonitor";
+
+    static final long SESSION_IDLE_MS = 500;
+    private static final long REPORT_DELAY_MS = 200; // metrics of the last frames arrive after them
+    private static final int MAX_EVENTS = 4096; // frames, renders and misses kept per session
+
+    private static Handler metricsHandler;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable endSession = this::endSession;
+    private final List<Session> sessions = new ArrayList<>(); // current one last; guarded by this
+    private OnFrameStatsListener listener;
+    private Window window;
+    private Window.OnFrameMetricsAvailableListener metricsListener;
+    private volatile long frameIntervalNanos = 16_666_667L;
+    private Session current; // main thread
+
+    void setListener(OnFrameStatsListener listener) {
+        this.listener = listener;
+    }
+
+    boolean hasListener() {
+        return listener != null;
+    }
+
+    void setRefreshRate(float refreshRate) {
+        if (refreshRate > 0) {
+            frameIntervalNanos = (long) (1_000_000_000L / refreshRate);
+        }
+    }
+
+    /**
+     * Start receiving frame metrics of the window (API 24+)
+     */
+    void attach(Window window) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.N || window == null || this.window == window) {
+            return;
+        }
+        detach();
+        this.window = window;
+        metricsListener = (w, metrics, dropCount) -> onFrame(metrics);
+        window.addOnFrameMetricsAvailableListener(metricsListener, getMetricsHandler());
+    }
+
+    void detach() {
+        if (window == null) {
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            try {
+                window.removeOnFrameMetricsAvailableListener(metricsListener);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Frame metrics listener was not registered");
+            }
+        }
+        window = null;
+        metricsListener = null;
+        mainHandler.removeCallbacks(endSession);
+        current = null;
+        synchronized (this) {
+            sessions.clear();
+        }
+    }
+
+    /**
+     * Input arrived - starts a session or extends the current one
+     */
+    void onGesture(FrameStats.Gesture gesture) {
+        if (window == null) {
+            return;
+        }
+        if (current == null) {
+            current = new Session(gesture, System.nanoTime());
+            synchronized (this) {
+                sessions.add(current);
+            }
+        } else {
+            synchronized (this) {
+                if (gesture.ordinal() > current.gesture.ordinal()) {
+                    current.gesture = gesture;
+                }
+            }
+        }
+        mainHandler.removeCallbacks(endSession);
+        mainHandler.postDelayed(endSession, SESSION_IDLE_MS);
+    }
+
+    /**
+     * A render result was applied; its bitmap is uploaded in the next frame
+     */
+    void onRender() {
+        if (current != null) {
+            synchronized (this) {
+                current.renderTimes = add(current.renderTimes, current.renders++, System.nanoTime());
+            }
+        }
+    }
+
+    /**
+     * A visible page had to be drawn without its bitmap
+     */
+    void onCacheMiss() {
+        if (current != null) {
+            synchronized (this) {
+                current.missTimes = add(current.missTimes, current.misses++, System.nanoTime());
+            }
+        }
+    }
+
+    private void endSession() {
+        final Session session = current;
+        if (session == null) {
+            return;
+        }
+        current = null;
+        synchronized (this) {
+            session.end = System.nanoTime();
+        }
+        getMetricsHandler().postDelayed(() -> report(session), REPORT_DELAY_MS);
+    }
+
+    @RequiresApi(Build.VERSION_CODES.N)
+    private void onFrame(FrameMetrics metrics) {
+        long duration = metrics.getMetric(FrameMetrics.TOTAL_DURATION);
+        long start = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                ? metrics.getMetric(FrameMetrics.INTENDED_VSYNC_TIMESTAMP)
+                : System.nanoTime() - duration;
+        synchronized (this) {
+            for (Session session : sessions) {
+                if (start >= session.start && start <= session.end && session.frames < MAX_EVENTS) {
+                    session.frameStarts = add(session.frameStarts, session.frames, start);
+                    session.frameDurations = add(session.frameDurations, session.frames, duration);
+                    session.frames++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs on the metrics thread once the session's last frames have been reported
+     */
+    private void report(Session session) {
+        FrameStats stats;
+        synchronized (this) {
+            sessions.remove(session);
+            stats = session.summarize(frameIntervalNanos);
+        }
+        if (stats == null) {
+            return; // No frame drawn, e.g. a gesture at the end of the document
+        }
+        Log.d(TAG, stats.toString());
+        mainHandler.post(() -> {
+            if (listener != null) {
+                listener.onFrameStats(stats);
+            }
+        });
+    }
+
+    /**
+     * Store value at index, growing the array; beyond MAX_EVENTS values are dropped
+     */
+    private static long[] add(long[] values, int index, long value) {
+        if (index >= MAX_EVENTS) {
+            return values; // Still counted, just not matched against frames
+        }
+        if (index >= values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[index] = value;
+        return values;
+    }
+
+    private static synchronized Handler getMetricsHandler() {
+        if (metricsHandler == null) {
+            HandlerThread thread = new HandlerThread("PDFView-frames");
+            thread.start();
+            metricsHandler = new Handler(thread.getLooper());
+        }
+        return metricsHandler;
+    }
+
+    private static final class Session {
+        FrameStats.Gesture gesture;
+        final long start;
+        long end = Long.MAX_VALUE;
+        long[] frameStarts = new long[128];
+        long[] frameDurations = new long[128];
+        int frames;
+        long[] renderTimes = new long[32];
+        int renders;
+        long[] missTimes = new long[32];
+        int misses;
+
+        Session(FrameStats.Gesture gesture, long start) {
+            this.gesture = gesture;
+            this.start = start;
+        }
+
+        FrameStats summarize(long frameInterval) {
+            if (frames == 0) {
+                return null;
+            }
+            long[] sorted = Arrays.copyOf(frameDurations, frames);
+            Arrays.sort(sorted);
+
+            int janky = 0;
+            int withRender = 0;
+            int withMiss = 0;
+            for (int i = 0; i < frames; i++) {
+                if (frameDurations[i] <= frameInterval) {
+                    continue;
+                }
+                janky++;
+                // Work done for a frame happens from the previous vsync until it is finished
+                long from = frameStarts[i] - frameInterval;
+                long to = frameStarts[i] + frameDurations[i];
+                if (anyBetween(renderTimes, Math.min(renders, MAX_EVENTS), from, to)) {
+                    withRender++;
+                }
+                if (anyBetween(missTimes, Math.min(misses, MAX_EVENTS), from, to)) {
+                    withMiss++;
+                }
+            }
+            long durationMs = (Math.min(end, System.nanoTime()) - start) / 1_000_000L;
+            return new FrameStats(gesture, durationMs, frames,
+                    percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99),
+                    janky, withRender, withMiss, renders, misses);
+        }
+
+        private static boolean anyBetween(long[] times, int count, long from, long to) {
+            for (int i = 0; i < count; i++) {
+                if (times[i] >= from && times[i] <= to) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Nearest-rank percentile in milliseconds
+         */
+        private static float percentile(long[] sorted, double p) {
+            int rank = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, rank))] / 1_000_000f;
+        }
+    }
+}
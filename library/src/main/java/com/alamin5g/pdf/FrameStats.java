@@ -0,0 +1,121 @@
+package com.alamin5g.pdf;
+
+import java.util.Locale;
+
+/**
+ * Frame timing of one scroll, fling or zoom session of a PDFView: from the first
+ * input event until input has stopped for half a second. Delivered through
+ * PDFView.onFrameStats(); requires Android 7.0 (API 24).
+ *
+ * A frame is janky when it took longer than one refresh interval. Janky frames are
+ * also matched against what the view did around them - a render result arriving
+ * (its bitmap is uploaded in that frame) or a visible page drawn without its bitmap
+ * (cache miss) - to tell rendering stalls from other causes.
+ */
+public final class FrameStats {
+
+    public enum Gesture {
+        SCROLL, FLING, ZOOM
+    }
+
+    private final Gesture gesture;
+    private final long durationMs;
+    private final int frames;
+    private final float p50Ms;
+    private final float p95Ms;
+    private final float p99Ms;
+    private final int jankyFrames;
+    private final int jankyFramesWithRender;
+    private final int jankyFramesWithCacheMiss;
+    private final int renders;
+    private final int cacheMisses;
+
+    FrameStats(Gesture gesture, long durationMs, int frames, float p50Ms, float p95Ms, float p99Ms,
+               int jankyFrames, int jankyFramesWithRender, int jankyFramesWithCacheMiss,
+               int renders, int cacheMisses) {
+        this.gesture = gesture;
+        this.durationMs = durationMs;
+        this.frames = frames;
+        this.p50Ms = p50Ms;
+        this.p95Ms = p95Ms;
+        this.p99Ms = p99Ms;
+        this.jankyFrames = jankyFrames;
+        this.jankyFramesWithRender = jankyFramesWithRender;
+        this.jankyFramesWithCacheMiss = jankyFramesWithCacheMiss;
+        this.renders = renders;
+        this.cacheMisses = cacheMisses;
+    }
+
+    /**
+     * Strongest gesture of the session - a scroll that turned into a pinch is ZOOM
+     */
+    public Gesture getGesture() {
+        return gesture;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * Median frame duration
+     */
+    public float getP50Ms() {
+        return p50Ms;
+    }
+
+    public float getP95Ms() {
+        return p95Ms;
+    }
+
+    public float getP99Ms() {
+        return p99Ms;
+    }
+
+    /**
+     * Frames that took longer than one refresh interval
+     */
+    public int getJankyFrames() {
+        return jankyFrames;
+    }
+
+    /**
+     * Janky frames that had a page render result arrive just before or during them
+     */
+    public int getJankyFramesWithRender() {
+        return jankyFramesWithRender;
+    }
+
+    /**
+     * Janky frames during which a visible page had no bitmap to draw
+     */
+    public int getJankyFramesWithCacheMiss() {
+        return jankyFramesWithCacheMiss;
+    }
+
+    /**
+     * Render results applied during the session
+     */
+    public int getRenders() {
+        return renders;
+    }
+
+    /**
+     * Visible pages drawn without a bitmap, counted once per frame
+     */
+    public int getCacheMisses() {
+        return cacheMisses;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "FrameStats{%s, %dms, frames=%d, p50=%.1fms, p95=%.1fms, p99=%.1fms, janky=%d (render=%d, miss=%d), renders=%d, misses=%d}",
+                gesture, durationMs, frames, p50Ms, p95Ms, p99Ms,
+                jankyFrames, jankyFramesWithRender, jankyFramesWithCacheMiss, renders, cacheMisses);
+    }
+}
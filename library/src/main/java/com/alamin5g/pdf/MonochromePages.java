@@ -0,0 +1,130 @@
+package com.alamin5g.pdf;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+
+/**
+ * Compact storage for rendered pages without color. Black-and-white and grayscale
+ * pages are kept as ALPHA_8 masks of ink coverage - one byte per pixel instead of
+ * four (ARGB_8888) - so more of them fit the same memory budget.
+ *
+ * A mask is drawn with a paint whose color filter turns ink coverage back into
+ * opaque gray paper and ink (see maskMatrix). Other filters, like night mode, are
+ * concatenated after it, so they see the same colors as for a full-color bitmap.
+ * compact() runs on the document actor right after rendering.
+ *
+ * PdfRenderer leaves paper it does not paint transparent. Transparent pixels count
+ * as white paper here, never as black ink.
+ */
+final class MonochromePages {
+
+    private static final int GRAY_TOLERANCE = 10;  // channel spread still counted as gray (antialiasing)
+
+    // What the pixels are
+    static final int COLOR = 0;
+    static final int GRAY = 1;
+    static final int GRAY_TRANSLUCENT = 2; // gray once put on white paper
+
+    /**
+     * Reads one row of a page's pixels
+     */
+    interface Rows {
+        void read(int[] row, int y);
+    }
+
+    private MonochromePages() {
+    }
+
+    /**
+     * Replace a rendered page by a mask if none of its pixels has color
+     * @return the mask (the rendered bitmap is recycled), or the rendered bitmap as is
+     */
+    static Bitmap compact(Bitmap rendered) {
+        if (rendered.getConfig() == Bitmap.Config.ALPHA_8) {
+            return rendered;
+        }
+        int width = rendered.getWidth();
+        int kind = classify(width, rendered.getHeight(),
+                (row, y) -> rendered.getPixels(row, 0, width, 0, y, width, 1));
+        if (kind == COLOR) {
+            return rendered;
+        }
+        Bitmap mask;
+        try {
+            mask = Bitmap.createBitmap(rendered.getWidth(), rendered.getHeight(), Bitmap.Config.ALPHA_8);
+        } catch (OutOfMemoryError e) {
+            return rendered;
+        }
+        if (kind == GRAY_TRANSLUCENT) {
+            // The matrix below ignores alpha - transparent black would become solid ink
+            new Canvas(rendered).drawColor(Color.WHITE, PorterDuff.Mode.DST_OVER);
+        }
+        // Ink coverage = 255 - luminance, written straight into the alpha channel
+        Paint toInk = new Paint();
+        toInk.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+        toInk.setColorFilter(new ColorMatrixColorFilter(new float[]{
+                0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0,
+                0, 0, 0, 0, 0,
+                -0.2126f, -0.7152f, -0.0722f, 0, 255
+        }));
+        new Canvas(mask).drawBitmap(rendered, 0, 0, toInk);
+        rendered.recycle();
+        return mask;
+    }
+
+    static boolean isMask(Bitmap bitmap) {
+        return bitmap.getConfig() == Bitmap.Config.ALPHA_8;
+    }
+
+    /**
+     * Filter for drawing masks with a black paint: the paint's alpha is the ink
+     * coverage, and becomes opaque gray (255 - coverage)
+     */
+    static ColorMatrix maskMatrix() {
+        return new ColorMatrix(new float[]{
+                0, 0, 0, -1, 255,
+                0, 0, 0, -1, 255,
+                0, 0, 0, -1, 255,
+                0, 0, 0, 0, 255
+        });
+    }
+
+    /**
+     * Whether every pixel of the page is gray, seen on white paper. Every pixel is
+     * read: a sampling grid misses small colored marks (a link, a stamp, a highlighted
+     * word), and a page wrongly taken for gray loses their color. Gray pages cost one
+     * pass over the bitmap, colored ones stop at their first colored pixel.
+     */
+    static int classify(int width, int height, Rows rows) {
+        int[] row = new int[width];
+        boolean translucent = false;
+        for (int y = 0; y < height; y++) {
+            rows.read(row, y);
+            for (int x = 0; x < width; x++) {
+                int color = row[x];
+                int alpha = color >>> 24;
+                if (alpha == 0) {
+                    translucent = true;
+                    continue; // Unpainted paper
+                }
+                translucent |= alpha < 255;
+                // Spread on white paper shrinks with alpha
+                int r = (color >> 16) & 0xff;
+                int g = (color >> 8) & 0xff;
+                int b = color & 0xff;
+                int spread = Math.max(r, Math.max(g, b)) - Math.min(r, Math.min(g, b));
+                if (spread * alpha / 255 > GRAY_TOLERANCE) {
+                    return COLOR;
+                }
+            }
+        }
+        return translucent ? GRAY_TRANSLUCENT : GRAY;
+    }
+}
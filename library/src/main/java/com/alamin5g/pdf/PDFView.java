@@ -1,35 +1,59 @@
 package com.alamin5g.pdf;
 
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.ColorMatrix;
 import android.graphics.ColorMatrixColorFilter;
 import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.pdf.PdfRenderer;
+import android.os.CancellationSignal;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.OperationCanceledException;
+import android.os.Parcel;
 import android.os.ParcelFileDescriptor;
+import android.os.Parcelable;
+import android.os.SystemClock;
 import android.util.AttributeSet;
+import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.Choreographer;
+import android.view.Display;
 import android.view.GestureDetector;
+import android.view.Gravity;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
 import android.view.View;
 import android.widget.FrameLayout;
 
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+import javax.crypto.SecretKey;
 
 import com.alamin5g.pdf.listener.OnLoadCompleteListener;
 import com.alamin5g.pdf.listener.OnPageChangeListener;
 import com.alamin5g.pdf.listener.OnErrorListener;
+import com.alamin5g.pdf.listener.OnFrameStatsListener;
 import com.alamin5g.pdf.listener.OnDownloadProgressListener;
+import com.alamin5g.pdf.listener.OnSearchListener;
+import com.alamin5g.pdf.source.AssetSource;
+import com.alamin5g.pdf.source.ByteArraySource;
+import com.alamin5g.pdf.source.DocumentSource;
+import com.alamin5g.pdf.source.EncryptedFileSource;
+import com.alamin5g.pdf.source.FileSource;
+import com.alamin5g.pdf.source.InputStreamSource;
+import com.alamin5g.pdf.source.UriSource;
+import com.alamin5g.pdf.source.UrlSource;
 
 /**
  * Complete PDF View using Android's native PdfRenderer for 16KB compatibility
@@ -40,8 +64,7 @@ public class PDFView extends FrameLayout {
     private static final String TAG = "PDFView";
     
     // PDF rendering
-    private PdfRenderer pdfRenderer;
-    private ParcelFileDescriptor fileDescriptor;
+    private DocumentActor document; // Owns the renderer - all document access is a request to it
     private int currentPage = 0;
     private int totalPages = 0;
     
@@ -52,6 +75,7 @@ public class PDFView extends FrameLayout {
     private boolean enableAntialiasing = true;
     private boolean nightMode = false;
     private boolean useBestQuality = true;
+    private boolean compactMonochromePages = true;
     private int spacing = 0;
     private int defaultPage = 0;
     private int[] pages;
@@ -61,6 +85,29 @@ public class PDFView extends FrameLayout {
     // Additional configuration options
     private boolean enableAnnotationRendering = true;
     private View scrollHandle = null;
+    
+    // Scroll handle scrubbing - while the handle is dragged only low-res previews are
+    // rendered, one at a time for the latest position; full renders wait for release
+    private static final int SCRUB_PREVIEW_DIVISOR = 4; // previews are a quarter of fit width
+    private boolean scrubbing = false;
+    private boolean previewPending = false; // one preview render (scrubbing or warm-up) at a time
+    private int scrubPage = 0;
+    private float scrubViewTop; // this view's top on screen when the drag started
+    private Paint scrubLabelPaint;
+    private Paint scrubLabelBackground;
+    private final android.graphics.RectF scrubLabelRect = new android.graphics.RectF();
+    
+    // Idle warm-up - while the UI thread is idle and no input arrives, render the pages
+    // the user is likely to reach next, one at a time, within the memory quota
+    private static final int WARM_UP_PAGES = 3;     // full-quality pages past the prefetch window
+    private static final int WARM_UP_PREVIEWS = 8;  // previews beyond those
+    private boolean warmUpScheduled = false;
+    private boolean singleWarmUpPending = false;
+    private int scrollDirection = 1; // 1 towards the end of the document, -1 towards the start
+    private final MessageQueue.IdleHandler warmUpIdleHandler = () -> {
+        warmUpScheduled = warmUpStep();
+        return warmUpScheduled;
+    };
     private boolean autoSpacing = false; // add dynamic spacing to fit each page
     private FitPolicy pageFitPolicy = FitPolicy.WIDTH; // mode to fit pages in the view
     private boolean fitEachPage = false; // fit each page to the view
@@ -75,8 +122,20 @@ public class PDFView extends FrameLayout {
     private float panY = 0f;
     private ScaleGestureDetector scaleGestureDetector;
     private GestureDetector gestureDetector;
-    private float lastTouchX, lastTouchY;
-    private boolean isDragging = false;
+    
+    // Input - gesture callbacks only accumulate; one Choreographer frame applies them
+    private float pendingScrollX = 0f;  // distance to scroll, as reported by onScroll
+    private float pendingScrollY = 0f;
+    private float pendingZoom = 1.0f;   // product of scale factors since the last frame
+    private float pendingFocusX, pendingFocusY;
+    private boolean inputFrameScheduled = false;
+    private final Choreographer.FrameCallback inputFrame = this::applyPendingInput;
+    
+    // Render quality - reduced while interacting on slow devices, restored once idle
+    private final RenderQualityGovernor qualityGovernor = new RenderQualityGovernor();
+    private final Runnable qualityUpgrade = this::invalidate; // onDraw re-requests degraded pages
+    private final FrameJankMonitor frameMonitor = new FrameJankMonitor();
+    private final RenderStats renderStats = new RenderStats();
     
     // Fit policies
     public enum FitPolicy {
@@ -84,19 +143,55 @@ public class PDFView extends FrameLayout {
     }
     
     // Rendering
-    private ExecutorService executorService;
+    private PdfRenderEngine.Lane renderLane; // Serial lane on the shared render engine
     private Bitmap currentBitmap;  // For single page mode
     private java.util.List<Bitmap> pageBitmaps = new java.util.ArrayList<>();  // For continuous mode
-    private java.util.List<Float> pageOffsets = new java.util.ArrayList<>();  // Y positions of each page
     private Paint paint;
+    private Paint maskPaint; // for monochrome pages stored as ALPHA_8 masks
     private ColorMatrix colorMatrix;
     private ColorMatrixColorFilter colorFilter;
-    private float totalContentHeight = 0f;
     
     // Caching
-    private android.util.LruCache<Integer, Bitmap> pageCache;
+    private PageCache pageCache;
     private static final int DEFAULT_CACHE_SIZE = 10; // Default cache size
     private int cacheSize = DEFAULT_CACHE_SIZE; // Configurable cache size
+    private long memoryQuota = Long.MAX_VALUE; // Bytes this view may keep, assigned by the engine
+    
+    // Memory pressure - stages applied in order as onTrimMemory levels rise
+    private static final int PRESSURE_NONE = 0;
+    private static final int PRESSURE_NO_PREFETCH = 1;  // drop pages far from the viewport
+    private static final int PRESSURE_SHRINK_CACHE = 2; // halve the page cache
+    private static final int PRESSURE_VISIBLE_ONLY = 3; // keep only on-screen pages
+    private static final long PRESSURE_RELAX_DELAY_MS = 10000; // step back one stage per interval
+    private int memoryPressure = PRESSURE_NONE;
+    private final ComponentCallbacks2 memoryCallbacks = new MemoryCallbacks();
+    private final Runnable relaxMemoryPressure = this::relaxMemoryPressure;
+    
+    // Continuous mode lazy rendering (pages dropped under memory pressure come back on demand)
+    private final ContinuousLayout continuousLayout = new ContinuousLayout(); // page positions at the current width and zoom
+    private final PageRequests pageRequests = new PageRequests(); // renders in flight, per layout
+    private int layoutWidth = 0; // view width the continuous layout was built for
+    private float[] pageAspects; // height / width per page, 0 until measured
+    private float estimatedPageAspect = 1.414f; // used for pages not measured yet (A4 until the first page is)
+    private float[] reusedPageAspects; // page-size index of a document reopened from DocumentHandleCache
+    private final ZoomPyramid zoomPyramid = new ZoomPyramid(); // replaced pages kept at 1x/2x/4x for zooming back
+    private static final int PYRAMID_QUOTA_DIVISOR = 4; // share of the memory quota the pyramid may use
+    private final android.graphics.RectF pageRect = new android.graphics.RectF();
+    private PageDisplayLists pageDisplayLists; // per-page RenderNodes (API 29+), null on older versions
+    
+    // Scroll position to restore once the continuous layout exists (page + fraction into it)
+    private int anchorPage = -1;
+    private float anchorPageFraction = 0f;
+    private float anchorPanXFraction = 0f;
+    private SavedState pendingRestore; // saved state that arrived before the document opened
+    
+    // Document source recorded by from*() and opened by load()
+    private DocumentSource documentSource;
+    private int loadGeneration = 0;
+    private CancellationSignal downloadSignal; // download in flight, cancelled by a new load or recycle()
+    
+    // Full-text search (API 35+)
+    private PdfTextSearch textSearch;
     
     // Listeners
     private OnLoadCompleteListener onLoadCompleteListener;
@@ -133,66 +228,111 @@ public class PDFView extends FrameLayout {
         colorMatrix = new ColorMatrix();
         colorFilter = new ColorMatrixColorFilter(colorMatrix);
         paint.setColorFilter(colorFilter);
+        maskPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        maskPaint.setColorFilter(new ColorMatrixColorFilter(MonochromePages.maskMatrix()));
         
         // Initialize gesture detectors
         scaleGestureDetector = new ScaleGestureDetector(getContext(), new ScaleListener());
         gestureDetector = new GestureDetector(getContext(), new GestureListener());
         
-        // Initialize thread pool for rendering
-        executorService = Executors.newSingleThreadExecutor();
+        // Rendering runs on the process-wide engine shared by all PDFViews
+        renderLane = PdfRenderEngine.getInstance().register(this::onMemoryQuotaChanged);
         
         // Initialize page cache
-        pageCache = new android.util.LruCache<Integer, Bitmap>(cacheSize) {
-            @Override
-            protected int sizeOf(Integer key, Bitmap bitmap) {
-                return bitmap.getByteCount() / 1024; // Size in KB
-            }
-            
-            @Override
-            protected void entryRemoved(boolean evicted, Integer key, Bitmap oldValue, Bitmap newValue) {
-                // Only recycle if it's not the current bitmap being displayed
-                if (evicted && oldValue != null && !oldValue.isRecycled() && oldValue != currentBitmap) {
-                    Log.d(TAG, "Recycling cached bitmap for page: " + key);
-                    oldValue.recycle();
-                }
-            }
-        };
+        pageCache = new PageCache(cacheSize);
         
-        // Enable touch events
-        setOnTouchListener(new OnTouchListener() {
+        if (android.os.Build.VERSION.SDK_INT >= android.os.Build.VERSION_CODES.Q) {
+            pageDisplayLists = new PageDisplayLists();
+        }
+    }
+
     @Override
-            public boolean onTouch(View v, MotionEvent event) {
-                scaleGestureDetector.onTouchEvent(event);
-                gestureDetector.onTouchEvent(event);
-                
-                switch (event.getAction()) {
-                    case MotionEvent.ACTION_DOWN:
-                        lastTouchX = event.getX();
-                        lastTouchY = event.getY();
-                        isDragging = false;
-                        break;
-                    case MotionEvent.ACTION_MOVE:
-                        if (scaleFactor > 1.0f) {
-                            float deltaX = event.getX() - lastTouchX;
-                            float deltaY = event.getY() - lastTouchY;
-                            
-                            matrix.postTranslate(deltaX, deltaY);
-                            invalidate();
-                            
-                            lastTouchX = event.getX();
-                            lastTouchY = event.getY();
-                            isDragging = true;
-                        }
-                        break;
-                    case MotionEvent.ACTION_UP:
-                        if (!isDragging && scaleFactor <= 1.0f) {
-                            // Single tap - could be used for other actions
-                        }
-                        break;
+    public boolean onTouchEvent(MotionEvent event) {
+        // Single input path: the detectors turn events into scroll/zoom deltas,
+        // which are applied together once per frame
+        scaleGestureDetector.onTouchEvent(event);
+        gestureDetector.onTouchEvent(event);
+        return true;
+    }
+
+    private void scheduleInputFrame() {
+        if (!inputFrameScheduled) {
+            inputFrameScheduled = true;
+            Choreographer.getInstance().postFrameCallback(inputFrame);
+        }
+    }
+
+    /**
+     * Apply everything collected since the last frame: zoom first (around the last
+     * focus point), then scroll, then one transform update and one invalidate
+     */
+    private void applyPendingInput(long frameTimeNanos) {
+        inputFrameScheduled = false;
+        float zoom = pendingZoom;
+        float scrollX = pendingScrollX;
+        float scrollY = pendingScrollY;
+        pendingZoom = 1.0f;
+        pendingScrollX = 0f;
+        pendingScrollY = 0f;
+
+        if (zoom != 1.0f) {
+            float newScaleFactor = Math.max(minZoom, Math.min(scaleFactor * zoom, maxZoom));
+            if (newScaleFactor != scaleFactor) {
+                if (continuousScrollMode) {
+                    // Zoom centered to the focus point (like Adobe Reader)
+                    zoomCenteredTo(newScaleFactor, pendingFocusX, pendingFocusY);
+                } else {
+                    scaleFactor = newScaleFactor;
                 }
-            return true;
+                Log.d(TAG, "Zoom applied: " + scaleFactor + ", continuous: " + continuousScrollMode);
+            }
+        }
+
+        if (scrollX != 0f || scrollY != 0f) {
+            panX -= scrollX;
+            panY -= scrollY;
+            clampPan();
+            if (scrollY != 0f) {
+                scrollDirection = scrollY > 0 ? 1 : -1;
+            }
+        }
+
+        updateScrollHandle();
+        scheduleWarmUp(); // Runs once input has stopped and the UI thread is idle
+        if (!continuousScrollMode) {
+            updateMatrixScale();
+        } else if (zoom != 1.0f || scrollX != 0f || scrollY != 0f) {
+            // Pages rendered from now on may be degraded; ask again once input stops
+            qualityGovernor.onInputFrame(frameTimeNanos);
+            removeCallbacks(qualityUpgrade);
+            postDelayed(qualityUpgrade, RenderQualityGovernor.IDLE_DELAY_MS);
+        }
+        invalidate();
+    }
+
+    /**
+     * Keep the pan inside the content for the current mode
+     */
+    private void clampPan() {
+        float viewWidth = getWidth();
+        float viewHeight = getHeight();
+        if (continuousScrollMode) {
+            // Content height is already at zoomed resolution
+            float contentWidth = viewWidth * scaleFactor;
+            float maxPanX = Math.max(0, (contentWidth - viewWidth) / 2f);
+            float maxPanY = Math.max(0, continuousLayout.contentHeight() - viewHeight);
+            panX = Math.max(-maxPanX, Math.min(maxPanX, panX));
+            panY = Math.max(-maxPanY, Math.min(0, panY));
+        } else if (currentBitmap != null) {
+            float bitmapWidth = currentBitmap.getWidth();
+            float bitmapHeight = currentBitmap.getHeight();
+            float baseScale = Math.min(viewWidth / bitmapWidth, viewHeight / bitmapHeight);
+            float finalScale = baseScale * scaleFactor;
+            float maxPanX = Math.max(0, (bitmapWidth * finalScale - viewWidth) / 2f);
+            float maxPanY = Math.max(0, (bitmapHeight * finalScale - viewHeight) / 2f);
+            panX = Math.max(-maxPanX, Math.min(panX, maxPanX));
+            panY = Math.max(-maxPanY, Math.min(panY, maxPanY));
         }
-        });
     }
 
     @Override
@@ -201,7 +341,17 @@ public class PDFView extends FrameLayout {
         
         if (continuousScrollMode && !pageBitmaps.isEmpty()) {
             // Continuous scroll mode - draw all pages with zoom support
-            Log.d(TAG, "onDraw - continuous mode, " + pageBitmaps.size() + " pages, panY: " + panY + ", zoom: " + scaleFactor);
+            int firstVisible = findFirstVisiblePage();
+            int lastVisible = findLastVisiblePage();
+            
+            if (pageDisplayLists != null && canvas.isHardwareAccelerated()) {
+                // Pages are recorded once; scrolling only moves the parent node
+                pageDisplayLists.draw(canvas, panX, panY, firstVisible, lastVisible, continuousLayout.pageWidth(),
+                        pageBitmaps, continuousLayout.offsets(), continuousLayout.heights(), paint, maskPaint);
+                requestPagesFor(firstVisible, lastVisible);
+                drawScrubLabel(canvas);
+                return;
+            }
             
             canvas.save();
             
@@ -209,27 +359,35 @@ public class PDFView extends FrameLayout {
             // So we only need to apply pan offsets, not scaling
             canvas.translate(panX, panY);
             
-            // Draw all pages at their native resolution (already zoomed)
-            for (int i = 0; i < pageBitmaps.size(); i++) {
+            // Draw visible pages at their native resolution (already zoomed)
+            for (int i = firstVisible; i <= lastVisible; i++) {
                 Bitmap bitmap = pageBitmaps.get(i);
-                float yOffset = pageOffsets.get(i);
-                
+                float yOffset = continuousLayout.offset(i);
+
                 if (bitmap != null && !bitmap.isRecycled()) {
-                    canvas.drawBitmap(bitmap, 0, yOffset, paint);
+                    if (bitmap.getWidth() == continuousLayout.pageWidth()) {
+                        canvas.drawBitmap(bitmap, 0, yOffset, paintFor(bitmap));
+                    } else {
+                        // Rendered for an older layout or at reduced quality - stretch it until the sharp one arrives
+                        pageRect.set(0, yOffset, continuousLayout.pageWidth(), yOffset + continuousLayout.height(i));
+                        canvas.drawBitmap(bitmap, null, pageRect, paintFor(bitmap));
+                    }
                 }
             }
             
             canvas.restore();
+            
+            // Missing pages (dropped under memory pressure) and stretched ones are re-rendered
+            requestPagesFor(firstVisible, lastVisible);
+            drawScrubLabel(canvas);
         } else if (currentBitmap != null && !currentBitmap.isRecycled()) {
             // Single page mode
-            Log.d(TAG, "onDraw - single page mode, bitmap: " + currentBitmap.getWidth() + "x" + currentBitmap.getHeight());
-            
             try {
                 canvas.save();
                 canvas.concat(matrix);
                 
                 // Draw bitmap at origin (0,0) - matrix already includes translation and spacing
-                canvas.drawBitmap(currentBitmap, 0, 0, paint);
+                canvas.drawBitmap(currentBitmap, 0, 0, paintFor(currentBitmap));
                 canvas.restore();
             } catch (Exception e) {
                 Log.e(TAG, "Error drawing bitmap: " + e.getMessage(), e);
@@ -239,6 +397,7 @@ public class PDFView extends FrameLayout {
                 }
                 canvas.restore(); // Ensure canvas state is restored
             }
+            drawScrubLabel(canvas);
         } else {
             Log.w(TAG, "Cannot draw - no bitmap available");
         }
@@ -250,10 +409,23 @@ public class PDFView extends FrameLayout {
         Log.d(TAG, "View size changed: " + w + "x" + h);
         
         // If we have a PDF loaded but no bitmap (due to previous zero dimensions), render now
-        if (pdfRenderer != null && w > 0 && h > 0) {
+        if (document != null && w > 0 && h > 0) {
             if (continuousScrollMode && pageBitmaps.isEmpty()) {
                 Log.d(TAG, "View now has valid dimensions, rendering all pages");
                 renderAllPages();
+            } else if (continuousScrollMode && w != layoutWidth) {
+                // Width changed (rotation, split screen) - lay out again, keeping the same content in view
+                Log.d(TAG, "View width changed from " + layoutWidth + ", re-laying out pages");
+                if (anchorPage < 0) {
+                    captureScrollAnchor();
+                }
+                relayoutContinuousPages();
+            } else if (!continuousScrollMode && currentBitmap != null && !matchesViewSize(currentBitmap)) {
+                // Keep showing the old bitmap scaled to fit while the page renders at the new size
+                Log.d(TAG, "View size changed, re-rendering current page: " + currentPage);
+                updateMatrixScale();
+                invalidate();
+                renderPage(currentPage);
             } else if (!continuousScrollMode && currentBitmap == null) {
                 Log.d(TAG, "View now has valid dimensions, rendering current page: " + currentPage);
                 renderPage(currentPage);
@@ -349,11 +521,25 @@ public class PDFView extends FrameLayout {
         return this;
     }
     
+    /**
+     * false renders continuous pages at half the pixels to save memory. Pages are
+     * always ARGB_8888, the only config PdfRenderer renders into.
+     */
     public PDFView useBestQuality(boolean useBestQuality) {
         this.useBestQuality = useBestQuality;
         return this;
     }
     
+    /**
+     * Keep pages without color as 8-bit masks, a quarter of the memory of ARGB_8888,
+     * so more pages stay cached. Detected by sampling each page after rendering.
+     * Enabled by default.
+     */
+    public PDFView compactMonochromePages(boolean compactMonochromePages) {
+        this.compactMonochromePages = compactMonochromePages;
+        return this;
+    }
+    
     public PDFView spacing(int spacing) {
         this.spacing = spacing;
         return this;
@@ -361,25 +547,10 @@ public class PDFView extends FrameLayout {
     
     public PDFView setCacheSize(int cacheSize) {
         this.cacheSize = Math.max(1, cacheSize); // Ensure minimum cache size of 1
-        // Reinitialize cache with new size
+        // Resize in place - keeps pages that are already rendered
         if (pageCache != null) {
-            pageCache.evictAll();
+            pageCache.resize(cacheCapacityForPressure());
         }
-        pageCache = new android.util.LruCache<Integer, Bitmap>(this.cacheSize) {
-            @Override
-            protected int sizeOf(Integer key, Bitmap bitmap) {
-                return bitmap.getByteCount() / 1024; // Size in KB
-            }
-
-            @Override
-            protected void entryRemoved(boolean evicted, Integer key, Bitmap oldValue, Bitmap newValue) {
-                // Only recycle if it's not the current bitmap being displayed
-                if (evicted && oldValue != null && !oldValue.isRecycled() && oldValue != currentBitmap) {
-                    Log.d(TAG, "Recycling cached bitmap for page: " + key);
-                    oldValue.recycle();
-                }
-            }
-        };
         return this;
     }
     
@@ -404,9 +575,15 @@ public class PDFView extends FrameLayout {
         return this;
     }
     
+    /**
+     * View shown at the right edge that follows the scroll position. Dragging it scrubs
+     * through the document: low-res previews and a page number are shown while dragging,
+     * and the page it is released on is rendered at full quality.
+     */
     public PDFView scrollHandle(View scrollHandle) {
         // Remove previous scroll handle if exists
         if (this.scrollHandle != null && this.scrollHandle.getParent() == this) {
+            this.scrollHandle.setOnTouchListener(null);
             removeView(this.scrollHandle);
         }
         
@@ -414,7 +591,14 @@ public class PDFView extends FrameLayout {
         
         // Add new scroll handle if provided
         if (scrollHandle != null) {
-            addView(scrollHandle);
+            if (scrollHandle.getLayoutParams() == null) {
+                addView(scrollHandle, new FrameLayout.LayoutParams(LayoutParams.WRAP_CONTENT,
+                        LayoutParams.WRAP_CONTENT, Gravity.END | Gravity.TOP));
+            } else {
+                addView(scrollHandle);
+            }
+            scrollHandle.setOnTouchListener(this::onScrollHandleTouch);
+            updateScrollHandle();
         }
         
         return this;
@@ -451,278 +635,538 @@ public class PDFView extends FrameLayout {
         return this;
     }
     
+    /**
+     * Frame timing summary after each scroll, fling or zoom session (API 24+, no-op before)
+     */
+    public PDFView onFrameStats(OnFrameStatsListener onFrameStatsListener) {
+        frameMonitor.setListener(onFrameStatsListener);
+        if (onFrameStatsListener == null) {
+            frameMonitor.detach();
+        } else if (isAttachedToWindow()) {
+            attachFrameMonitor();
+        }
+        return this;
+    }
+    
     public PDFView onDownloadProgress(OnDownloadProgressListener onDownloadProgressListener) {
         this.onDownloadProgressListener = onDownloadProgressListener;
         return this;
     }
     
-    // Loading methods
-    public PDFView fromAsset(String assetName) {
-        try {
-            Log.d(TAG, "Loading PDF from asset: " + assetName);
-            
-            // Read the asset as input stream and create a temporary file
-            InputStream inputStream = getContext().getAssets().open(assetName);
-            File tempFile = File.createTempFile("pdf_temp", ".pdf", getContext().getCacheDir());
-            FileOutputStream outputStream = new FileOutputStream(tempFile);
-            
-            // Copy the input stream to the temporary file
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, length);
-            }
-            
-            inputStream.close();
-            outputStream.close();
-            
-            Log.d(TAG, "Temporary file created: " + tempFile.getAbsolutePath());
-            
-            // Open the temporary file with PdfRenderer
-            fileDescriptor = ParcelFileDescriptor.open(tempFile, ParcelFileDescriptor.MODE_READ_ONLY);
-            pdfRenderer = new PdfRenderer(fileDescriptor);
-            
-            totalPages = pdfRenderer.getPageCount();
-            currentPage = defaultPage;
-            
-            // Adjust total pages if custom page order is specified
-            if (pages != null) {
-                totalPages = pages.length;
-            }
-            
-            Log.d(TAG, "PDF loaded successfully with " + totalPages + " pages");
-            
-            if (onLoadCompleteListener != null) {
-                onLoadCompleteListener.loadComplete(totalPages);
-            }
-            
-            if (continuousScrollMode) {
-                renderAllPages();
-            } else {
-                renderPage(currentPage);
-            }
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading PDF from asset: " + e.getMessage());
-        if (onErrorListener != null) {
-                onErrorListener.onError(e);
-            }
-        }
-        return this;
+    // Loading methods - each returns a Configurator that only records the source.
+    // Nothing is opened or rendered until load() is called.
+    public Configurator fromAsset(String assetName) {
+        return new Configurator(new AssetSource(assetName));
     }
     
-    public PDFView fromFile(File file) {
-        try {
-            Log.d(TAG, "Loading PDF from file: " + file.getAbsolutePath());
-            
-            fileDescriptor = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
-            pdfRenderer = new PdfRenderer(fileDescriptor);
-            
-            totalPages = pdfRenderer.getPageCount();
-            currentPage = defaultPage;
-            
-            // Adjust total pages if custom page order is specified
-            if (pages != null) {
-                totalPages = pages.length;
-            }
-            
-            Log.d(TAG, "PDF loaded successfully with " + totalPages + " pages");
-            
-            if (onLoadCompleteListener != null) {
-                onLoadCompleteListener.loadComplete(totalPages);
-            }
-            
-            renderPage(currentPage);
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading PDF from file: " + e.getMessage());
-            if (onErrorListener != null) {
-                onErrorListener.onError(e);
-            }
-        }
-        return this;
+    public Configurator fromFile(File file) {
+        return new Configurator(new FileSource(file));
     }
     
-    public PDFView fromBytes(byte[] bytes) {
-        try {
-            Log.d(TAG, "Loading PDF from bytes: " + bytes.length + " bytes");
-            
-            // Create a temporary file from bytes
-            File tempFile = File.createTempFile("pdf_temp", ".pdf", getContext().getCacheDir());
-            FileOutputStream outputStream = new FileOutputStream(tempFile);
-            outputStream.write(bytes);
-            outputStream.close();
-            
-            return fromFile(tempFile);
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading PDF from bytes: " + e.getMessage());
-            if (onErrorListener != null) {
-                onErrorListener.onError(e);
-            }
-        }
-        return this;
+    public Configurator fromBytes(byte[] bytes) {
+        return new Configurator(new ByteArraySource(bytes));
     }
     
-    public PDFView fromUri(android.net.Uri uri) {
-        try {
-            Log.d(TAG, "Loading PDF from URI: " + uri.toString());
-            
-            // Open input stream from URI
-            InputStream inputStream = getContext().getContentResolver().openInputStream(uri);
-            if (inputStream == null) {
-                throw new IOException("Cannot open input stream from URI: " + uri);
-            }
-            
-            return fromStream(inputStream);
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading PDF from URI: " + e.getMessage());
-            if (onErrorListener != null) {
-                onErrorListener.onError(e);
-            }
+    public Configurator fromUri(android.net.Uri uri) {
+        return new Configurator(new UriSource(uri));
+    }
+    
+    public Configurator fromStream(InputStream inputStream) {
+        return new Configurator(new InputStreamSource(inputStream));
+    }
+    
+    public Configurator fromUrl(String url) {
+        return new Configurator(new UrlSource(url));
+    }
+    
+    /**
+     * AES-encrypted file starting with its IV, decrypted in memory (Android 8+)
+     */
+    public Configurator fromEncryptedFile(File file, SecretKey key, EncryptedFileSource.Mode mode) {
+        return new Configurator(new EncryptedFileSource(file, key, mode));
+    }
+    
+    public Configurator fromSource(DocumentSource source) {
+        return new Configurator(source);
+    }
+    
+    /**
+     * Reload the last loaded document with the current configuration
+     */
+    public void load() {
+        if (documentSource == null) {
+            Log.w(TAG, "load() called before any from*() source was configured");
+            return;
         }
-        return this;
+        load(documentSource, java.util.Collections.emptyList());
     }
     
-    public PDFView fromStream(InputStream inputStream) {
-        try {
-            Log.d(TAG, "Loading PDF from InputStream");
-            
-            // Create a temporary file from input stream
-            File tempFile = File.createTempFile("pdf_temp", ".pdf", getContext().getCacheDir());
-            FileOutputStream outputStream = new FileOutputStream(tempFile);
-            
-            // Copy the input stream to the temporary file
-            byte[] buffer = new byte[1024];
-            int length;
-            while ((length = inputStream.read(buffer)) > 0) {
-                outputStream.write(buffer, 0, length);
-            }
-            
-            inputStream.close();
-            outputStream.close();
-            
-            return fromFile(tempFile);
-            
-        } catch (IOException e) {
-            Log.e(TAG, "Error loading PDF from InputStream: " + e.getMessage());
-            if (onErrorListener != null) {
-                onErrorListener.onError(e);
-            }
+    /**
+     * Single open-and-render pass: the source is opened on the render lane (URLs on
+     * the engine's I/O executor, so a slow download never holds a render worker),
+     * then the configured mode renders once on the UI thread.
+     */
+    private void load(DocumentSource source, java.util.List<Runnable> options) {
+        if (renderLane == null) {
+            Log.e(TAG, "Cannot load - view has been recycled");
+            return;
         }
-        return this;
+        
+        Log.d(TAG, "Loading PDF from " + source);
+        cancelDownload(); // A new source supersedes a download still running
+        closeDocument();
+        // Configurator options only now, so the previous document never sees them
+        for (Runnable option : options) {
+            option.run();
+        }
+        documentSource = source;
+        final int generation = ++loadGeneration;
+        
+        // Recreated after a configuration change - take over the previous view's document
+        String retainKey = retainKey(source);
+        RetainedDocuments.Retained retained = retainKey != null ? RetainedDocuments.take(retainKey) : null;
+        if (retained != null) {
+            onDocumentReattached(retained);
+            return;
+        }
+        
+        // Switching back to a recently viewed document - its renderer is still open
+        String sourceKey = source.getKey();
+        DocumentHandleCache.Handle handle = sourceKey != null ? DocumentHandleCache.take(sourceKey) : null;
+        if (handle != null) {
+            reuseIfUnchanged(source, handle, generation);
+            return;
+        }
+        openSource(source, sourceKey, generation);
     }
     
-    public PDFView fromUrl(String url) {
-        if (url == null || url.trim().isEmpty()) {
-            if (onErrorListener != null) {
-                onErrorListener.onError(new IllegalArgumentException("URL cannot be null or empty"));
-            }
-            return this;
+    /**
+     * Take back a document kept open if its source still has the version it was
+     * opened at - the file behind a path may have been replaced meanwhile. Checked on
+     * the render lane, as it may touch the disk; a changed source is opened again.
+     */
+    private void reuseIfUnchanged(DocumentSource source, DocumentHandleCache.Handle handle, int generation) {
+        final Context context = getContext().getApplicationContext();
+        final String openedVersion = handle.document.getSourceVersion();
+        renderLane.execute(() -> {
+            String version = sourceVersion(source, context);
+            boolean unchanged = version != null && version.equals(openedVersion);
+            post(() -> {
+                if (generation != loadGeneration) {
+                    handle.close();
+                    return;
+                }
+                if (!unchanged) {
+                    Log.d(TAG, source + " changed since it was kept open, opening it again");
+                    handle.close();
+                    openSource(source, source.getKey(), generation);
+                    return;
+                }
+                if (Arrays.equals(handle.pages, pages)) {
+                    reusedPageAspects = handle.pageAspects;
+                    estimatedPageAspect = handle.estimatedPageAspect;
+                }
+                onDocumentOpened(handle.document);
+            });
+        });
+    }
+    
+    /**
+     * Open the source on the render lane (URLs on the I/O executor) and hand the
+     * document to onDocumentOpened, unless a newer load() came first
+     */
+    private void openSource(DocumentSource source, String sourceKey, int generation) {
+        final CancellationSignal signal;
+        if (source instanceof UrlSource) {
+            signal = new CancellationSignal();
+            downloadSignal = signal;
+            ((UrlSource) source).setOnDownloadProgressListener((bytesDownloaded, totalBytes, progress) -> {
+                if (onDownloadProgressListener != null && !signal.isCanceled()) {
+                    post(() -> {
+                        if (generation == loadGeneration && onDownloadProgressListener != null) {
+                            onDownloadProgressListener.onDownloadProgress(bytesDownloaded, totalBytes, progress);
+                        }
+                    });
+                }
+            });
+        } else {
+            signal = null;
         }
         
-        // Download PDF from URL in background thread
-        executorService.execute(() -> {
+        final Context context = getContext().getApplicationContext();
+        final boolean documentOrder = pages == null; // Saved page sizes are in document order
+        Runnable openTask = () -> {
             try {
-                Log.d(TAG, "Downloading PDF from URL: " + url);
-                
-                URL pdfUrl = new URL(url);
-                HttpURLConnection connection = (HttpURLConnection) pdfUrl.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(30000); // 30 seconds
-                connection.setReadTimeout(60000);    // 60 seconds
-                
-                // Set user agent to avoid blocking
-                connection.setRequestProperty("User-Agent", "Alamin5G-PDF-Viewer/1.0.10");
-                
-                int responseCode = connection.getResponseCode();
-                if (responseCode != HttpURLConnection.HTTP_OK) {
-                    throw new IOException("HTTP error code: " + responseCode);
+                // Before opening: if the source changes in between, the next load opens it again
+                String version = sourceKey != null ? sourceVersion(source, context) : null;
+                ParcelFileDescriptor descriptor = signal != null
+                        ? ((UrlSource) source).open(context, signal)
+                        : source.open(context);
+                final DocumentActor opened = DocumentActor.open(descriptor, version);
+                // Opened before - the whole layout is known without measuring a page
+                final float[] savedAspects = sourceKey != null && documentOrder
+                        ? PageMetadataStore.read(context, sourceKey, opened.getFileSize(),
+                                opened::getFingerprint, opened.getPageCount())
+                        : null;
+                if (signal != null && signal.isCanceled()) {
+                    // Recycled or superseded while opening - the view may be gone, don't post to it
+                    opened.close();
+                    return;
                 }
-                
-                // Get file size for progress tracking
-                long totalBytes = connection.getContentLengthLong();
-                Log.d(TAG, "PDF file size: " + totalBytes + " bytes");
-                
-                InputStream inputStream = connection.getInputStream();
-                
-                // Create temporary file
-                File tempFile = File.createTempFile("pdf_download", ".pdf", getContext().getCacheDir());
-                FileOutputStream outputStream = new FileOutputStream(tempFile);
-                
-                // Download with progress tracking
-                byte[] buffer = new byte[8192];
-                long bytesDownloaded = 0;
-                int bytesRead;
-                
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    outputStream.write(buffer, 0, bytesRead);
-                    bytesDownloaded += bytesRead;
-                    
-                    // Report progress
-                    if (onDownloadProgressListener != null) {
-                        final long finalBytesDownloaded = bytesDownloaded;
-                        final long finalTotalBytes = totalBytes;
-                        final int progress = totalBytes > 0 ? (int) ((bytesDownloaded * 100) / totalBytes) : -1;
-                        
-                        post(() -> onDownloadProgressListener.onDownloadProgress(
-                            finalBytesDownloaded, finalTotalBytes, progress));
+                post(() -> {
+                    if (downloadSignal == signal) {
+                        downloadSignal = null;
                     }
-                }
-                
-                inputStream.close();
-                outputStream.close();
-                connection.disconnect();
-                
-                Log.d(TAG, "PDF downloaded successfully: " + tempFile.getAbsolutePath());
-                
-                // Load the downloaded file on main thread
-                post(() -> fromFile(tempFile).load());
-                
+                    if (generation != loadGeneration) {
+                        // A newer load() superseded this one
+                        opened.close();
+                        return;
+                    }
+                    if (savedAspects != null) {
+                        reusedPageAspects = savedAspects;
+                        estimatedPageAspect = savedAspects[Math.max(0, Math.min(defaultPage, savedAspects.length - 1))];
+                    }
+                    onDocumentOpened(opened);
+                });
+            } catch (OperationCanceledException e) {
+                Log.d(TAG, "Loading " + source + " cancelled");
             } catch (Exception e) {
-                Log.e(TAG, "Error downloading PDF from URL: " + e.getMessage(), e);
-                if (onErrorListener != null) {
-                    post(() -> onErrorListener.onError(e));
+                Log.e(TAG, "Error loading PDF from " + source + ": " + e.getMessage(), e);
+                if (signal != null && signal.isCanceled()) {
+                    return;
                 }
+                post(() -> {
+                    if (generation == loadGeneration && onErrorListener != null) {
+                        onErrorListener.onError(e);
+                    }
+                });
             }
-        });
-        
-        return this;
+        };
+        if (signal != null) {
+            PdfRenderEngine.getInstance().executeIo(openTask);
+        } else {
+            renderLane.execute(openTask);
+        }
     }
     
-    public void load() {
-        // Loading is handled in fromAsset(), fromFile(), etc.
+    private static String sourceVersion(DocumentSource source, Context context) {
+        try {
+            return source.getVersion(context);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Cannot check version of " + source + ": " + e.getMessage());
+            return null;
+        }
     }
     
-    // Navigation methods
-    public void jumpTo(int page) {
-        Log.d(TAG, "jumpTo called with page: " + page + ", totalPages: " + totalPages);
-        if (page >= 0 && page < totalPages) {
-            currentPage = page;
-            Log.d(TAG, "Jumping to page: " + currentPage);
-            renderPage(currentPage);
-            resetZoom();
-            
-            if (onPageChangeListener != null) {
-                onPageChangeListener.onPageChanged(currentPage, totalPages);
-            }
-        } else {
-            Log.w(TAG, "Invalid page number: " + page + " (total: " + totalPages + ")");
+    /**
+     * Stop a download in flight. Its partial file stays in the cache so loading
+     * the same URL again resumes instead of starting over.
+     */
+    private void cancelDownload() {
+        if (downloadSignal != null) {
+            downloadSignal.cancel();
+            downloadSignal = null;
         }
     }
     
-    public void jumpTo(int page, boolean withAnimation) {
-        if (withAnimation) {
-            // Simple fade animation for page changes
-            animate().alpha(0.5f).setDuration(150).withEndAction(() -> {
-                jumpTo(page);
-                animate().alpha(1.0f).setDuration(150).start();
-            }).start();
-        } else {
-            jumpTo(page);
+    private void onDocumentOpened(DocumentActor opened) {
+        document = opened;
+        document.setExecutor(renderLane); // Its requests run on this view's lane from now on
+        
+        totalPages = document.getPageCount();
+        
+        // Adjust total pages if custom page order is specified
+        if (pages != null) {
+            totalPages = pages.length;
         }
-    }
+        currentPage = Math.max(0, Math.min(defaultPage, totalPages - 1));
+        if (pendingRestore != null) {
+            // Recreated view - return to where the user was
+            applyRestoredState(pendingRestore);
+            pendingRestore = null;
+        }
+        
+        Log.d(TAG, "PDF loaded successfully with " + totalPages + " pages");
+        
+        if (onLoadCompleteListener != null) {
+            onLoadCompleteListener.loadComplete(totalPages);
+        }
+        
+        // Render once for the configured mode (waits for layout if size is not known yet)
+        if (continuousScrollMode) {
+            if (pageBitmaps.isEmpty()) {
+                renderAllPages();
+            } else if (getWidth() > 0 && getWidth() != layoutWidth) {
+                relayoutContinuousPages();
+            } else {
+                applyScrollAnchor();
+                invalidate();
+            }
+        } else {
+            renderPage(currentPage);
+        }
+        scheduleWarmUp();
+    }
+    
+    /**
+     * Adopt the document parked by the view this one replaces. The renderer is always
+     * reused; bitmaps only when they were rendered with the same settings.
+     */
+    private void onDocumentReattached(RetainedDocuments.Retained retained) {
+        boolean sameSettings = retained.continuous == continuousScrollMode
+                && retained.bestQuality == useBestQuality
+                && retained.spacing == spacing
+                && Arrays.equals(retained.pages, pages);
+        if (sameSettings) {
+            if (continuousScrollMode && retained.pageBitmaps != null) {
+                pageBitmaps.addAll(retained.pageBitmaps);
+                continuousLayout.adopt(retained.pageOffsets, retained.pageHeights, retained.totalContentHeight,
+                        (int) (retained.layoutWidth * retained.zoom));
+                layoutWidth = retained.layoutWidth;
+                pageAspects = retained.pageAspects;
+                estimatedPageAspect = retained.estimatedPageAspect;
+                scaleFactor = retained.zoom;
+                lastRenderedZoom = retained.zoom;
+                retained.pageBitmaps = null;
+            } else if (!continuousScrollMode && retained.pageCache != null && pageCache != null) {
+                pageCache.evictAll();
+                pageCache = retained.pageCache;
+                pageCache.resize(cacheCapacityForPressure());
+                pageCache.setMaxBytes(memoryQuota);
+                retained.pageCache = null;
+            }
+        }
+        retained.releaseBitmaps(); // whatever was not adopted
+        Log.d(TAG, "Reattached retained document, reusing bitmaps: " + sameSettings);
+        onDocumentOpened(retained.document);
+        if (pageAspects != null) {
+            measurePagesInBackground(pageAspects, null, 0); // finish what the old view had not measured
+        }
+    }
+    
+    /**
+     * Release the open document and everything rendered from it
+     */
+    private void closeDocument() {
+        if (textSearch != null) {
+            textSearch.clearCache(); // Cached text belongs to this document
+        }
+        
+        // Safely recycle current bitmap
+        if (currentBitmap != null && !currentBitmap.isRecycled()) {
+            currentBitmap.recycle();
+        }
+        currentBitmap = null;
+        
+        // Clear and recycle cached bitmaps
+        if (pageCache != null) {
+            pageCache.evictAll();
+        }
+        for (Bitmap bitmap : pageBitmaps) {
+            if (bitmap != null && !bitmap.isRecycled()) {
+                bitmap.recycle();
+            }
+        }
+        pageBitmaps.clear();
+        continuousLayout.clear();
+        pageRequests.newLayout();
+        zoomPyramid.clear();
+        scrubbing = false;
+        if (pageDisplayLists != null) {
+            pageDisplayLists.release();
+        }
+        layoutWidth = 0;
+        float[] aspects = pageAspects;
+        pageAspects = null;
+        reusedPageAspects = null;
+        anchorPage = -1;
+        
+        String sourceKey = documentSource != null ? documentSource.getKey() : null;
+        if (document != null && sourceKey != null && DocumentHandleCache.getMaxDocuments() > 0) {
+            // Keep it open in case the user comes back to it
+            document.cancelQueued(); // Renders queued for this view are of no use to anyone
+            DocumentHandleCache.Handle handle = new DocumentHandleCache.Handle();
+            handle.document = document;
+            handle.pages = pages;
+            handle.pageAspects = aspects;
+            handle.estimatedPageAspect = estimatedPageAspect;
+            DocumentHandleCache.put(sourceKey, handle);
+        } else if (document != null) {
+            document.close(); // Closes after the request in progress, off the UI thread
+        }
+        document = null;
+        totalPages = 0;
+    }
+    
+    /**
+     * Records configuration for a pending load. Chain options and finish with load();
+     * the document is opened and rendered once, with every option already applied.
+     */
+    public class Configurator {
+        
+        private final DocumentSource source;
+        // Setter calls, applied by load() once the previous document is closed
+        private final java.util.List<Runnable> options = new java.util.ArrayList<>();
+        
+        private Configurator(DocumentSource source) {
+            this.source = source;
+        }
+        
+        public Configurator enableSwipe(boolean enableSwipe) {
+            options.add(() -> PDFView.this.enableSwipe(enableSwipe));
+            return this;
+        }
+        
+        public Configurator continuousScroll(boolean continuousScroll) {
+            options.add(() -> PDFView.this.continuousScroll(continuousScroll));
+            return this;
+        }
+        
+        public Configurator swipeHorizontal(boolean swipeHorizontal) {
+            options.add(() -> PDFView.this.swipeHorizontal(swipeHorizontal));
+            return this;
+        }
+        
+        public Configurator enableDoubletap(boolean enableDoubletap) {
+            options.add(() -> PDFView.this.enableDoubletap(enableDoubletap));
+            return this;
+        }
+        
+        public Configurator enableAntialiasing(boolean enableAntialiasing) {
+            options.add(() -> PDFView.this.enableAntialiasing(enableAntialiasing));
+            return this;
+        }
+        
+        public Configurator setNightMode(boolean nightMode) {
+            options.add(() -> PDFView.this.setNightMode(nightMode));
+            return this;
+        }
+        
+        public Configurator useBestQuality(boolean useBestQuality) {
+            options.add(() -> PDFView.this.useBestQuality(useBestQuality));
+            return this;
+        }
+        
+        public Configurator compactMonochromePages(boolean compactMonochromePages) {
+            options.add(() -> PDFView.this.compactMonochromePages(compactMonochromePages));
+            return this;
+        }
+        
+        public Configurator spacing(int spacing) {
+            options.add(() -> PDFView.this.spacing(spacing));
+            return this;
+        }
+        
+        public Configurator setCacheSize(int cacheSize) {
+            options.add(() -> PDFView.this.setCacheSize(cacheSize));
+            return this;
+        }
+        
+        public Configurator defaultPage(int defaultPage) {
+            options.add(() -> PDFView.this.defaultPage(defaultPage));
+            return this;
+        }
+        
+        public Configurator fitPolicy(FitPolicy fitPolicy) {
+            options.add(() -> PDFView.this.fitPolicy(fitPolicy));
+            return this;
+        }
+        
+        public Configurator pages(int... pages) {
+            options.add(() -> PDFView.this.pages(pages));
+            return this;
+        }
+        
+        public Configurator enableAnnotationRendering(boolean enableAnnotationRendering) {
+            options.add(() -> PDFView.this.enableAnnotationRendering(enableAnnotationRendering));
+            return this;
+        }
+        
+        public Configurator scrollHandle(View scrollHandle) {
+            options.add(() -> PDFView.this.scrollHandle(scrollHandle));
+            return this;
+        }
+        
+        public Configurator autoSpacing(boolean autoSpacing) {
+            options.add(() -> PDFView.this.autoSpacing(autoSpacing));
+            return this;
+        }
+        
+        public Configurator pageFitPolicy(FitPolicy pageFitPolicy) {
+            options.add(() -> PDFView.this.pageFitPolicy(pageFitPolicy));
+            return this;
+        }
+        
+        public Configurator fitEachPage(boolean fitEachPage) {
+            options.add(() -> PDFView.this.fitEachPage(fitEachPage));
+            return this;
+        }
+        
+        public Configurator onLoad(OnLoadCompleteListener onLoadCompleteListener) {
+            options.add(() -> PDFView.this.onLoad(onLoadCompleteListener));
+            return this;
+        }
+        
+        public Configurator onPageChange(OnPageChangeListener onPageChangeListener) {
+            options.add(() -> PDFView.this.onPageChange(onPageChangeListener));
+            return this;
+        }
+        
+        public Configurator onError(OnErrorListener onErrorListener) {
+            options.add(() -> PDFView.this.onError(onErrorListener));
+            return this;
+        }
+        
+        public Configurator onFrameStats(OnFrameStatsListener onFrameStatsListener) {
+            options.add(() -> PDFView.this.onFrameStats(onFrameStatsListener));
+            return this;
+        }
+        
+        public Configurator onDownloadProgress(OnDownloadProgressListener onDownloadProgressListener) {
+            options.add(() -> PDFView.this.onDownloadProgress(onDownloadProgressListener));
+            return this;
+        }
+        
+        /**
+         * Open the recorded source and render it once with the configuration above
+         */
+        public void load() {
+            PDFView.this.load(source, options);
+        }
+    }
+    
+    // Navigation methods
+    public void jumpTo(int page) {
+        Log.d(TAG, "jumpTo called with page: " + page + ", totalPages: " + totalPages);
+        if (page >= 0 && page < totalPages) {
+            if (page != currentPage) {
+                scrollDirection = page > currentPage ? 1 : -1; // Warm up the way the reader is going
+            }
+            currentPage = page;
+            updateScrollHandle();
+            Log.d(TAG, "Jumping to page: " + currentPage);
+            renderPage(currentPage);
+            resetZoom();
+            
+            if (onPageChangeListener != null) {
+                onPageChangeListener.onPageChanged(currentPage, totalPages);
+            }
+        } else {
+            Log.w(TAG, "Invalid page number: " + page + " (total: " + totalPages + ")");
+        }
+    }
+    
+    public void jumpTo(int page, boolean withAnimation) {
+        if (withAnimation) {
+            // Simple fade animation for page changes
+            animate().alpha(0.5f).setDuration(150).withEndAction(() -> {
+                jumpTo(page);
+                animate().alpha(1.0f).setDuration(150).start();
+            }).start();
+        } else {
+            jumpTo(page);
+        }
+    }
 
     public int getCurrentPage() {
         return currentPage;
@@ -731,6 +1175,67 @@ public class PDFView extends FrameLayout {
     public int getPageCount() {
         return totalPages;
     }
+
+    /**
+     * Rendering counters for this view (bitmap allocations, peak bitmap bytes,
+     * renders per page), e.g. for checking a scroll or zoom scenario against a budget
+     */
+    public RenderStats getRenderStats() {
+        return renderStats;
+    }
+    
+    // Search methods
+    
+    /**
+     * Search the document text in the background, streaming matches page by page.
+     * Starts from the current page and wraps around. A new call cancels the previous search.
+     * Requires Android 15 (API 35); on older versions onError receives UnsupportedOperationException.
+     */
+    public void search(String query, OnSearchListener listener) {
+        if (query == null || query.trim().isEmpty()) {
+            cancelSearch();
+            return;
+        }
+        if (!PdfTextSearch.isSupported()) {
+            if (onErrorListener != null) {
+                onErrorListener.onError(new UnsupportedOperationException("Text search requires Android 15 (API 35)"));
+            }
+            return;
+        }
+        if (document == null) {
+            Log.w(TAG, "Cannot search - no document loaded");
+            return;
+        }
+        if (textSearch == null) {
+            // Search is driven from its own low-priority thread, created on first use
+            textSearch = new PdfTextSearch();
+        }
+        
+        Log.d(TAG, "Searching for: " + query);
+        textSearch.search(document, pages, totalPages, currentPage, query, listener);
+    }
+    
+    public void cancelSearch() {
+        if (textSearch != null) {
+            textSearch.cancel();
+        }
+    }
+    
+    /**
+     * Exporter for the loaded document, preset with the pages() selection.
+     * It opens the source again on its own, so stream sources cannot be exported this way.
+     */
+    public PdfExporter export() {
+        if (documentSource == null) {
+            throw new IllegalStateException("No document source - call from*() first");
+        }
+        PdfExporter exporter = new PdfExporter(getContext(), documentSource)
+                .enableAnnotationRendering(enableAnnotationRendering);
+        if (pages != null) {
+            exporter.pages(pages);
+        }
+        return exporter;
+    }
     
     // Zoom methods
     public void setMinZoom(float minZoom) {
@@ -807,7 +1312,7 @@ public class PDFView extends FrameLayout {
         // Apply pan limits (bitmaps are already at zoomed resolution)
         float viewWidth = getWidth();
         float viewHeight = getHeight();
-        float contentHeight = totalContentHeight; // Already at zoomed resolution
+        float contentHeight = continuousLayout.contentHeight(); // Already at zoomed resolution
         float contentWidth = viewWidth * scaleFactor;
         
         // Center horizontally if content is smaller than view
@@ -830,10 +1335,7 @@ public class PDFView extends FrameLayout {
         // This prevents pixelation when zooming in
         if (continuousScrollMode && Math.abs(scaleFactor - lastRenderedZoom) > 0.3f) {
             Log.d(TAG, "Zoom changed significantly (" + lastRenderedZoom + " -> " + scaleFactor + "), re-rendering for quality");
-            lastRenderedZoom = scaleFactor;
-            renderAllPages();
-        } else {
-            invalidate();
+            relayoutContinuousPages();
         }
         
         Log.d(TAG, "Zoom centered to " + zoom + " at pivot (" + pivotX + ", " + pivotY + "), pan: (" + panX + ", " + panY + ")");
@@ -841,42 +1343,36 @@ public class PDFView extends FrameLayout {
     
     // Utility methods
     public void recycle() {
-        // Safely recycle current bitmap
-        if (currentBitmap != null && !currentBitmap.isRecycled()) {
-            currentBitmap.recycle();
+        loadGeneration++; // Drop any load still in flight
+        cancelDownload();
+        if (textSearch != null) {
+            textSearch.shutdown();
+            textSearch = null;
+        }
+        if (!retainForConfigurationChange()) {
+            closeDocument();
         }
-        currentBitmap = null;
-        
-        // Clear and recycle cached bitmaps
         if (pageCache != null) {
-            pageCache.evictAll();
             pageCache = null;
         }
-        if (pdfRenderer != null) {
-            pdfRenderer.close();
-            pdfRenderer = null;
-        }
-        if (fileDescriptor != null) {
-            try {
-                fileDescriptor.close();
-            } catch (IOException e) {
-                Log.e(TAG, "Error closing file descriptor: " + e.getMessage());
-            }
-            fileDescriptor = null;
-        }
-        if (executorService != null) {
-            executorService.shutdown();
-            executorService = null;
+        if (renderLane != null) {
+            renderLane.release();
+            renderLane = null;
         }
     }
     
+    /**
+     * Build the continuous layout from scratch. Only the page shown first is measured
+     * here; every other page starts with an estimated height and is measured in the
+     * background, so the first page appears without waiting for the whole document.
+     */
     private void renderAllPages() {
-        if (pdfRenderer == null || getWidth() == 0 || getHeight() == 0) {
+        if (document == null || getWidth() == 0 || getHeight() == 0) {
             Log.w(TAG, "Cannot render all pages yet - waiting for layout");
             return;
         }
         
-        Log.d(TAG, "Rendering all " + totalPages + " pages for continuous scroll at zoom: " + scaleFactor);
+        Log.d(TAG, "Laying out " + totalPages + " pages for continuous scroll at zoom: " + scaleFactor);
         
         // Recycle old bitmaps to free memory
         for (Bitmap oldBitmap : pageBitmaps) {
@@ -884,184 +1380,1251 @@ public class PDFView extends FrameLayout {
                 oldBitmap.recycle();
             }
         }
+        zoomPyramid.clear();
         
         // Clear previous bitmaps
         pageBitmaps.clear();
-        pageOffsets.clear();
-        
-        float currentY = 0f;
-        float viewWidth = getWidth();
-        
-        for (int i = 0; i < totalPages; i++) {
-            try {
-                PdfRenderer.Page page = pdfRenderer.openPage(i);
-                
-                // Calculate bitmap size based on fit policy AND current zoom
-                // This ensures high quality at all zoom levels!
-                int width = (int) (viewWidth * scaleFactor);
-                int height = (int) (width * (float) page.getHeight() / page.getWidth());
-                
-                // Create bitmap at zoomed resolution for quality
-                Bitmap.Config config = useBestQuality ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
-                Bitmap bitmap = Bitmap.createBitmap(width, height, config);
-                
-                // Render the page at high resolution
-                int renderMode = enableAnnotationRendering ? 
-                    PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY : 
-                    PdfRenderer.Page.RENDER_MODE_FOR_PRINT;
-                page.render(bitmap, null, null, renderMode);
-                page.close();
-                
-                // Store bitmap and offset
-                pageBitmaps.add(bitmap);
-                pageOffsets.add(currentY);
-                
-                currentY += height + spacing;
-                
-                Log.d(TAG, "Rendered page " + i + " at offset " + pageOffsets.get(i));
-            } catch (Exception e) {
-                Log.e(TAG, "Error rendering page " + i + ": " + e.getMessage());
+        continuousLayout.clear();
+        pageRequests.newLayout();
+
+        boolean firstLayout = pageAspects == null || pageAspects.length != totalPages;
+        if (firstLayout) {
+            // A reopened document brings the sizes measured last time
+            boolean reused = reusedPageAspects != null && reusedPageAspects.length == totalPages;
+            pageAspects = reused ? reusedPageAspects : new float[totalPages];
+            reusedPageAspects = null;
+            final int firstPage = Math.max(0, Math.min(currentPage, totalPages - 1));
+            if (pageAspects[firstPage] == 0) {
+                // Measured on the document actor; the layout is built once the size is known
+                final float[] aspects = pageAspects;
+                final DocumentActor measuring = document;
+                pageAspects = null;
+                document.submit(firstPage, DocumentActor::measureAspect, (aspect, error) -> {
+                    if (document != measuring || pageAspects != null) {
+                        return; // Closed, or laid out by another pass meanwhile
+                    }
+                    if (error != null) {
+                        Log.e(TAG, "Error measuring page " + firstPage + ": " + error.getMessage());
+                        aspect = estimatedPageAspect;
+                    }
+                    aspects[firstPage] = aspect;
+                    estimatedPageAspect = aspect;
+                    reusedPageAspects = aspects;
+                    renderAllPages();
+                });
+                return;
+            }
+            if (anchorPage < 0) {
+                // Open at defaultPage
+                anchorPage = firstPage;
+                anchorPageFraction = 0f;
+                anchorPanXFraction = 0f;
             }
         }
+
+        // Calculate bitmap size based on fit policy AND current zoom
+        // This ensures high quality at all zoom levels!
+        int width = (int) (getWidth() * scaleFactor);
+        for (int i = 0; i < totalPages; i++) {
+            pageBitmaps.add(null);
+        }
+        continuousLayout.layout(totalPages, width, pageAspects, estimatedPageAspect, spacing);
+        layoutWidth = getWidth();
+        lastRenderedZoom = scaleFactor;
+        
+        // Scroll to defaultPage, a restored or a pre-resize position before rendering anything
+        applyScrollAnchor();
+        Log.d(TAG, "Continuous layout ready, estimated total height: " + continuousLayout.contentHeight());
         
-        totalContentHeight = currentY;
-        Log.d(TAG, "All pages rendered, total height: " + totalContentHeight);
+        // Visible pages go on the lane ahead of the measuring batches
+        requestVisiblePages(findFirstVisiblePage(), findLastVisiblePage());
+        if (firstLayout) {
+            // Sizes of a document seen for the first time are saved for the next open
+            String key = documentSource != null ? documentSource.getKey() : null;
+            boolean save = key != null && pages == null && !allPagesMeasured(pageAspects);
+            measurePagesInBackground(pageAspects, save ? new int[totalPages * 2] : null, 0);
+        }
         invalidate();
     }
-    
-    private void renderPage(int pageIndex) {
-        if (pdfRenderer == null || pageIndex < 0 || pageIndex >= totalPages) {
-            Log.e(TAG, "Cannot render page " + pageIndex + ": pdfRenderer=" + (pdfRenderer != null) + ", totalPages=" + totalPages);
+
+    /**
+     * Measure page sizes in small batches on the document actor, so renders requested
+     * meanwhile are not stuck behind a whole-document pass
+     * @param sizes Collects every page's width and height for the metadata sidecar,
+     *              written when the pass completes; null to only measure unknown pages
+     */
+    private void measurePagesInBackground(final float[] aspects, final int[] sizes, final int from) {
+        if (document == null) {
             return;
         }
-        
-        // Check cache first
-        Bitmap cachedBitmap = pageCache.get(pageIndex);
-        if (cachedBitmap != null && !cachedBitmap.isRecycled()) {
-            Log.d(TAG, "Using cached bitmap for page " + pageIndex);
-            post(() -> {
-                if (currentBitmap != null) {
-                    currentBitmap.recycle();
-                }
-                currentBitmap = cachedBitmap;
-                invalidate();
-            });
+        if (from >= aspects.length) {
+            if (sizes != null) {
+                savePageSizes(sizes);
+            }
             return;
         }
-        
-        executorService.execute(() -> {
-            try {
-                // Use custom page order if specified
-                int actualPageIndex = pageIndex;
-                if (pages != null && pageIndex < pages.length) {
-                    actualPageIndex = pages[pageIndex];
-                }
-                
-                Log.d(TAG, "Rendering page " + pageIndex + " (actual: " + actualPageIndex + ")");
-                PdfRenderer.Page page = pdfRenderer.openPage(actualPageIndex);
-                
-                // Calculate bitmap size based on fit policy
-                int viewWidth = getWidth();
-                int viewHeight = getHeight();
-                
-                // Check if view has valid dimensions
-                if (viewWidth <= 0 || viewHeight <= 0) {
-                    Log.w(TAG, "View dimensions not ready: " + viewWidth + "x" + viewHeight + ", skipping render");
-                    page.close(); // Close the page before returning
-                    return;
-                }
-                
-                int width, height;
-                
-                // Use pageFitPolicy if fitEachPage is enabled, otherwise use fitPolicy
-                FitPolicy currentFitPolicy = fitEachPage ? pageFitPolicy : fitPolicy;
-                
-                switch (currentFitPolicy) {
-                    case WIDTH:
-                        width = viewWidth;
-                        height = (int) (width * (float) page.getHeight() / page.getWidth());
-                        break;
-                    case HEIGHT:
-                        height = viewHeight;
-                        width = (int) (height * (float) page.getWidth() / page.getHeight());
-                        break;
-                    case BOTH:
-                    default:
-                        width = viewWidth;
-                        height = viewHeight;
-                        break;
-                }
-                
-                // Apply spacing if autoSpacing is enabled
-                if (autoSpacing) {
-                    // Reduce size to accommodate spacing
-                    width -= spacing * 2;
-                    height -= spacing * 2;
+        final int end = Math.min(aspects.length, from + ContinuousLayout.MEASURE_BATCH_SIZE);
+        final float[] known = Arrays.copyOfRange(aspects, from, end);
+        document.submit(renderer -> {
+            int[] measured = new int[known.length * 2];
+            for (int i = 0; i < known.length; i++) {
+                if (known[i] > 0 && sizes == null) {
+                    continue; // Already known
                 }
-                
-                // Ensure minimum dimensions
-                width = Math.max(width, 1);
-                height = Math.max(height, 1);
-                
-                Log.d(TAG, "Creating bitmap with dimensions: " + width + "x" + height + 
-                      " (view: " + viewWidth + "x" + viewHeight + ")");
-                
-                // Create bitmap with appropriate quality
-                Bitmap.Config config = useBestQuality ? Bitmap.Config.ARGB_8888 : Bitmap.Config.RGB_565;
-                Bitmap bitmap = Bitmap.createBitmap(width, height, config);
-                
-                // Render the page to the bitmap
-                // Use RENDER_MODE_FOR_DISPLAY for annotations, RENDER_MODE_FOR_PRINT to exclude them
-                int renderMode = enableAnnotationRendering ? 
-                    PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY : 
-                    PdfRenderer.Page.RENDER_MODE_FOR_PRINT;
-                page.render(bitmap, null, null, renderMode);
-                
-                // Close the page
-                page.close();
-                
-                // Update UI on main thread
-                post(() -> {
-                    // Safely replace current bitmap
-                    Bitmap oldBitmap = currentBitmap;
-                    
-                    // Set new bitmap BEFORE caching to prevent immediate recycling
-                    currentBitmap = bitmap;
-                    
-                    // Update matrix scale to fit the view
-                    updateMatrixScale();
-                    
-                    // Cache the bitmap AFTER setting as current
-                    pageCache.put(pageIndex, bitmap);
-                    
-                    // Recycle old bitmap after setting new one (but not if it's the same)
-                    if (oldBitmap != null && !oldBitmap.isRecycled() && oldBitmap != bitmap) {
-                        // Check if old bitmap is still in cache before recycling
-                        boolean inCache = false;
-                        for (int i = 0; i < pageCache.size(); i++) {
-                            if (pageCache.get(i) == oldBitmap) {
-                                inCache = true;
-                                break;
-                            }
-                        }
-                        if (!inCache) {
-                            Log.d(TAG, "Recycling old bitmap for page: " + pageIndex);
-                            oldBitmap.recycle();
-                        }
+                try {
+                    PdfRenderer.Page page = renderer.openPage(from + i);
+                    try {
+                        measured[i * 2] = page.getWidth();
+                        measured[i * 2 + 1] = page.getHeight();
+                    } finally {
+                        page.close();
                     }
-                    
-                    invalidate();
-                    Log.d(TAG, "Successfully rendered page: " + pageIndex);
-                });
-                
-            } catch (Exception e) {
-                Log.e(TAG, "Error rendering page " + pageIndex + ": " + e.getMessage());
-                if (onErrorListener != null) {
-                    post(() -> onErrorListener.onError(e));
+                } catch (Exception e) {
+                    Log.e(TAG, "Error measuring page " + (from + i) + ": " + e.getMessage());
                 }
             }
+            return measured;
+        }, (measured, error) -> {
+            if (error != null || pageAspects != aspects) {
+                return; // Document closed, or another layout owns the array now
+            }
+            float[] measuredAspects = new float[measured.length / 2];
+            for (int k = 0; k < measuredAspects.length; k++) {
+                if (measured[k * 2] > 0) {
+                    measuredAspects[k] = (float) measured[k * 2 + 1] / measured[k * 2];
+                }
+            }
+            if (sizes != null) {
+                System.arraycopy(measured, 0, sizes, from * 2, measured.length);
+            }
+            onPagesMeasured(from, measuredAspects);
+            measurePagesInBackground(aspects, sizes, end);
         });
     }
+
+    private static boolean allPagesMeasured(float[] aspects) {
+        for (float aspect : aspects) {
+            if (aspect <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Save the measured page sizes so the next open of this document lays out at once
+     */
+    private void savePageSizes(final int[] sizes) {
+        for (int size : sizes) {
+            if (size <= 0) {
+                return; // A page could not be measured - don't save a partial index
+            }
+        }
+        final String key = documentSource.getKey();
+        final DocumentActor measured = document;
+        final Context context = getContext().getApplicationContext();
+        PdfRenderEngine.getInstance().executeIo(() -> PageMetadataStore.write(context, key,
+                measured.getFileSize(), measured.getFingerprint(), sizes));
+    }
+
+    private void onPagesMeasured(int from, float[] measured) {
+        if (ContinuousLayout.applyMeasured(pageAspects, from, measured)) {
+            updateLayoutKeepingPosition();
+        }
+    }
+
+    /**
+     * Apply changed page heights while the content on screen stays where it is:
+     * the first visible page keeps its distance from the top of the view
+     */
+    private void updateLayoutKeepingPosition() {
+        if (continuousLayout.isEmpty() || continuousLayout.pageWidth() <= 0) {
+            return;
+        }
+        panY = -continuousLayout.layoutKeepingPosition(pageAspects, estimatedPageAspect, spacing, -panY, getHeight());
+        invalidate();
+    }
+
+    /**
+     * Render one open page for continuous mode at the given bitmap width, as ARGB_8888 -
+     * the only config PdfRenderer renders into. Runs on the document actor.
+     */
+    private Bitmap renderContinuousBitmap(PdfRenderer.Page page, int width) {
+        int height = Math.max(1, (int) (width * DocumentActor.measureAspect(page)));
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        renderStats.onBitmapAllocated(width, height, 4);
+
+        // Render the page at high resolution
+        int renderMode = enableAnnotationRendering ?
+            PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY :
+            PdfRenderer.Page.RENDER_MODE_FOR_PRINT;
+        bitmap.eraseColor(Color.WHITE); // Paper PdfRenderer leaves unpainted is transparent otherwise
+        long start = SystemClock.uptimeMillis();
+        page.render(bitmap, null, null, renderMode);
+        qualityGovernor.recordRender(width, height, SystemClock.uptimeMillis() - start);
+        renderStats.onPageRendered(page.getIndex());
+        return compact(bitmap);
+    }
+    
+    /**
+     * Store a freshly rendered page as a mask if it has no color. Runs on the document actor.
+     */
+    private Bitmap compact(Bitmap bitmap) {
+        if (!compactMonochromePages) {
+            return bitmap;
+        }
+        Bitmap compacted = MonochromePages.compact(bitmap);
+        if (compacted != bitmap) {
+            renderStats.onBitmapAllocated(compacted.getWidth(), compacted.getHeight(), 1);
+        }
+        return compacted;
+    }
+    
+    private Paint paintFor(Bitmap bitmap) {
+        return MonochromePages.isMask(bitmap) ? maskPaint : paint;
+    }
+
+    /**
+     * Re-render a continuous page that is missing (e.g. dropped under memory pressure)
+     */
+    private void requestContinuousPage(final int index) {
+        if (document == null || continuousLayout.pageWidth() <= 0) {
+            return;
+        }
+        if (!pageRequests.start(index)) {
+            return; // Already queued, or failed for this layout
+        }
+
+        final int generation = pageRequests.generation();
+        final int height = (int) continuousLayout.height(index);
+        final int width = qualityGovernor.renderWidth(continuousLayout.pageWidth(), height, memoryQuota, useBestQuality);
+        document.submit(index, page -> renderContinuousBitmap(page, width), (rendered, error) -> {
+            pageRequests.finished(index);
+            if (!pageRequests.isCurrent(generation) || index >= pageBitmaps.size()) {
+                // Layout changed while rendering - result is stale
+                if (rendered != null) {
+                    rendered.recycle();
+                }
+                return;
+            }
+            if (error != null) {
+                // Keep drawing what is there (stretched or a preview); onDraw would
+                // otherwise ask for the same failing render every frame
+                Log.e(TAG, "Error re-rendering page " + index + ": " + error.getMessage());
+                if (!(error instanceof CancellationException)) {
+                    pageRequests.failed(index, generation);
+                }
+                return;
+            }
+            // The bitmap it replaces (stale or stretched) leaves the screen only now,
+            // and is kept as a zoom level for coming back to its zoom
+            Bitmap old = pageBitmaps.set(index, rendered);
+            frameMonitor.onRender();
+            if (old != null && old != rendered) {
+                zoomPyramid.put(index, old, layoutWidth);
+            }
+            if (rendered != null && pageAspects != null && pageAspects[index] == 0) {
+                // Rendered before its batch was measured - the bitmap has the real size
+                pageAspects[index] = (float) rendered.getHeight() / rendered.getWidth();
+                updateLayoutKeepingPosition();
+            }
+            trimContinuousPages();
+            renderStats.onBitmapsHeld(continuousBitmapBytes());
+            invalidate();
+        });
+    }
+
+    /**
+     * Lay out continuous pages again for a new width or zoom without dropping anything.
+     * Geometry comes from the page aspects, existing bitmaps are drawn stretched
+     * into their new rects, and onDraw re-renders the visible ones sharp.
+     */
+    private void relayoutContinuousPages() {
+        if (continuousLayout.pageWidth() <= 0 || getWidth() == 0) {
+            renderAllPages();
+            return;
+        }
+        if (getWidth() != layoutWidth) {
+            zoomPyramid.clear(); // Levels are relative to the old fit width
+        }
+        int width = (int) (getWidth() * scaleFactor);
+        continuousLayout.layout(continuousLayout.size(), width, pageAspects, estimatedPageAspect, spacing);
+        layoutWidth = getWidth();
+        lastRenderedZoom = scaleFactor;
+        
+        // Renders still in flight were sized for the old layout
+        pageRequests.newLayout();
+        
+        applyScrollAnchor();
+        Log.d(TAG, "Re-laid out " + continuousLayout.size() + " pages at width " + width + ", total height: " + continuousLayout.contentHeight());
+        invalidate();
+    }
+
+    /**
+     * Queue renders for visible pages that are missing or stretched, starting with the
+     * page under the middle of the viewport and working outward, then for the pages
+     * just outside the viewport while they fit the quota and memory is not short
+     */
+    private void requestVisiblePages(int first, int last) {
+        continuousLayout.visitRequests(first, last, -panY, getHeight(),
+                memoryPressure == PRESSURE_NONE ? ContinuousLayout.PREFETCH_DISTANCE : 0,
+                memoryQuota, useBestQuality, this::requestIfNotSharp);
+    }
+
+    /**
+     * Request a page that is missing, stretched from an older layout, or below the
+     * quality the governor would pick for it now
+     */
+    private void requestIfNotSharp(int index) {
+        Bitmap bitmap = pageBitmaps.get(index);
+        if (isSharp(index, bitmap)) {
+            return;
+        }
+        // Until the exact render arrives, draw the closest zoom level already rendered
+        Bitmap closer = zoomPyramid.takeCloser(index,
+                bitmap != null && !bitmap.isRecycled() ? bitmap.getWidth() : 0, continuousLayout.pageWidth());
+        if (closer != null) {
+            pageBitmaps.set(index, closer);
+            if (bitmap != null) {
+                zoomPyramid.put(index, bitmap, layoutWidth);
+            }
+            if (isSharp(index, closer)) {
+                return;
+            }
+        }
+        requestContinuousPage(index);
+    }
+
+    private boolean isSharp(int index, Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return false;
+        }
+        int height = (int) continuousLayout.height(index);
+        int width = qualityGovernor.renderWidth(continuousLayout.pageWidth(), height, memoryQuota, useBestQuality);
+        return bitmap.getWidth() >= width && bitmap.getWidth() <= continuousLayout.pageWidth();
+    }
+
+    /**
+     * Page under the middle of the viewport, among the visible pages first..last
+     */
+    private int findMiddlePage(int first, int last) {
+        return continuousLayout.middle(first, last, -panY, getHeight());
+    }
+
+    /**
+     * First page intersecting the viewport in continuous mode
+     */
+    private int findFirstVisiblePage() {
+        return continuousLayout.firstVisible(-panY);
+    }
+
+    /**
+     * Last page intersecting the viewport in continuous mode
+     */
+    private int findLastVisiblePage() {
+        return Math.min(continuousLayout.lastVisible(-panY, getHeight()), pageBitmaps.size() - 1);
+    }
+
+    // Scroll handle scrubbing
+
+    private boolean onScrollHandleTouch(View handle, MotionEvent event) {
+        if (document == null || totalPages == 0) {
+            return false;
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                int[] location = new int[2];
+                getLocationOnScreen(location);
+                scrubViewTop = location[1];
+                scrubbing = true;
+                if (getParent() != null) {
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                }
+                scrubTo(event.getRawY() - scrubViewTop);
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                scrubTo(event.getRawY() - scrubViewTop);
+                return true;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                endScrub();
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Move to the document position matching a touch at y (in this view)
+     */
+    private void scrubTo(float y) {
+        float handleHeight = scrollHandle.getHeight();
+        float track = Math.max(1, getHeight() - handleHeight);
+        float fraction = Math.max(0, Math.min(1, (y - handleHeight / 2f) / track));
+        if (continuousScrollMode && !continuousLayout.isEmpty()) {
+            panY = -fraction * Math.max(0, continuousLayout.contentHeight() - getHeight());
+            scrubPage = findMiddlePage(findFirstVisiblePage(), findLastVisiblePage());
+        } else {
+            scrubPage = Math.round(fraction * (totalPages - 1));
+        }
+        updateScrollHandle();
+        invalidate();
+    }
+
+    private void endScrub() {
+        if (!scrubbing) {
+            return;
+        }
+        scrubbing = false;
+        Log.d(TAG, "Scrub ended on page " + scrubPage);
+        if (!continuousScrollMode && scrubPage != currentPage) {
+            jumpTo(scrubPage); // Renders the page at full quality
+        } else {
+            if (scrubPage != currentPage) {
+                currentPage = scrubPage;
+                if (onPageChangeListener != null) {
+                    onPageChangeListener.onPageChanged(currentPage, totalPages);
+                }
+            }
+            invalidate(); // onDraw now renders the pages on screen at full quality
+        }
+        updateScrollHandle();
+        scheduleWarmUp();
+    }
+
+    /**
+     * Visible pages need renders: full quality normally, previews while scrubbing
+     */
+    private void requestPagesFor(int first, int last) {
+        for (int i = first; i <= last; i++) {
+            if (isMissing(i)) {
+                frameMonitor.onCacheMiss(); // Drawn blank in this frame
+            }
+        }
+        if (scrubbing) {
+            requestScrubPreview(first, last);
+        } else {
+            requestVisiblePages(first, last);
+        }
+    }
+
+    /**
+     * While scrubbing, render one low-res preview at a time for a visible page that has
+     * nothing to show, starting from the middle. Pages only passed on the way get nothing,
+     * so a fast drag through a long document costs a handful of small renders.
+     */
+    private void requestScrubPreview(int first, int last) {
+        if (previewPending || document == null || continuousLayout.pageWidth() <= 0) {
+            return;
+        }
+        int middle = findMiddlePage(first, last);
+        int index = -1;
+        for (int d = 0; index < 0 && (middle - d >= first || middle + d <= last); d++) {
+            if (middle - d >= first && isMissing(middle - d)) {
+                index = middle - d;
+            } else if (middle + d <= last && isMissing(middle + d)) {
+                index = middle + d;
+            }
+        }
+        if (index >= 0) {
+            requestPreview(index);
+        }
+    }
+
+    /**
+     * Render a low-res preview into an empty page slot
+     */
+    private void requestPreview(final int page) {
+        previewPending = true;
+        final int generation = pageRequests.generation();
+        final int width = Math.max(1, continuousLayout.pageWidth() / SCRUB_PREVIEW_DIVISOR);
+        document.submit(page, p -> renderContinuousBitmap(p, width), (preview, error) -> {
+            previewPending = false;
+            if (preview == null) {
+                if (error != null) {
+                    Log.e(TAG, "Error rendering preview of page " + page + ": " + error.getMessage());
+                    if (!(error instanceof CancellationException)) {
+                        pageRequests.failed(page, generation); // Like a failed full render
+                    }
+                }
+                return; // Scrubbing asks again on the next drag step
+            }
+            if (!pageRequests.isCurrent(generation) || page >= pageBitmaps.size() || !isMissing(page)) {
+                preview.recycle();
+            } else {
+                pageBitmaps.set(page, preview);
+                frameMonitor.onRender();
+                trimContinuousPages();
+            }
+            invalidate();
+        });
+    }
+
+    /**
+     * Size of the bitmap requestPreview renders, sized the way renderContinuousBitmap sizes it,
+     * so warm-up never queues a preview that trimContinuousPages drops right away
+     */
+    private long previewBytes(int index) {
+        int width = Math.max(1, continuousLayout.pageWidth() / SCRUB_PREVIEW_DIVISOR);
+        float aspect = continuousLayout.height(index) / continuousLayout.pageWidth();
+        return (long) width * Math.max(1, (int) (width * aspect)) * 4; // ARGB_8888
+    }
+
+    private boolean isMissing(int index) {
+        Bitmap bitmap = pageBitmaps.get(index);
+        return bitmap == null || bitmap.isRecycled();
+    }
+
+    /**
+     * Place the scroll handle along the right edge to match the scroll position
+     */
+    private void updateScrollHandle() {
+        if (scrollHandle == null || getHeight() == 0) {
+            return;
+        }
+        float fraction;
+        if (continuousScrollMode) {
+            float maxPanY = continuousLayout.contentHeight() - getHeight();
+            fraction = maxPanY > 0 ? -panY / maxPanY : 0;
+        } else {
+            int page = scrubbing ? scrubPage : currentPage;
+            fraction = totalPages > 1 ? (float) page / (totalPages - 1) : 0;
+        }
+        float track = Math.max(0, getHeight() - scrollHandle.getHeight());
+        scrollHandle.setTranslationY(Math.max(0, Math.min(1, fraction)) * track);
+    }
+
+    /**
+     * Page number bubble next to the handle while scrubbing
+     */
+    private void drawScrubLabel(Canvas canvas) {
+        if (!scrubbing || scrollHandle == null) {
+            return;
+        }
+        if (scrubLabelPaint == null) {
+            float density = getResources().getDisplayMetrics().density;
+            scrubLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            scrubLabelPaint.setColor(Color.WHITE);
+            scrubLabelPaint.setTextSize(16 * density);
+            scrubLabelPaint.setTextAlign(Paint.Align.CENTER);
+            scrubLabelBackground = new Paint(Paint.ANTI_ALIAS_FLAG);
+            scrubLabelBackground.setColor(0xCC000000);
+        }
+        String label = (scrubPage + 1) + " / " + totalPages;
+        float padding = scrubLabelPaint.getTextSize() / 2f;
+        float width = scrubLabelPaint.measureText(label) + padding * 2;
+        float height = scrubLabelPaint.getTextSize() + padding * 2;
+        float right = scrollHandle.getLeft() - padding;
+        float centerY = scrollHandle.getTop() + scrollHandle.getTranslationY() + scrollHandle.getHeight() / 2f;
+        scrubLabelRect.set(right - width, centerY - height / 2f, right, centerY + height / 2f);
+        canvas.drawRoundRect(scrubLabelRect, padding, padding, scrubLabelBackground);
+        canvas.drawText(label, scrubLabelRect.centerX(),
+                centerY - (scrubLabelPaint.ascent() + scrubLabelPaint.descent()) / 2f, scrubLabelPaint);
+    }
+
+    // Idle warm-up
+
+    private void scheduleWarmUp() {
+        if (!warmUpScheduled && document != null) {
+            warmUpScheduled = true;
+            Looper.myQueue().addIdleHandler(warmUpIdleHandler);
+        }
+    }
+
+    /**
+     * Called when the UI thread goes idle. Queues at most one render and waits for the
+     * next idle moment before the next, so input is never stuck behind warm-up work.
+     * @return false once there is nothing left to warm up
+     */
+    private boolean warmUpStep() {
+        if (document == null || getWindowVisibility() != VISIBLE
+                || memoryPressure != PRESSURE_NONE) {
+            return false;
+        }
+        if (scrubbing || qualityGovernor.isInteracting()) {
+            return true; // Paused; the idle after the quality upgrade resumes it
+        }
+        return continuousScrollMode ? warmUpContinuous() : warmUpSinglePage();
+    }
+
+    private boolean warmUpContinuous() {
+        if (pageBitmaps.isEmpty() || getHeight() == 0) {
+            return false;
+        }
+        if (!pageRequests.isIdle() || previewPending) {
+            return true; // Wait until the lane is free
+        }
+        int first = findFirstVisiblePage();
+        int last = findLastVisiblePage();
+        long bytes = continuousBitmapBytes() + zoomPyramid.bytes();
+        // Full-quality pages ahead in the scroll direction, past what requestVisiblePages prefetches
+        for (int d = 1; d <= ContinuousLayout.PREFETCH_DISTANCE + WARM_UP_PAGES + WARM_UP_PREVIEWS; d++) {
+            int index = scrollDirection > 0 ? last + d : first - d;
+            if (index < 0 || index >= pageBitmaps.size()) {
+                return false;
+            }
+            boolean preview = d > ContinuousLayout.PREFETCH_DISTANCE + WARM_UP_PAGES;
+            if (pageRequests.hasFailed(index)
+                    || (preview ? !isMissing(index) : isSharp(index, pageBitmaps.get(index)))) {
+                continue; // A failed page would otherwise stop warm-up right there
+            }
+            long cost = preview ? previewBytes(index) : continuousLayout.pageBytes(index, useBestQuality);
+            if (bytes + cost > memoryQuota) {
+                return false; // Anything more would only be trimmed again
+            }
+            Log.d(TAG, "Warm-up: " + (preview ? "preview of" : "rendering") + " page " + index);
+            if (preview) {
+                requestPreview(index);
+            } else {
+                requestContinuousPage(index);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean warmUpSinglePage() {
+        if (singleWarmUpPending) {
+            return true;
+        }
+        // Next page in reading direction first, then the one before
+        for (int page : new int[]{currentPage + scrollDirection, currentPage - scrollDirection}) {
+            if (page < 0 || page >= totalPages) {
+                continue;
+            }
+            Bitmap cached = pageCache.get(page);
+            if (cached != null && !cached.isRecycled() && matchesViewSize(cached)) {
+                continue;
+            }
+            if (pageCache.bytes() + (long) getWidth() * getHeight() * 4 > memoryQuota) {
+                return false;
+            }
+            Log.d(TAG, "Warm-up: rendering page " + page + " into the cache");
+            singleWarmUpPending = true;
+            renderPage(page, false);
+            return true;
+        }
+        return false;
+    }
+
+    // Memory pressure handling
+
+    private class MemoryCallbacks implements ComponentCallbacks2 {
+        @Override
+        public void onTrimMemory(int level) {
+            int stage;
+            if (level >= TRIM_MEMORY_MODERATE || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+                stage = PRESSURE_VISIBLE_ONLY;
+            } else if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_LOW) {
+                stage = PRESSURE_SHRINK_CACHE;
+            } else if (level >= TRIM_MEMORY_RUNNING_MODERATE) {
+                stage = PRESSURE_NO_PREFETCH;
+            } else {
+                return;
+            }
+            post(() -> {
+                if (stage >= PRESSURE_SHRINK_CACHE) {
+                    DocumentHandleCache.closeAll(); // Documents nobody shows are the first to go
+                }
+                onMemoryPressure(stage);
+            });
+        }
+
+        @Override
+        public void onLowMemory() {
+            post(() -> {
+                DocumentHandleCache.closeAll();
+                onMemoryPressure(PRESSURE_VISIBLE_ONLY);
+            });
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+            // Not relevant for memory handling
+        }
+    }
+
+    private void onMemoryPressure(int stage) {
+        if (stage > memoryPressure) {
+            Log.d(TAG, "Memory pressure raised: " + memoryPressure + " -> " + stage);
+            memoryPressure = stage;
+            applyMemoryPressure();
+        }
+        // Restart the relax countdown - pressure is still present
+        removeCallbacks(relaxMemoryPressure);
+        postDelayed(relaxMemoryPressure, PRESSURE_RELAX_DELAY_MS);
+    }
+
+    /**
+     * Step back one stage at a time once pressure has stopped, while visible
+     */
+    private void relaxMemoryPressure() {
+        if (memoryPressure == PRESSURE_NONE) {
+            return;
+        }
+        if (getWindowVisibility() != VISIBLE) {
+            // Still in background - grow back only once the user can see us again
+            return;
+        }
+        memoryPressure--;
+        Log.d(TAG, "Memory pressure relaxed to: " + memoryPressure);
+        applyMemoryPressure();
+        if (memoryPressure > PRESSURE_NONE) {
+            postDelayed(relaxMemoryPressure, PRESSURE_RELAX_DELAY_MS);
+        } else if (continuousScrollMode) {
+            // Pressure is gone - refill nearby pages as they are drawn again
+            invalidate();
+        }
+    }
+
+    private void applyMemoryPressure() {
+        if (pageCache != null) {
+            pageCache.resize(cacheCapacityForPressure());
+        }
+        trimContinuousPages();
+        invalidate();
+    }
+
+    private int cacheCapacityForPressure() {
+        switch (memoryPressure) {
+            case PRESSURE_VISIBLE_ONLY:
+                return 1;
+            case PRESSURE_SHRINK_CACHE:
+                return Math.max(1, cacheSize / 2);
+            default:
+                return cacheSize;
+        }
+    }
+
+    private long continuousBitmapBytes() {
+        long bytes = 0;
+        for (Bitmap bitmap : pageBitmaps) {
+            if (bitmap != null && !bitmap.isRecycled()) {
+                bytes += bitmap.getAllocationByteCount();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Drop continuous pages outside the window allowed by the current pressure stage
+     */
+    private void trimContinuousPages() {
+        if (pageBitmaps.isEmpty()) {
+            return;
+        }
+        int keepDistance;
+        switch (memoryPressure) {
+            case PRESSURE_NONE:
+                keepDistance = Integer.MAX_VALUE;
+                break;
+            case PRESSURE_NO_PREFETCH:
+                keepDistance = ContinuousLayout.PREFETCH_DISTANCE;
+                break;
+            case PRESSURE_SHRINK_CACHE:
+                keepDistance = 1;
+                break;
+            default:
+                keepDistance = 0;
+                break;
+        }
+
+        // Walk outward from the viewport: visible pages always stay, the rest stay
+        // while inside the pressure window and this view's share of the memory budget
+        int first = findFirstVisiblePage();
+        int last = findLastVisiblePage();
+        int count = pageBitmaps.size();
+        // Zoom levels get a slice of the quota while there is no pressure, nothing otherwise
+        zoomPyramid.trim(memoryPressure == PRESSURE_NONE ? memoryQuota / PYRAMID_QUOTA_DIVISOR : 0, first, last);
+        long keptBytes = zoomPyramid.bytes();
+        for (int i = first; i <= last; i++) {
+            Bitmap bitmap = pageBitmaps.get(i);
+            if (bitmap != null && !bitmap.isRecycled()) {
+                keptBytes += bitmap.getAllocationByteCount();
+            }
+        }
+        int dropped = ContinuousLayout.trim(first, last, count, keepDistance, keptBytes, memoryQuota, i -> {
+            Bitmap bitmap = pageBitmaps.get(i);
+            return bitmap == null ? -1 : bitmap.isRecycled() ? 0 : bitmap.getAllocationByteCount();
+        }, i -> {
+            Bitmap bitmap = pageBitmaps.set(i, null);
+            if (!bitmap.isRecycled()) {
+                bitmap.recycle();
+            }
+        });
+        if (dropped > 0) {
+            Log.d(TAG, "Dropped " + dropped + " off-screen pages (pressure stage " + memoryPressure
+                    + ", quota " + (memoryQuota / 1024) + "KB)");
+        }
+    }
+
+    /**
+     * The render engine re-splits its budget as views come and go
+     */
+    private void onMemoryQuotaChanged(long bytes) {
+        Log.d(TAG, "Memory quota: " + (bytes / 1024) + "KB");
+        memoryQuota = bytes;
+        if (pageCache != null) {
+            pageCache.setMaxBytes(bytes);
+        }
+        trimContinuousPages();
+        invalidate();
+    }
+
+    // Configuration changes
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        SavedState state = new SavedState(super.onSaveInstanceState());
+        if (document == null && pendingRestore != null) {
+            // Recreated again before the document opened - pass the old position on
+            state.copyFrom(pendingRestore);
+            return state;
+        }
+        state.zoom = scaleFactor;
+        state.page = currentPage;
+        state.panX = panX;
+        state.panY = panY;
+        if (continuousScrollMode && !continuousLayout.isEmpty()) {
+            boolean pending = anchorPage >= 0;
+            if (!pending) {
+                captureScrollAnchor();
+            }
+            state.page = anchorPage;
+            state.pageFraction = anchorPageFraction;
+            state.panXFraction = anchorPanXFraction;
+            if (!pending) {
+                anchorPage = -1;
+            }
+        }
+        return state;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        SavedState saved = (SavedState) state;
+        super.onRestoreInstanceState(saved.getSuperState());
+
+        if (document == null) {
+            // Applied in onDocumentOpened
+            pendingRestore = saved;
+            return;
+        }
+        applyRestoredState(saved);
+        if (continuousScrollMode) {
+            if (pageBitmaps.isEmpty()) {
+                renderAllPages();
+            } else if (scaleFactor != lastRenderedZoom) {
+                relayoutContinuousPages();
+            } else {
+                applyScrollAnchor();
+                invalidate();
+            }
+        } else {
+            renderPage(currentPage);
+        }
+    }
+
+    private void applyRestoredState(SavedState saved) {
+        currentPage = Math.max(0, Math.min(saved.page, totalPages - 1));
+        scaleFactor = Math.max(minZoom, Math.min(maxZoom, saved.zoom));
+        if (continuousScrollMode) {
+            anchorPage = currentPage;
+            anchorPageFraction = saved.pageFraction;
+            anchorPanXFraction = saved.panXFraction;
+        } else {
+            panX = saved.panX;
+            panY = saved.panY;
+        }
+        Log.d(TAG, "Restored state - page: " + currentPage + ", zoom: " + scaleFactor);
+    }
+
+    /**
+     * Remember the scroll position as the first visible page plus a fraction into it,
+     * which survives a layout at a different width or zoom
+     */
+    private void captureScrollAnchor() {
+        if (continuousLayout.isEmpty()) {
+            return;
+        }
+        int page = findFirstVisiblePage();
+        anchorPage = page;
+        anchorPageFraction = (-panY - continuousLayout.offset(page)) / Math.max(1f, continuousLayout.height(page));
+        float contentWidth = layoutWidth * lastRenderedZoom;
+        anchorPanXFraction = contentWidth > 0 ? panX / contentWidth : 0f;
+    }
+
+    private void applyScrollAnchor() {
+        if (anchorPage < 0) {
+            return;
+        }
+        if (anchorPage < continuousLayout.size()) {
+            float viewWidth = getWidth();
+            float contentWidth = viewWidth * scaleFactor;
+            float maxPanX = Math.max(0, (contentWidth - viewWidth) / 2f);
+            float maxPanY = Math.max(0, continuousLayout.contentHeight() - getHeight());
+            float top = continuousLayout.offset(anchorPage) + anchorPageFraction * continuousLayout.height(anchorPage);
+            panX = Math.max(-maxPanX, Math.min(maxPanX, anchorPanXFraction * contentWidth));
+            panY = Math.max(-maxPanY, Math.min(0, -top));
+        }
+        anchorPage = -1;
+        updateScrollHandle();
+    }
+
+    /**
+     * Park the open document and its bitmaps if the activity is only being recreated,
+     * so the new PDFView picks them up instead of reopening and re-rendering
+     */
+    private boolean retainForConfigurationChange() {
+        if (document == null || documentSource == null) {
+            return false;
+        }
+        Activity activity = findActivity();
+        if (activity == null || !activity.isChangingConfigurations()) {
+            return false;
+        }
+        String key = retainKey(documentSource);
+        if (key == null) {
+            return false;
+        }
+
+        RetainedDocuments.Retained retained = new RetainedDocuments.Retained();
+        document.cancelQueued(); // The new view requests what it needs itself
+        retained.document = document;
+        retained.continuous = continuousScrollMode;
+        retained.bestQuality = useBestQuality;
+        retained.pages = pages;
+        retained.spacing = spacing;
+        retained.zoom = lastRenderedZoom;
+        if (continuousScrollMode && !pageBitmaps.isEmpty()) {
+            retained.pageBitmaps = new java.util.ArrayList<>(pageBitmaps);
+            retained.pageOffsets = new java.util.ArrayList<>(continuousLayout.offsets());
+            retained.pageHeights = new java.util.ArrayList<>(continuousLayout.heights());
+            retained.totalContentHeight = continuousLayout.contentHeight();
+            retained.layoutWidth = layoutWidth;
+            retained.pageAspects = pageAspects;
+            retained.estimatedPageAspect = estimatedPageAspect;
+        }
+        if (pageCache != null) {
+            if (currentBitmap != null && !pageCache.containsBitmap(currentBitmap) && !currentBitmap.isRecycled()) {
+                currentBitmap.recycle();
+            }
+            pageCache.setPinned(null);
+            retained.pageCache = pageCache;
+            pageCache = null;
+        }
+
+        // Ownership has moved - forget everything without closing or recycling it
+        zoomPyramid.clear(); // Zoom levels are not handed over
+        if (pageDisplayLists != null) {
+            pageDisplayLists.release();
+        }
+        currentBitmap = null;
+        pageBitmaps.clear();
+        continuousLayout.clear();
+        pageRequests.newLayout();
+        document = null;
+        totalPages = 0;
+
+        RetainedDocuments.park(key, retained);
+        return true;
+    }
+
+    /**
+     * Key shared by this view and its replacement: view id plus document identity
+     */
+    private String retainKey(DocumentSource source) {
+        String sourceKey = source.getKey();
+        if (sourceKey == null || getId() == NO_ID) {
+            return null;
+        }
+        return getId() + "/" + sourceKey;
+    }
+
+    private void attachFrameMonitor() {
+        Activity activity = findActivity();
+        if (activity != null) {
+            frameMonitor.attach(activity.getWindow());
+        }
+    }
+
+    private Activity findActivity() {
+        Context context = getContext();
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) {
+                return (Activity) context;
+            }
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    /**
+     * Page, zoom and pan kept across activity recreation
+     */
+    static class SavedState extends BaseSavedState {
+        int page;
+        float zoom = 1.0f;
+        float panX, panY;         // single page mode
+        float pageFraction;       // continuous mode: how far into the page the viewport starts
+        float panXFraction;       // continuous mode: horizontal pan relative to content width
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        private SavedState(Parcel in) {
+            super(in);
+            page = in.readInt();
+            zoom = in.readFloat();
+            panX = in.readFloat();
+            panY = in.readFloat();
+            pageFraction = in.readFloat();
+            panXFraction = in.readFloat();
+        }
+
+        void copyFrom(SavedState other) {
+            page = other.page;
+            zoom = other.zoom;
+            panX = other.panX;
+            panY = other.panY;
+            pageFraction = other.pageFraction;
+            panXFraction = other.panXFraction;
+        }
+
+        @Override
+        public void writeToParcel(Parcel out, int flags) {
+            super.writeToParcel(out, flags);
+            out.writeInt(page);
+            out.writeFloat(zoom);
+            out.writeFloat(panX);
+            out.writeFloat(panY);
+            out.writeFloat(pageFraction);
+            out.writeFloat(panXFraction);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getContext().getApplicationContext().registerComponentCallbacks(memoryCallbacks);
+        DisplayMetrics metrics = getResources().getDisplayMetrics();
+        Display display = getDisplay();
+        qualityGovernor.setDisplay(display != null ? display.getRefreshRate() : 0,
+                Math.max(metrics.widthPixels, metrics.heightPixels));
+        frameMonitor.setRefreshRate(display != null ? display.getRefreshRate() : 0);
+        if (frameMonitor.hasListener()) {
+            attachFrameMonitor();
+        }
+        if (renderLane != null) {
+            renderLane.setVisible(getWindowVisibility() == VISIBLE);
+        }
+    }
+
+    @Override
+    protected void onWindowVisibilityChanged(int visibility) {
+        super.onWindowVisibilityChanged(visibility);
+        if (renderLane != null) {
+            // Visible views are scheduled first and get most of the shared budget
+            renderLane.setVisible(visibility == VISIBLE);
+        }
+        if (visibility == VISIBLE && memoryPressure > PRESSURE_NONE) {
+            // Back in front - start growing back gradually
+            removeCallbacks(relaxMemoryPressure);
+            postDelayed(relaxMemoryPressure, PRESSURE_RELAX_DELAY_MS);
+        }
+    }
+    
+    private void renderPage(int pageIndex) {
+        renderPage(pageIndex, true);
+    }
+    
+    /**
+     * @param show False to only render into the cache (idle warm-up)
+     */
+    private void renderPage(int pageIndex, boolean show) {
+        if (document == null || pageIndex < 0 || pageIndex >= totalPages) {
+            Log.e(TAG, "Cannot render page " + pageIndex + ": document=" + (document != null) + ", totalPages=" + totalPages);
+            return;
+        }
+        
+        // Check cache first - entries rendered for another view size are replaced
+        Bitmap cachedBitmap = pageCache.get(pageIndex);
+        if (cachedBitmap != null && !cachedBitmap.isRecycled() && matchesViewSize(cachedBitmap)) {
+            Log.d(TAG, "Using cached bitmap for page " + pageIndex);
+            if (show) {
+                post(() -> showSinglePageBitmap(cachedBitmap));
+            } else {
+                singleWarmUpPending = false;
+            }
+            return;
+        }
+        if (show) {
+            frameMonitor.onCacheMiss(); // The page stays blank or stale until the render arrives
+        }
+        
+        // Use custom page order if specified
+        int actualPageIndex = pageIndex;
+        if (pages != null && pageIndex < pages.length) {
+            actualPageIndex = pages[pageIndex];
+        }
+        
+        Log.d(TAG, "Rendering page " + pageIndex + " (actual: " + actualPageIndex + ")");
+        
+        // Calculate bitmap size based on fit policy
+        final int viewWidth = getWidth();
+        final int viewHeight = getHeight();
+        
+        // Check if view has valid dimensions
+        if (viewWidth <= 0 || viewHeight <= 0) {
+            Log.w(TAG, "View dimensions not ready: " + viewWidth + "x" + viewHeight + ", skipping render");
+            if (!show) {
+                singleWarmUpPending = false;
+            }
+            return;
+        }
+        
+        final DocumentActor rendering = document;
+        document.submit(actualPageIndex, page -> {
+            int width, height;
+            
+            // Use pageFitPolicy if fitEachPage is enabled, otherwise use fitPolicy
+            FitPolicy currentFitPolicy = fitEachPage ? pageFitPolicy : fitPolicy;
+            
+            switch (currentFitPolicy) {
+                case WIDTH:
+                    width = viewWidth;
+                    height = (int) (width * (float) page.getHeight() / page.getWidth());
+                    break;
+                case HEIGHT:
+                    height = viewHeight;
+                    width = (int) (height * (float) page.getWidth() / page.getHeight());
+                    break;
+                case BOTH:
+                default:
+                    width = viewWidth;
+                    height = viewHeight;
+                    break;
+            }
+            
+            // Apply spacing if autoSpacing is enabled
+            if (autoSpacing) {
+                // Reduce size to accommodate spacing
+                width -= spacing * 2;
+                height -= spacing * 2;
+            }
+            
+            // Ensure minimum dimensions
+            width = Math.max(width, 1);
+            height = Math.max(height, 1);
+            
+            Log.d(TAG, "Creating bitmap with dimensions: " + width + "x" + height + 
+                  " (view: " + viewWidth + "x" + viewHeight + ")");
+            
+            // PdfRenderer only renders into ARGB_8888
+            Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            renderStats.onBitmapAllocated(width, height, 4);
+            
+            // Render the page to the bitmap
+            // Use RENDER_MODE_FOR_DISPLAY for annotations, RENDER_MODE_FOR_PRINT to exclude them
+            int renderMode = enableAnnotationRendering ? 
+                PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY : 
+                PdfRenderer.Page.RENDER_MODE_FOR_PRINT;
+            bitmap.eraseColor(Color.WHITE); // Paper PdfRenderer leaves unpainted is transparent otherwise
+            long start = SystemClock.uptimeMillis();
+            page.render(bitmap, null, null, renderMode);
+            qualityGovernor.recordRender(width, height, SystemClock.uptimeMillis() - start);
+            renderStats.onPageRendered(page.getIndex());
+            return compact(bitmap);
+        }, (bitmap, error) -> {
+            if (!show) {
+                singleWarmUpPending = false;
+            }
+            if (error != null) {
+                Log.e(TAG, "Error rendering page " + pageIndex + ": " + error.getMessage());
+                if (show && onErrorListener != null && !(error instanceof CancellationException)) {
+                    onErrorListener.onError(error); // Warm-up failures are not worth reporting
+                }
+                return;
+            }
+            if (pageCache == null || document != rendering) {
+                bitmap.recycle(); // View recycled or document closed meanwhile
+                return;
+            }
+            if (!show) {
+                // Warm-up: into the cache only, unless the page got there meanwhile
+                if (pageCache.get(pageIndex) == null) {
+                    pageCache.put(pageIndex, bitmap);
+                } else {
+                    bitmap.recycle();
+                }
+                return;
+            }
+            
+            // Set as current BEFORE caching so the cache never recycles it
+            showSinglePageBitmap(bitmap);
+            frameMonitor.onRender();
+            pageCache.put(pageIndex, bitmap);
+            renderStats.onBitmapsHeld(pageCache.bytes());
+            Log.d(TAG, "Successfully rendered page: " + pageIndex);
+        });
+    }
+    
+    /**
+     * Swap the single-page bitmap; the old one is recycled unless the cache still holds it
+     */
+    private void showSinglePageBitmap(Bitmap bitmap) {
+        Bitmap oldBitmap = currentBitmap;
+        currentBitmap = bitmap;
+        if (pageCache != null) {
+            pageCache.setPinned(bitmap);
+        }
+        
+        // Update matrix scale to fit the view
+        updateMatrixScale();
+        
+        if (oldBitmap != null && oldBitmap != bitmap && !oldBitmap.isRecycled()
+                && (pageCache == null || !pageCache.containsBitmap(oldBitmap))) {
+            Log.d(TAG, "Recycling old single-page bitmap");
+            oldBitmap.recycle();
+        }
+        invalidate();
+        scheduleWarmUp();
+    }
+    
+    /**
+     * Whether a single-page bitmap was rendered for the current view size and fit policy
+     */
+    private boolean matchesViewSize(Bitmap bitmap) {
+        int inset = autoSpacing ? spacing * 2 : 0;
+        int width = Math.max(getWidth() - inset, 1);
+        int height = Math.max(getHeight() - inset, 1);
+        switch (fitEachPage ? pageFitPolicy : fitPolicy) {
+            case WIDTH:
+                return bitmap.getWidth() == width;
+            case HEIGHT:
+                return bitmap.getHeight() == height;
+            case BOTH:
+            default:
+                return bitmap.getWidth() == width && bitmap.getHeight() == height;
+        }
+    }
     
     private void updateColorFilter() {
         if (nightMode) {
@@ -1078,37 +2641,25 @@ public class PDFView extends FrameLayout {
         }
         colorFilter = new ColorMatrixColorFilter(colorMatrix);
         paint.setColorFilter(colorFilter);
+        // Masks are turned into gray first, then get the same filter as color pages
+        ColorMatrix mask = MonochromePages.maskMatrix();
+        mask.postConcat(colorMatrix);
+        maskPaint.setColorFilter(new ColorMatrixColorFilter(mask));
+        if (pageDisplayLists != null) {
+            pageDisplayLists.invalidateAll(); // recorded with the old paint
+        }
     }
     
     // Gesture listener for zoom
     private class ScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
         @Override
         public boolean onScale(ScaleGestureDetector detector) {
-            float scale = detector.getScaleFactor();
-            float newScaleFactor = scaleFactor * scale;
-
-            // Clamp zoom level between min and max
-            newScaleFactor = Math.max(minZoom, Math.min(newScaleFactor, maxZoom));
-
-            Log.d(TAG, "Scale gesture: " + scale + ", newScale: " + newScaleFactor);
-
-            // Only update if the scale actually changed
-            if (newScaleFactor != scaleFactor) {
-                if (continuousScrollMode) {
-                    // Zoom centered to the focus point (like Adobe Reader)
-                    float focusX = detector.getFocusX();
-                    float focusY = detector.getFocusY();
-                    zoomCenteredTo(newScaleFactor, focusX, focusY);
-                } else {
-                    // In single page mode, update matrix for proper centering
-                    scaleFactor = newScaleFactor;
-                    updateMatrixScale();
-                    invalidate();
-                }
-                
-                Log.d(TAG, "Zoom applied: " + scaleFactor + ", continuous: " + continuousScrollMode);
-            }
-
+            // Collected until the next frame - several scale events may arrive per vsync
+            pendingZoom *= detector.getScaleFactor();
+            pendingFocusX = detector.getFocusX();
+            pendingFocusY = detector.getFocusY();
+            frameMonitor.onGesture(FrameStats.Gesture.ZOOM);
+            scheduleInputFrame();
             return true;
         }
 
@@ -1127,71 +2678,21 @@ public class PDFView extends FrameLayout {
     private class GestureListener extends GestureDetector.SimpleOnGestureListener {
         @Override
         public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-            if (continuousScrollMode) {
-                // Continuous scroll mode - scroll through all pages with zoom support
-                panX -= distanceX;
-                panY -= distanceY;
-                
-                // Apply pan limits based on total content height
-                // Note: bitmaps are already rendered at zoom resolution
-                float viewWidth = getWidth();
-                float viewHeight = getHeight();
-                
-                // totalContentHeight is already at zoomed resolution
-                float contentWidth = viewWidth * scaleFactor;
-                float contentHeight = totalContentHeight;
-                
-                // Calculate max pan limits
-                float maxPanX = Math.max(0, (contentWidth - viewWidth) / 2f);
-                float maxPanY = Math.max(0, contentHeight - viewHeight);
-                
-                // Clamp pan values
-                panX = Math.max(-maxPanX, Math.min(maxPanX, panX));
-                panY = Math.max(-maxPanY, Math.min(0, panY));
-                
-                invalidate();
-                Log.d(TAG, "Continuous scrolling - pan: (" + panX + ", " + panY + "), zoom: " + scaleFactor);
-                return true;
-            } else if (scaleFactor > 1.0f) {
-                // Single page mode - only pan when zoomed in
-                panX -= distanceX;
-                panY -= distanceY;
-                
-                // Apply pan limits to keep content visible
-                float viewWidth = getWidth();
-                float viewHeight = getHeight();
-                
-                if (currentBitmap != null) {
-                    float bitmapWidth = currentBitmap.getWidth();
-                    float bitmapHeight = currentBitmap.getHeight();
-                    float scaleX = viewWidth / bitmapWidth;
-                    float scaleY = viewHeight / bitmapHeight;
-                    float baseScale = Math.min(scaleX, scaleY);
-                    float finalScale = baseScale * scaleFactor;
-                    
-                    float scaledWidth = bitmapWidth * finalScale;
-                    float scaledHeight = bitmapHeight * finalScale;
-                    
-                    // Calculate max pan limits
-                    float maxPanX = Math.max(0, (scaledWidth - viewWidth) / 2f);
-                    float maxPanY = Math.max(0, (scaledHeight - viewHeight) / 2f);
-                    
-                    // Clamp pan values
-                    panX = Math.max(-maxPanX, Math.min(panX, maxPanX));
-                    panY = Math.max(-maxPanY, Math.min(panY, maxPanY));
-                }
-                
-                updateMatrixScale();
-                invalidate();
-                Log.d(TAG, "Single page scrolling - pan: (" + panX + ", " + panY + ")");
-                return true;
+            // Continuous mode always scrolls; single page mode only pans when zoomed in
+            if (!continuousScrollMode && scaleFactor <= 1.0f) {
+                return false;
             }
-            return false;
+            pendingScrollX += distanceX;
+            pendingScrollY += distanceY;
+            frameMonitor.onGesture(FrameStats.Gesture.SCROLL);
+            scheduleInputFrame();
+            return true;
         }
         
         @Override
         public boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX, float velocityY) {
             if (!enableSwipe) return false;
+            frameMonitor.onGesture(FrameStats.Gesture.FLING);
             
             Log.d(TAG, "Fling detected: velocityX=" + velocityX + ", velocityY=" + velocityY);
             
@@ -1242,6 +2743,7 @@ public class PDFView extends FrameLayout {
             if (!enableDoubletap) return false;
             
             Log.d(TAG, "Double tap detected - toggling zoom");
+            frameMonitor.onGesture(FrameStats.Gesture.ZOOM);
             
             if (scaleFactor > minZoom) {
                 resetZoom();
@@ -1318,6 +2820,17 @@ public class PDFView extends FrameLayout {
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        getContext().getApplicationContext().unregisterComponentCallbacks(memoryCallbacks);
+        removeCallbacks(relaxMemoryPressure);
+        removeCallbacks(qualityUpgrade);
+        Looper.myQueue().removeIdleHandler(warmUpIdleHandler);
+        frameMonitor.detach();
+        warmUpScheduled = false;
+        Choreographer.getInstance().removeFrameCallback(inputFrame);
+        inputFrameScheduled = false;
+        pendingZoom = 1.0f;
+        pendingScrollX = 0f;
+        pendingScrollY = 0f;
         recycle();
     }
 }
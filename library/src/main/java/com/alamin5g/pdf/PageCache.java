@@ -0,0 +1,119 @@
+package com.alamin5g.pdf;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of rendered pages bounded both by page count (setCacheSize) and by
+ * bytes (the view's share of the engine memory budget). Evicted bitmaps are
+ * recycled unless pinned as the bitmap currently on screen.
+ * Accessed from the UI thread only.
+ */
+class PageCache {
+
+    private static final String TAG = "PageCache";
+
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private int maxPages;
+    private long maxBytes = Long.MAX_VALUE;
+    private long bytes = 0;
+    private Bitmap pinned;
+
+    PageCache(int maxPages) {
+        this.maxPages = Math.max(1, maxPages);
+    }
+
+    Bitmap get(int page) {
+        Entry entry = entries.get(page);
+        return entry != null ? entry.bitmap : null;
+    }
+
+    void put(int page, Bitmap bitmap) {
+        Entry previous = entries.put(page, new Entry(bitmap));
+        if (previous != null) {
+            bytes -= previous.byteCount;
+            if (previous.bitmap != bitmap) {
+                release(page, previous.bitmap);
+            }
+        }
+        bytes += entries.get(page).byteCount;
+        trim();
+    }
+
+    boolean containsBitmap(Bitmap bitmap) {
+        if (bitmap == null) {
+            return false;
+        }
+        for (Entry entry : entries.values()) {
+            if (entry.bitmap == bitmap) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Bitmap currently drawn by the view - never recycled on eviction
+     */
+    void setPinned(Bitmap bitmap) {
+        pinned = bitmap;
+    }
+
+    void resize(int maxPages) {
+        this.maxPages = Math.max(1, maxPages);
+        trim();
+    }
+
+    void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trim();
+    }
+
+    void evictAll() {
+        for (Map.Entry<Integer, Entry> entry : entries.entrySet()) {
+            release(entry.getKey(), entry.getValue().bitmap);
+        }
+        entries.clear();
+        bytes = 0;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<Integer, Entry>> iterator = entries.entrySet().iterator();
+        // Always keep the most recent entry so the visible page survives a tiny budget
+        while ((entries.size() > maxPages || bytes > maxBytes) && entries.size() > 1 && iterator.hasNext()) {
+            Map.Entry<Integer, Entry> eldest = iterator.next();
+            iterator.remove();
+            bytes -= eldest.getValue().byteCount;
+            release(eldest.getKey(), eldest.getValue().bitmap);
+        }
+    }
+
+    private void release(int page, Bitmap bitmap) {
+        // Only recycle if it's not the current bitmap being displayed
+        if (bitmap != null && !bitmap.isRecycled() && bitmap != pinned) {
+            Log.d(TAG, "Recycling cached bitmap for page: " + page);
+            bitmap.recycle();
+        }
+    }
+
+    /**
+     * Byte count is captured on insert - a recycled bitmap reports 0
+     */
+    private static final class Entry {
+        final Bitmap bitmap;
+        final int byteCount;
+
+        Entry(Bitmap bitmap) {
+            this.bitmap = bitmap;
+            this.byteCount = bitmap.getAllocationByteCount();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.alamin5g.pdf;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RecordingCanvas;
+import android.graphics.RectF;
+import android.graphics.RenderNode;
+import android.os.Build;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.RequiresApi;
+
+import java.util.List;
+
+/**
+ * One RenderNode per visible continuous page, all hung off a parent node that carries
+ * the pan offset. A page is recorded once per bitmap; scrolling only moves the parent,
+ * so a frame costs a translation and a single drawRenderNode instead of re-recording
+ * every bitmap draw.
+ * Used from onDraw on hardware-accelerated canvases only (API 29+).
+ */
+@RequiresApi(Build.VERSION_CODES.Q)
+final class PageDisplayLists {
+
+    private static final String TAG = "PageDisplayLists";
+
+    private final RenderNode content = new RenderNode("PDFView-pages");
+    private final SparseArray<PageNode> nodes = new SparseArray<>();
+    private final RectF pageRect = new RectF();
+    private int recordedFirst = -1;
+    private int recordedLast = -1;
+    private boolean contentDirty = true;
+
+    /**
+     * Draw pages first..last, re-recording only pages whose bitmap or size changed.
+     * Pages stored as monochrome masks are drawn with maskPaint.
+     */
+    void draw(Canvas canvas, float panX, float panY, int first, int last, int pageWidth,
+              List<Bitmap> bitmaps, List<Float> offsets, List<Float> heights, Paint paint, Paint maskPaint) {
+        if (first != recordedFirst || last != recordedLast) {
+            dropOutside(first, last);
+            recordedFirst = first;
+            recordedLast = last;
+            contentDirty = true;
+        }
+
+        for (int i = first; i <= last; i++) {
+            Bitmap bitmap = bitmaps.get(i);
+            PageNode page = nodes.get(i);
+            if (bitmap == null || bitmap.isRecycled()) {
+                if (page != null) {
+                    // Must not keep a reference to a recycled bitmap
+                    page.discard();
+                    nodes.remove(i);
+                    contentDirty = true;
+                }
+                continue;
+            }
+            if (page == null) {
+                page = new PageNode(i);
+                nodes.put(i, page);
+                contentDirty = true;
+            }
+            int top = offsets.get(i).intValue();
+            int height = heights.get(i).intValue();
+            page.node.setPosition(0, top, pageWidth, top + height);
+            if (page.bitmap != bitmap || page.width != pageWidth || page.height != height) {
+                page.record(bitmap, pageWidth, height, MonochromePages.isMask(bitmap) ? maskPaint : paint);
+            }
+        }
+
+        if (contentDirty) {
+            RecordingCanvas recording = content.beginRecording();
+            try {
+                for (int i = first; i <= last; i++) {
+                    PageNode page = nodes.get(i);
+                    if (page != null) {
+                        recording.drawRenderNode(page.node);
+                    }
+                }
+            } finally {
+                content.endRecording();
+            }
+            contentDirty = false;
+        }
+
+        content.setTranslationX(panX);
+        content.setTranslationY(panY);
+        canvas.drawRenderNode(content);
+    }
+
+    /**
+     * Paint changed (e.g. night mode) - every page has to be recorded again
+     */
+    void invalidateAll() {
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.valueAt(i).bitmap = null;
+        }
+    }
+
+    void release() {
+        for (int i = 0; i < nodes.size(); i++) {
+            nodes.valueAt(i).discard();
+        }
+        nodes.clear();
+        content.discardDisplayList();
+        recordedFirst = -1;
+        recordedLast = -1;
+        contentDirty = true;
+    }
+
+    private void dropOutside(int first, int last) {
+        for (int i = nodes.size() - 1; i >= 0; i--) {
+            int index = nodes.keyAt(i);
+            if (index < first || index > last) {
+                nodes.valueAt(i).discard();
+                nodes.removeAt(i);
+            }
+        }
+    }
+
+    private final class PageNode {
+        final RenderNode node;
+        Bitmap bitmap;
+        int width;
+        int height;
+
+        PageNode(int index) {
+            node = new RenderNode("PDFView-page-" + index);
+        }
+
+        void record(Bitmap bitmap, int width, int height, Paint paint) {
+            RecordingCanvas recording = node.beginRecording(width, height);
+            try {
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    recording.drawBitmap(bitmap, 0, 0, paint);
+                } else {
+                    // Rendered for an older layout or at reduced quality - stretched until the sharp one arrives
+                    pageRect.set(0, 0, width, height);
+                    recording.drawBitmap(bitmap, null, pageRect, paint);
+                }
+            } finally {
+                node.endRecording();
+            }
+            this.bitmap = bitmap;
+            this.width = width;
+            this.height = height;
+            if (Log.isLoggable(TAG, Log.DEBUG)) { // Every re-record while zooming - off by default
+                Log.d(TAG, "Recorded page display list " + width + "x" + height);
+            }
+        }
+
+        void discard() {
+            node.discardDisplayList();
+            bitmap = null;
+        }
+    }
+}
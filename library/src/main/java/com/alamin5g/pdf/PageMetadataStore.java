@@ -0,0 +1,160 @@
+package com.alamin5g.pdf;
+
+import android.content.Context;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.util.Log;
+
+import com.alamin5g.pdf.source.SourceUtils;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.LongSupplier;
+
+/**
+ * Page sizes of documents opened before, kept in small binary files in the cache
+ * dir, so continuous layout and the scroll range are exact on reopen instead of
+ * being measured page by page again.
+ *
+ * One file per document key: magic, version, document byte size, content
+ * fingerprint, page count, then width and height in points for every page. Size
+ * and fingerprint guard against a document replaced under the same key, even by
+ * one of the same size and page count; anything that does not match is ignored
+ * and written again after the next measuring pass.
+ * Blocking file access - call off the main thread.
+ */
+final class PageMetadataStore {
+
+    private static final String TAG = "PageMetadataStore";
+    private static final String DIR = "pdf_pages";
+    private static final int MAGIC = 0x5044464d; // "PDFM"
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+    private static final int FINGERPRINT_BYTES = 64 * 1024; // hashed at each end of the document
+
+    private PageMetadataStore() {
+    }
+
+    /**
+     * Page aspects (height / width) from the sidecar, memory-mapped
+     * @param fingerprint Supplies fingerprint(), only asked once a sidecar of the right
+     *                    size and file size is found; 0 if unknown, which matches nothing
+     * @return null if there is none for this document
+     */
+    static float[] read(Context context, String key, long fileSize, LongSupplier fingerprint, int pageCount) {
+        File file = fileFor(context, key);
+        if (!file.isFile() || file.length() != HEADER_BYTES + pageCount * 8L) {
+            return null;
+        }
+        try (RandomAccessFile input = new RandomAccessFile(file, "r");
+             FileChannel channel = input.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != fileSize || !matches(buffer.getLong(), fingerprint.getAsLong())
+                    || buffer.getInt() != pageCount) {
+                Log.d(TAG, "Page sizes for " + key + " are outdated");
+                return null;
+            }
+            float[] aspects = new float[pageCount];
+            for (int i = 0; i < pageCount; i++) {
+                int width = buffer.getInt();
+                int height = buffer.getInt();
+                if (width <= 0 || height <= 0) {
+                    return null;
+                }
+                aspects[i] = (float) height / width;
+            }
+            Log.d(TAG, "Read " + pageCount + " page sizes for " + key);
+            return aspects;
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read page sizes for " + key + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param sizes Width and height of each page, interleaved
+     */
+    static void write(Context context, String key, long fileSize, long fingerprint, int[] sizes) {
+        if (fingerprint == 0) {
+            return; // Could never be matched on reopen
+        }
+        File file = fileFor(context, key);
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            Log.w(TAG, "Cannot create " + dir);
+            return;
+        }
+        int pageCount = sizes.length / 2;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + sizes.length * 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putLong(fileSize).putLong(fingerprint).putInt(pageCount);
+        for (int size : sizes) {
+            buffer.putInt(size);
+        }
+        // Written aside and renamed, so a reader never maps a half-written file
+        File temp = new File(dir, file.getName() + ".tmp");
+        try (FileOutputStream output = new FileOutputStream(temp)) {
+            output.write(buffer.array());
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot write page sizes for " + key + ": " + e.getMessage());
+            temp.delete();
+            return;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            return;
+        }
+        Log.d(TAG, "Saved " + pageCount + " page sizes for " + key);
+    }
+
+    /**
+     * Hash of the document's first and last 64 KB, read without moving the file offset.
+     * A PDF ends with its cross-reference table and trailer, so rewriting it changes
+     * the hash even when the byte size stays the same. Blocking.
+     * @return 0 if the document cannot be read this way
+     */
+    static long fingerprint(FileDescriptor fd, long fileSize) {
+        if (fileSize <= 0) {
+            return 0;
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[(int) Math.min(FINGERPRINT_BYTES, fileSize)];
+            readFully(fd, buffer, 0);
+            digest.update(buffer);
+            readFully(fd, buffer, fileSize - buffer.length);
+            digest.update(buffer);
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        } catch (ErrnoException | IOException | NoSuchAlgorithmException e) {
+            Log.w(TAG, "Cannot fingerprint document: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    private static boolean matches(long saved, long fingerprint) {
+        return fingerprint != 0 && saved == fingerprint;
+    }
+
+    private static void readFully(FileDescriptor fd, byte[] buffer, long position) throws ErrnoException, IOException {
+        int read = 0;
+        while (read < buffer.length) {
+            int count = Os.pread(fd, buffer, read, buffer.length - read, position + read);
+            if (count <= 0) {
+                throw new IOException("Unexpected end of document");
+            }
+            read += count;
+        }
+    }
+
+    private static File fileFor(Context context, String key) {
+        return new File(new File(context.getCacheDir(), DIR), SourceUtils.cacheName(key) + ".pages");
+    }
+}
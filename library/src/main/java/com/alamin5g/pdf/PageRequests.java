@@ -0,0 +1,110 @@
+package com.alamin5g.pdf;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Bookkeeping for continuous-mode page renders: which pages are queued, which
+ * failed in the current layout, and the layout generation results are checked
+ * against. Also the order pages are asked for in - outward from the middle of the
+ * viewport, then the pages around it while they fit the memory quota.
+ *
+ * UI thread only.
+ */
+final class PageRequests {
+
+    private final Set<Integer> pending = new HashSet<>();
+    private final Set<Integer> failed = new HashSet<>(); // not retried until the next layout
+    private int generation = 0;
+
+    int generation() {
+        return generation;
+    }
+
+    boolean isCurrent(int generation) {
+        return generation == this.generation;
+    }
+
+    /**
+     * A new layout: renders in flight are stale, failed pages get another chance
+     */
+    void newLayout() {
+        generation++;
+        pending.clear();
+        failed.clear();
+    }
+
+    /**
+     * @return false if the page is already queued or failed in this layout
+     */
+    boolean start(int index) {
+        return !failed.contains(index) && pending.add(index);
+    }
+
+    void finished(int index) {
+        pending.remove(index);
+    }
+
+    /**
+     * Don't ask for this page again in the layout of this generation
+     */
+    void failed(int index, int generation) {
+        if (isCurrent(generation)) {
+            failed.add(index);
+        }
+    }
+
+    boolean hasFailed(int index) {
+        return failed.contains(index);
+    }
+
+    boolean isIdle() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Visit the visible pages first..last starting with middle and working outward,
+     * then up to prefetchDistance pages on both sides while all visited pages
+     * together fit the quota
+     * @param pageBytes Bitmap bytes of a page at the current layout
+     */
+    static void visit(int first, int last, int middle, int count, int prefetchDistance,
+                      IntToLongFunction pageBytes, long quota, IntConsumer visitor) {
+        for (int d = 0; middle - d >= first || middle + d <= last; d++) {
+            if (middle - d >= first) {
+                visitor.accept(middle - d);
+            }
+            if (d > 0 && middle + d <= last) {
+                visitor.accept(middle + d);
+            }
+        }
+        if (prefetchDistance <= 0) {
+            return;
+        }
+        // Anything trimmed right after rendering would only be requested again
+        long bytes = 0;
+        for (int i = first; i <= last; i++) {
+            bytes += pageBytes.applyAsLong(i);
+        }
+        for (int d = 1; d <= prefetchDistance; d++) {
+            int below = last + d;
+            int above = first - d;
+            if (below < count) {
+                bytes += pageBytes.applyAsLong(below);
+                if (bytes > quota) {
+                    return;
+                }
+                visitor.accept(below);
+            }
+            if (above >= 0) {
+                bytes += pageBytes.applyAsLong(above);
+                if (bytes > quota) {
+                    return;
+                }
+                visitor.accept(above);
+            }
+        }
+    }
+}
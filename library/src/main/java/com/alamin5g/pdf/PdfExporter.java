@@ -0,0 +1,456 @@
+package com.alamin5g.pdf;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.pdf.PdfRenderer;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.Process;
+import android.util.Log;
+
+import com.alamin5g.pdf.listener.OnExportListener;
+import com.alamin5g.pdf.source.DocumentSource;
+import com.alamin5g.pdf.source.FileSource;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Exports pages of a document as image files, without any view.
+ *
+ * Pages flow through a pipeline: one thread renders (PdfRenderer handles a single
+ * page at a time), a configurable number of workers encode and write. Bitmaps come
+ * from a fixed pool and are reused, so memory stays constant however many pages
+ * are exported - the renderer waits for a free bitmap when the encoders fall behind.
+ * The pool as a whole is kept to a quarter of Runtime.maxMemory(); pages that
+ * would need more are exported at a lower resolution.
+ *
+ * <pre>
+ * new PdfExporter(context, new FileSource(file))
+ *         .format(PdfExporter.Format.PNG)
+ *         .dpi(300)
+ *         .pageRange(0, 99)
+ *         .outputDir(dir)
+ *         .listener(listener)
+ *         .start();
+ * </pre>
+ */
+public final class PdfExporter {
+
+    private static final String TAG = "PdfExporter";
+    private static final int POINTS_PER_INCH = 72;
+    private static final long MAX_PIXELS = 50_000_000L; // cap per page bitmap (200MB at ARGB_8888)
+    private static final int POOL_MEMORY_DIVISOR = 4; // the whole pool gets at most 1/4 of maxMemory()
+    private static final long POLL_MS = 100;
+
+    public enum Format {
+        PNG("png"), JPEG("jpg"), WEBP("webp");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        @SuppressWarnings("deprecation")
+        Bitmap.CompressFormat compressFormat() {
+            switch (this) {
+                case JPEG:
+                    return Bitmap.CompressFormat.JPEG;
+                case WEBP:
+                    return Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                            ? Bitmap.CompressFormat.WEBP_LOSSY
+                            : Bitmap.CompressFormat.WEBP;
+                case PNG:
+                default:
+                    return Bitmap.CompressFormat.PNG;
+            }
+        }
+    }
+
+    private final Context context;
+    private final DocumentSource source;
+    private Format format = Format.PNG;
+    private int quality = 90;
+    private int dpi = 150;
+    private int[] pages;
+    private File outputDir;
+    private String fileNamePrefix = "page_";
+    private int workers = 2;
+    private int bitmapPoolSize = 0; // 0 = workers + 1
+    private boolean enableAnnotationRendering = true;
+    private OnExportListener listener;
+
+    public PdfExporter(Context context, DocumentSource source) {
+        this.context = context.getApplicationContext();
+        this.source = source;
+    }
+
+    public PdfExporter(Context context, File file) {
+        this(context, new FileSource(file));
+    }
+
+    public PdfExporter format(Format format) {
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * Compression quality 0-100 for JPEG and WebP (ignored by PNG)
+     */
+    public PdfExporter quality(int quality) {
+        this.quality = Math.max(0, Math.min(100, quality));
+        return this;
+    }
+
+    public PdfExporter dpi(int dpi) {
+        this.dpi = Math.max(1, dpi);
+        return this;
+    }
+
+    /**
+     * Pages to export (0-based), in this order - same meaning as PDFView.pages()
+     */
+    public PdfExporter pages(int... pages) {
+        this.pages = pages;
+        return this;
+    }
+
+    /**
+     * Pages from..to inclusive (0-based)
+     */
+    public PdfExporter pageRange(int from, int to) {
+        int count = Math.max(0, to - from + 1);
+        pages = new int[count];
+        for (int i = 0; i < count; i++) {
+            pages[i] = from + i;
+        }
+        return this;
+    }
+
+    public PdfExporter outputDir(File outputDir) {
+        this.outputDir = outputDir;
+        return this;
+    }
+
+    /**
+     * Files are named prefix + 1-based page number, e.g. page_0001.png
+     */
+    public PdfExporter fileNamePrefix(String fileNamePrefix) {
+        this.fileNamePrefix = fileNamePrefix;
+        return this;
+    }
+
+    /**
+     * Number of encode/write threads
+     */
+    public PdfExporter workers(int workers) {
+        this.workers = Math.max(1, workers);
+        return this;
+    }
+
+    /**
+     * Number of page bitmaps allocated for the whole export (at least 1, default workers + 1)
+     */
+    public PdfExporter bitmapPoolSize(int bitmapPoolSize) {
+        this.bitmapPoolSize = Math.max(1, bitmapPoolSize);
+        return this;
+    }
+
+    public PdfExporter enableAnnotationRendering(boolean enableAnnotationRendering) {
+        this.enableAnnotationRendering = enableAnnotationRendering;
+        return this;
+    }
+
+    public PdfExporter listener(OnExportListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Start exporting in the background
+     * @return Signal to cancel the export; pages already written are kept
+     */
+    public CancellationSignal start() {
+        if (outputDir == null) {
+            throw new IllegalStateException("outputDir() is required");
+        }
+        CancellationSignal signal = new CancellationSignal();
+        Job job = new Job(signal);
+        Thread thread = new Thread(job, "PDFView-export");
+        thread.setDaemon(true);
+        thread.start();
+        return signal;
+    }
+
+    /**
+     * One export run, with its configuration copied at start()
+     */
+    private final class Job implements Runnable {
+
+        private final CancellationSignal signal;
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+        private final OnExportListener listener = PdfExporter.this.listener;
+        private final Format format = PdfExporter.this.format;
+        private final int quality = PdfExporter.this.quality;
+        private final int dpi = PdfExporter.this.dpi;
+        private final int[] pages = PdfExporter.this.pages != null ? PdfExporter.this.pages.clone() : null;
+        private final File outputDir = PdfExporter.this.outputDir;
+        private final String fileNamePrefix = PdfExporter.this.fileNamePrefix;
+        private final int workers = PdfExporter.this.workers;
+        private final int poolSize = bitmapPoolSize > 0 ? bitmapPoolSize : workers + 1;
+        private final long maxPixels = Math.min(MAX_PIXELS,
+                Runtime.getRuntime().maxMemory() / POOL_MEMORY_DIVISOR / 4 / poolSize); // ARGB_8888
+        private final int renderMode = enableAnnotationRendering
+                ? PdfRenderer.Page.RENDER_MODE_FOR_DISPLAY
+                : PdfRenderer.Page.RENDER_MODE_FOR_PRINT;
+
+        private final BlockingQueue<Bitmap> freeBitmaps;
+        private final List<Bitmap> allBitmaps = new ArrayList<>();
+        private final AtomicInteger exported = new AtomicInteger();
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+
+        Job(CancellationSignal signal) {
+            this.signal = signal;
+            this.freeBitmaps = new ArrayBlockingQueue<>(poolSize);
+        }
+
+        @Override
+        public void run() {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            ParcelFileDescriptor descriptor = null;
+            PdfRenderer renderer = null;
+            ExecutorService encoders = null;
+            try {
+                if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+                    throw new IOException("Cannot create output directory: " + outputDir);
+                }
+                descriptor = source.open(context);
+                renderer = new PdfRenderer(descriptor);
+                int[] order = pages != null ? pages : allPages(renderer.getPageCount());
+                int total = order.length;
+                Log.d(TAG, "Exporting " + total + " pages as " + format + " at " + dpi + " DPI, "
+                        + workers + " workers, " + poolSize + " bitmaps of up to " + maxPixels + " pixels");
+
+                AtomicInteger threadCount = new AtomicInteger();
+                encoders = Executors.newFixedThreadPool(workers, task -> {
+                    Thread thread = new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        task.run();
+                    }, "PDFView-export-" + threadCount.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+                for (int page : order) {
+                    if (signal.isCanceled() || failure.get() != null) {
+                        break;
+                    }
+                    if (page < 0 || page >= renderer.getPageCount()) {
+                        throw new IllegalArgumentException("Page " + page + " out of range (0-" + (renderer.getPageCount() - 1) + ")");
+                    }
+                    Bitmap bitmap = renderPage(renderer, page);
+                    if (bitmap == null) {
+                        break; // Cancelled while waiting for a free bitmap
+                    }
+                    encoders.execute(() -> encode(page, bitmap, total));
+                }
+
+                // Encoders finish the pages already rendered, even when cancelled
+                encoders.shutdown();
+                awaitEncoders(encoders);
+                Exception error = failure.get();
+                if (error != null) {
+                    throw error;
+                }
+                finish(false, null);
+            } catch (Exception | OutOfMemoryError e) {
+                if (encoders != null) {
+                    // Bitmaps are recycled below - wait until no encoder still reads one
+                    encoders.shutdownNow();
+                    awaitEncoders(encoders);
+                }
+                finish(true, e instanceof Exception ? (Exception) e : outOfMemory("Export", (OutOfMemoryError) e));
+            } finally {
+                if (renderer != null) {
+                    renderer.close();
+                }
+                if (descriptor != null) {
+                    try {
+                        descriptor.close();
+                    } catch (IOException e) {
+                        Log.e(TAG, "Error closing file descriptor: " + e.getMessage());
+                    }
+                }
+                releaseBitmaps();
+            }
+        }
+
+        /**
+         * Render one page into a pooled bitmap, or return null if cancelled while waiting for one
+         */
+        private Bitmap renderPage(PdfRenderer renderer, int pageIndex) throws InterruptedException, IOException {
+            PdfRenderer.Page page = renderer.openPage(pageIndex);
+            try {
+                long width = (long) page.getWidth() * dpi / POINTS_PER_INCH;
+                long height = (long) page.getHeight() * dpi / POINTS_PER_INCH;
+                if (width * height > maxPixels) {
+                    double scale = Math.sqrt((double) maxPixels / (width * height));
+                    width = (long) (width * scale);
+                    height = (long) (height * scale);
+                    Log.w(TAG, "Page " + pageIndex + " capped to " + width + "x" + height);
+                }
+                Bitmap bitmap = obtainBitmap((int) Math.max(1, width), (int) Math.max(1, height));
+                if (bitmap == null) {
+                    return null;
+                }
+                bitmap.eraseColor(Color.WHITE); // PDF pages are transparent; JPEG would turn that black
+                page.render(bitmap, null, null, renderMode);
+                return bitmap;
+            } catch (OutOfMemoryError e) {
+                // Allocating or rendering - the pool bitmaps are released by run()
+                throw outOfMemory("Page " + pageIndex, e);
+            } finally {
+                page.close();
+            }
+        }
+
+        /**
+         * Take a free bitmap from the pool (creating one while the pool is not full)
+         * and fit it to the page, reusing its allocation when large enough
+         */
+        private Bitmap obtainBitmap(int width, int height) throws InterruptedException {
+            Bitmap bitmap = freeBitmaps.poll();
+            if (bitmap == null && allBitmaps.size() < poolSize) {
+                bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                allBitmaps.add(bitmap);
+                return bitmap;
+            }
+            while (bitmap == null) {
+                if (signal.isCanceled() || failure.get() != null) {
+                    return null;
+                }
+                bitmap = freeBitmaps.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            }
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                return bitmap;
+            }
+            if (bitmap.getAllocationByteCount() >= width * height * 4) {
+                bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+                return bitmap;
+            }
+            // A larger page than any before - grow this pool slot
+            allBitmaps.remove(bitmap);
+            bitmap.recycle();
+            bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            allBitmaps.add(bitmap);
+            return bitmap;
+        }
+
+        private void encode(int page, Bitmap bitmap, int total) {
+            File file = new File(outputDir, String.format(Locale.US, "%s%04d.%s", fileNamePrefix, page + 1, format.getExtension()));
+            try {
+                if (failure.get() != null) {
+                    return;
+                }
+                try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 64 * 1024)) {
+                    if (!bitmap.compress(format.compressFormat(), quality, out)) {
+                        throw new IOException("Encoding page " + page + " failed");
+                    }
+                } catch (IOException e) {
+                    file.delete(); // Don't leave a truncated image behind
+                    throw e;
+                }
+                int done = exported.incrementAndGet();
+                if (listener != null) {
+                    mainHandler.post(() -> listener.onPageExported(page, file, done, total));
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "Error exporting page " + page + ": " + e.getMessage());
+                failure.compareAndSet(null, e);
+            } catch (OutOfMemoryError e) {
+                file.delete();
+                failure.compareAndSet(null, outOfMemory("Page " + page, e));
+            } finally {
+                freeBitmaps.offer(bitmap);
+            }
+        }
+
+        /**
+         * Out of memory as an error the listener can get - the export stops, the app does not
+         */
+        private IOException outOfMemory(String what, OutOfMemoryError error) {
+            Log.e(TAG, what + " ran out of memory: " + error.getMessage());
+            return new IOException(what + " ran out of memory - try a lower dpi() or bitmapPoolSize()", error);
+        }
+
+        private void finish(boolean failed, Exception error) {
+            int done = exported.get();
+            boolean cancelled = signal.isCanceled();
+            Log.d(TAG, "Export " + (failed ? "failed" : cancelled ? "cancelled" : "finished") + " after " + done + " pages");
+            if (listener == null) {
+                return;
+            }
+            mainHandler.post(() -> {
+                if (failed) {
+                    listener.onExportError(error);
+                } else {
+                    listener.onExportFinished(done, cancelled);
+                }
+            });
+        }
+
+        private void releaseBitmaps() {
+            for (Bitmap bitmap : allBitmaps) {
+                bitmap.recycle();
+            }
+            allBitmaps.clear();
+            freeBitmaps.clear();
+        }
+
+        private void awaitEncoders(ExecutorService encoders) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    if (encoders.awaitTermination(POLL_MS, TimeUnit.MILLISECONDS)) {
+                        break;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private int[] allPages(int count) {
+            int[] all = new int[count];
+            for (int i = 0; i < count; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.alamin5g.pdf;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.alamin5g.pdf.listener.OnPrefetchListener;
+import com.alamin5g.pdf.source.UrlSource;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads a list of remote PDFs for offline use, without any view.
+ *
+ * Documents go to UrlSource's offline store, a few at a time. A document already
+ * there is only revalidated (ETag/Last-Modified), and a later fromUrl() for any of
+ * them opens the stored copy with no network access. pause() stops the transfers
+ * in flight and keeps their partial files, so resume() continues where they left off.
+ *
+ * <pre>
+ * PdfPrefetcher prefetcher = new PdfPrefetcher(context)
+ *         .urls(manualUrls)
+ *         .concurrency(3)
+ *         .listener(listener)
+ *         .start();
+ * </pre>
+ */
+public final class PdfPrefetcher {
+
+    private static final String TAG = "PdfPrefetcher";
+    private static final long PROGRESS_INTERVAL_MS = 100;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<String> urls = new LinkedHashSet<>();
+    private int concurrency = 2;
+    private OnPrefetchListener listener;
+
+    // Queue state, guarded by lock
+    private final Object lock = new Object();
+    private final ArrayDeque<String> pending = new ArrayDeque<>();
+    private final Map<String, CancellationSignal> running = new HashMap<>();
+    private ExecutorService executor;
+    private boolean started = false;
+    private boolean paused = false;
+    private boolean cancelled = false;
+    private int succeeded = 0;
+    private int failed = 0;
+
+    public PdfPrefetcher(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Documents to download, in this order. Duplicates are fetched once.
+     */
+    public PdfPrefetcher urls(Collection<String> urls) {
+        this.urls.addAll(urls);
+        return this;
+    }
+
+    public PdfPrefetcher urls(String... urls) {
+        return urls(Arrays.asList(urls));
+    }
+
+    /**
+     * Documents downloaded at the same time (default 2)
+     */
+    public PdfPrefetcher concurrency(int concurrency) {
+        this.concurrency = Math.max(1, concurrency);
+        return this;
+    }
+
+    public PdfPrefetcher listener(OnPrefetchListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * Start downloading in the background. Can be called once.
+     */
+    public PdfPrefetcher start() {
+        synchronized (lock) {
+            if (started) {
+                throw new IllegalStateException("Prefetch already started");
+            }
+            started = true;
+            pending.addAll(urls);
+            AtomicInteger threadCount = new AtomicInteger();
+            executor = Executors.newFixedThreadPool(concurrency, task -> {
+                Thread thread = new Thread(() -> {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    task.run();
+                }, "PDFView-prefetch-" + threadCount.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+            Log.d(TAG, "Prefetching " + pending.size() + " documents, " + concurrency + " at a time");
+            dispatch();
+        }
+        return this;
+    }
+
+    /**
+     * Stop the transfers in flight (their partial files are kept) and start no new ones
+     */
+    public void pause() {
+        synchronized (lock) {
+            if (paused || cancelled) {
+                return;
+            }
+            paused = true;
+            for (CancellationSignal signal : running.values()) {
+                signal.cancel();
+            }
+        }
+    }
+
+    /**
+     * Continue after pause(), resuming interrupted documents from their partial files
+     */
+    public void resume() {
+        synchronized (lock) {
+            if (!paused || cancelled) {
+                return;
+            }
+            paused = false;
+            dispatch();
+        }
+    }
+
+    public boolean isPaused() {
+        synchronized (lock) {
+            return paused;
+        }
+    }
+
+    /**
+     * Stop for good. Documents already stored stay available offline.
+     */
+    public void cancel() {
+        synchronized (lock) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            pending.clear();
+            for (CancellationSignal signal : running.values()) {
+                signal.cancel();
+            }
+            finishIfDone();
+        }
+    }
+
+    /**
+     * Start documents until the concurrency limit is reached. Holds lock.
+     */
+    private void dispatch() {
+        while (!paused && !cancelled && running.size() < concurrency && !pending.isEmpty()) {
+            String url = pending.poll();
+            CancellationSignal signal = new CancellationSignal();
+            running.put(url, signal);
+            executor.execute(() -> fetch(url, signal));
+        }
+        finishIfDone();
+    }
+
+    private void fetch(String url, CancellationSignal signal) {
+        UrlSource source = new UrlSource(url);
+        long[] lastReport = {0};
+        source.setOnDownloadProgressListener((bytesDownloaded, totalBytes, progress) -> {
+            long now = SystemClock.uptimeMillis();
+            if (listener != null && (now - lastReport[0] >= PROGRESS_INTERVAL_MS || bytesDownloaded == totalBytes)) {
+                lastReport[0] = now;
+                mainHandler.post(() -> listener.onItemProgress(url, bytesDownloaded, totalBytes));
+            }
+        });
+
+        Exception error = null;
+        boolean interrupted = false;
+        try {
+            source.prefetch(context, signal);
+        } catch (OperationCanceledException e) {
+            interrupted = true;
+        } catch (Exception e) {
+            Log.e(TAG, "Cannot prefetch " + url + ": " + e.getMessage());
+            error = e;
+        }
+
+        synchronized (lock) {
+            running.remove(url);
+            if (interrupted && paused && !cancelled) {
+                pending.addFirst(url); // Picked up again by resume()
+                return;
+            }
+            if (interrupted) {
+                finishIfDone();
+                return; // Cancelled - not reported per item
+            }
+            if (error == null) {
+                succeeded++;
+            } else {
+                failed++;
+            }
+            final Exception itemError = error;
+            final int finished = succeeded + failed;
+            final int total = urls.size();
+            mainHandler.post(() -> {
+                if (listener != null) {
+                    listener.onItemFinished(url, itemError);
+                    listener.onProgress(finished, total);
+                }
+            });
+            dispatch();
+        }
+    }
+
+    /**
+     * Report the end once nothing is queued or running. Holds lock.
+     */
+    private void finishIfDone() {
+        if (!running.isEmpty() || (!pending.isEmpty() && !cancelled) || executor == null || executor.isShutdown()) {
+            return;
+        }
+        executor.shutdown();
+        final int ok = succeeded;
+        final int bad = failed;
+        final boolean wasCancelled = cancelled;
+        Log.d(TAG, "Prefetch finished: " + ok + " stored, " + bad + " failed" + (wasCancelled ? ", cancelled" : ""));
+        mainHandler.post(() -> {
+            if (listener != null) {
+                listener.onPrefetchFinished(ok, bad, wasCancelled);
+            }
+        });
+    }
+}
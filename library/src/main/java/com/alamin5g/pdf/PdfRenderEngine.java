@@ -0,0 +1,289 @@
+package com.alamin5g.pdf;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide render engine shared by every PDFView.
+ *
+ * - One bounded pool of worker threads instead of a thread per view
+ * - Each view gets a serial Lane, so its PdfRenderer is never used by two workers at once
+ * - Lanes are served round-robin, visible lanes first, and hidden lanes may only
+ *   occupy one worker at a time - a background view cannot starve the one in front
+ * - One bitmap byte budget, split evenly between visible views with a small
+ *   slice reserved for hidden ones
+ * - A separate small I/O pool for network transfers, so a slow download never
+ *   occupies a render worker
+ * - Recently closed documents stay open for a while (DocumentHandleCache), so
+ *   going back to one does not reopen and re-parse it
+ */
+public final class PdfRenderEngine {
+
+    private static final String TAG = "PdfRenderEngine";
+
+    private static final int MAX_HIDDEN_RUNNING = 1; // workers hidden lanes may occupy
+    private static final int HIDDEN_SHARE_DIVISOR = 16; // each hidden view gets budget / 16
+    private static final int HIDDEN_TOTAL_DIVISOR = 4; // all hidden views together get at most budget / 4
+    private static final int IO_THREADS = 2;
+
+    private static volatile PdfRenderEngine instance;
+
+    private final Object lock = new Object();
+    private final List<Lane> lanes = new ArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final int workerCount;
+    private final ExecutorService ioExecutor;
+    private int nextLaneIndex = 0;
+    private int hiddenRunning = 0;
+    private long memoryBudget;
+
+    public static PdfRenderEngine getInstance() {
+        if (instance == null) {
+            synchronized (PdfRenderEngine.class) {
+                if (instance == null) {
+                    instance = new PdfRenderEngine();
+                }
+            }
+        }
+        return instance;
+    }
+
+    private PdfRenderEngine() {
+        workerCount = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::workLoop, "PDFView-render-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        AtomicInteger ioThreadCount = new AtomicInteger();
+        ioExecutor = Executors.newFixedThreadPool(IO_THREADS, task -> {
+            Thread thread = new Thread(task, "PDFView-io-" + ioThreadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Log.d(TAG, "Render engine started: " + workerCount + " workers, budget " + (memoryBudget / 1024 / 1024) + "MB");
+    }
+
+    /**
+     * Total bytes of page bitmaps all PDFViews together may keep
+     */
+    public void setMemoryBudget(long bytes) {
+        synchronized (lock) {
+            memoryBudget = Math.max(1, bytes);
+        }
+        redistributeBudget();
+    }
+
+    public long getMemoryBudget() {
+        synchronized (lock) {
+            return memoryBudget;
+        }
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * How many recently closed documents stay open so switching back to them is instant,
+     * and the estimated bytes they may take together. 0 documents turns it off.
+     * Main thread only.
+     */
+    public void setOpenDocumentCache(int documents, long maxBytes) {
+        DocumentHandleCache.setLimits(documents, maxBytes);
+    }
+
+    /**
+     * Close every document kept open for switching back, e.g. after rewriting a document
+     * whose source has no getVersion(). Main thread only.
+     */
+    public void closeCachedDocuments() {
+        DocumentHandleCache.closeAll();
+    }
+
+    /**
+     * Register a view. The listener is told its byte quota on the main thread.
+     */
+    Lane register(QuotaListener listener) {
+        Lane lane = new Lane(listener);
+        synchronized (lock) {
+            lanes.add(lane);
+        }
+        redistributeBudget();
+        return lane;
+    }
+
+    /**
+     * Run a blocking network or file transfer off the render workers
+     */
+    void executeIo(Runnable task) {
+        ioExecutor.execute(task);
+    }
+
+    interface QuotaListener {
+        void onMemoryQuotaChanged(long bytes);
+    }
+
+    private void workLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_MORE_FAVORABLE);
+        while (true) {
+            Lane lane;
+            Runnable task;
+            synchronized (lock) {
+                while ((lane = nextLane()) == null) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                task = lane.tasks.poll();
+                lane.running = true;
+                lane.hiddenWhenStarted = !lane.visible;
+                if (lane.hiddenWhenStarted) {
+                    hiddenRunning++;
+                }
+            }
+
+            try {
+                task.run();
+            } catch (Throwable t) {
+                Log.e(TAG, "Render task failed: " + t.getMessage(), t);
+            } finally {
+                synchronized (lock) {
+                    lane.running = false;
+                    if (lane.hiddenWhenStarted) {
+                        hiddenRunning--;
+                    }
+                    lock.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Pick the next lane with work: visible lanes first, round-robin within a class
+     */
+    private Lane nextLane() {
+        int size = lanes.size();
+        int hiddenIndex = -1;
+        for (int i = 0; i < size; i++) {
+            int index = (nextLaneIndex + i) % size;
+            Lane lane = lanes.get(index);
+            if (lane.running || lane.tasks.isEmpty()) {
+                continue;
+            }
+            if (lane.visible) {
+                nextLaneIndex = (index + 1) % size;
+                return lane;
+            }
+            if (hiddenIndex < 0 && hiddenRunning < MAX_HIDDEN_RUNNING) {
+                hiddenIndex = index;
+            }
+        }
+        if (hiddenIndex >= 0) {
+            nextLaneIndex = (hiddenIndex + 1) % size;
+            return lanes.get(hiddenIndex);
+        }
+        return null;
+    }
+
+    private void redistributeBudget() {
+        List<Lane> changed = new ArrayList<>();
+        synchronized (lock) {
+            int visibleCount = 0;
+            for (Lane lane : lanes) {
+                if (lane.visible) {
+                    visibleCount++;
+                }
+            }
+            int hiddenCount = lanes.size() - visibleCount;
+
+            long hiddenTotal = Math.min(memoryBudget / HIDDEN_TOTAL_DIVISOR, hiddenCount * (memoryBudget / HIDDEN_SHARE_DIVISOR));
+            long hiddenShare = hiddenCount > 0 ? hiddenTotal / hiddenCount : 0;
+            long visibleShare = visibleCount > 0 ? (memoryBudget - hiddenTotal) / visibleCount : 0;
+
+            for (Lane lane : lanes) {
+                long quota = lane.visible ? visibleShare : hiddenShare;
+                if (quota != lane.quota) {
+                    lane.quota = quota;
+                    changed.add(lane);
+                }
+            }
+        }
+        for (Lane lane : changed) {
+            final long quota = lane.quota;
+            mainHandler.post(() -> {
+                if (!lane.released) {
+                    lane.listener.onMemoryQuotaChanged(quota);
+                }
+            });
+        }
+    }
+
+    /**
+     * Serial task queue for one view
+     */
+    final class Lane implements Executor {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private final QuotaListener listener;
+        private boolean running = false;
+        private boolean visible = false;
+        private boolean hiddenWhenStarted = false;
+        private volatile boolean released = false;
+        private volatile long quota = -1;
+
+        private Lane(QuotaListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            synchronized (lock) {
+                if (released) {
+                    return;
+                }
+                tasks.add(task);
+                lock.notifyAll();
+            }
+        }
+
+        /**
+         * Visible lanes are served first and share most of the budget
+         */
+        void setVisible(boolean visible) {
+            synchronized (lock) {
+                if (this.visible == visible || released) {
+                    return;
+                }
+                this.visible = visible;
+                lock.notifyAll();
+            }
+            redistributeBudget();
+        }
+
+        void release() {
+            synchronized (lock) {
+                released = true;
+                tasks.clear();
+                lanes.remove(this);
+                if (nextLaneIndex >= lanes.size()) {
+                    nextLaneIndex = 0;
+                }
+            }
+            redistributeBudget();
+        }
+    }
+}
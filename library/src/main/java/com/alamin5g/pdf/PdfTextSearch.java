@@ -0,0 +1,215 @@
+package com.alamin5g.pdf;
+
+import android.graphics.RectF;
+import android.graphics.pdf.PdfRenderer;
+import android.graphics.pdf.content.PdfPageTextContent;
+import android.graphics.pdf.models.PageMatchBounds;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.RequiresApi;
+
+import com.alamin5g.pdf.listener.OnSearchListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Incremental full-text search driven from a low-priority background thread.
+ * Each page is one request to the document actor, so page rendering keeps
+ * running between pages. Extracted page text is cached, so repeated queries
+ * only call searchText on pages that may contain the query. The check is loose on
+ * purpose (see normalize): a page it lets through costs one searchText call, a page
+ * it wrongly skipped would be a missed match.
+ */
+class PdfTextSearch {
+
+    private static final String TAG = "PdfTextSearch";
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final ExecutorService searchExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "PDFView-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Normalized text per document page index, for cacheDocument only
+    private final ConcurrentHashMap<Integer, String> pageTextCache = new ConcurrentHashMap<>();
+    private DocumentActor cacheDocument; // guarded by pageTextCache
+    // Bumped on every new query or cancel - running scans stop when it changes
+    private final AtomicInteger generation = new AtomicInteger();
+
+    /**
+     * Text APIs on PdfRenderer.Page are only available from API 35
+     */
+    static boolean isSupported() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.VANILLA_ICE_CREAM;
+    }
+
+    /**
+     * Start a new search, cancelling any search still running.
+     * @param document The open document
+     * @param pageOrder Custom page order (null for document order)
+     * @param pageCount Number of pages shown by the view
+     * @param startPage Page to scan first (scanning wraps around)
+     */
+    @RequiresApi(Build.VERSION_CODES.VANILLA_ICE_CREAM)
+    void search(DocumentActor document, int[] pageOrder, int pageCount, int startPage,
+                String query, OnSearchListener listener) {
+        final int searchGeneration = generation.incrementAndGet();
+        final String needle = normalize(query);
+        synchronized (pageTextCache) {
+            if (cacheDocument != document) {
+                pageTextCache.clear(); // Text of another document
+                cacheDocument = document;
+            }
+        }
+
+        searchExecutor.execute(() -> {
+            int totalMatches = 0;
+            long startTime = System.currentTimeMillis();
+
+            for (int n = 0; n < pageCount; n++) {
+                if (generation.get() != searchGeneration) {
+                    Log.d(TAG, "Search cancelled: " + query);
+                    return;
+                }
+
+                final int page = (startPage + n) % pageCount;
+                int documentPage = pageOrder != null && page < pageOrder.length ? pageOrder[page] : page;
+
+                try {
+                    String text = pageTextCache.get(documentPage);
+                    if (text == null) {
+                        text = document.submit(documentPage, PdfTextSearch::extractText).get();
+                        cacheText(searchGeneration, documentPage, text);
+                    }
+                    if (!needle.isEmpty() && !text.contains(needle)) {
+                        continue; // No need to open the page again
+                    }
+
+                    final List<RectF> matches = document.submit(documentPage, openPage -> findMatches(openPage, query)).get();
+                    if (matches.isEmpty()) {
+                        continue;
+                    }
+                    totalMatches += matches.size();
+                    mainHandler.post(() -> {
+                        if (generation.get() == searchGeneration) {
+                            listener.onPageResults(query, page, matches);
+                        }
+                    });
+                } catch (CancellationException e) {
+                    Log.d(TAG, "Document closed, search stopped: " + query);
+                    return;
+                } catch (InterruptedException e) {
+                    return; // Shut down
+                } catch (Exception e) {
+                    // Page unreadable - skip it, keep scanning
+                    Log.e(TAG, "Error searching page " + documentPage + ": " + e.getMessage());
+                }
+            }
+
+            final int finalTotal = totalMatches;
+            Log.d(TAG, "Search '" + query + "' finished: " + finalTotal + " matches in "
+                    + (System.currentTimeMillis() - startTime) + "ms");
+            mainHandler.post(() -> {
+                if (generation.get() == searchGeneration) {
+                    listener.onSearchComplete(query, finalTotal);
+                }
+            });
+        });
+    }
+
+    /**
+     * Runs on the document actor
+     */
+    @RequiresApi(Build.VERSION_CODES.VANILLA_ICE_CREAM)
+    private static String extractText(PdfRenderer.Page page) {
+        StringBuilder builder = new StringBuilder();
+        for (PdfPageTextContent content : page.getTextContents()) {
+            builder.append(content.getText()).append(' ');
+        }
+        return normalize(builder.toString());
+    }
+
+    /**
+     * Text reduced so that wherever searchText finds the query, the normalized page
+     * text contains the normalized query: compatibility forms and accents decomposed
+     * (ligatures, full width), case folded, and everything but letters and digits
+     * dropped - accents, spaces, line breaks, hyphens and the separators between
+     * text contents
+     */
+    static String normalize(String text) {
+        String folded = Normalizer.normalize(text, Normalizer.Form.NFKD)
+                .toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+        StringBuilder builder = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); ) {
+            int codePoint = folded.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                builder.appendCodePoint(codePoint);
+            }
+            i += Character.charCount(codePoint);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Cache a page's text unless the search that extracted it is stale - the document
+     * may have been closed and its page indexes reused by the next one meanwhile
+     */
+    private void cacheText(int searchGeneration, int page, String text) {
+        synchronized (pageTextCache) {
+            if (generation.get() == searchGeneration) {
+                pageTextCache.put(page, text);
+            }
+        }
+    }
+
+    /**
+     * Runs on the document actor
+     */
+    @RequiresApi(Build.VERSION_CODES.VANILLA_ICE_CREAM)
+    private static List<RectF> findMatches(PdfRenderer.Page page, String query) {
+        List<RectF> matches = new ArrayList<>();
+        for (PageMatchBounds bounds : page.searchText(query)) {
+            matches.addAll(bounds.getBounds());
+        }
+        return matches;
+    }
+
+    /**
+     * Stop the running search, if any
+     */
+    void cancel() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Forget cached text (call when the document changes)
+     */
+    void clearCache() {
+        synchronized (pageTextCache) {
+            cancel();
+            pageTextCache.clear();
+            cacheDocument = null;
+        }
+    }
+
+    void shutdown() {
+        clearCache();
+        searchExecutor.shutdownNow();
+    }
+}
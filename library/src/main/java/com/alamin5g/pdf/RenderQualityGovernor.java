@@ -0,0 +1,134 @@
+package com.alamin5g.pdf;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Picks the size continuous pages are rendered at. Pages are always ARGB_8888 -
+ * PdfRenderer renders into nothing else - so quality is traded by scale only.
+ *
+ * While the user is scrolling or zooming, pages that come into view are rendered
+ * smaller when recent page.render timings and frame intervals show the device
+ * cannot keep up; once input stops for IDLE_DELAY_MS the view asks
+ * again and gets full quality. At any time a page is capped against the screen
+ * size and the view's memory quota, so deep zoom cannot ask for a bitmap the
+ * canvas refuses to draw.
+ *
+ * Render timings arrive from worker threads, everything else from the UI thread.
+ */
+final class RenderQualityGovernor {
+
+    private static final String TAG = "RenderQualityGovernor";
+
+    static final long IDLE_DELAY_MS = 250; // no input for this long counts as idle
+    private static final float SMOOTHING = 0.2f; // weight of the newest sample
+    private static final float LOWER_SCALE = 0.7071f; // half the pixels
+    private static final float REDUCED_SCALE = 0.5f;
+    private static final long MAX_BITMAP_BYTES = 100L * 1024 * 1024; // hardware canvas refuses larger bitmaps
+    private static final int PAGES_PER_QUOTA = 3; // a single page may take this share of the quota
+    private static final int DEVICE_SCALE_LIMIT = 2; // detail beyond 2x the screen's long side is not visible
+
+    // Quality levels while interacting
+    private static final int LEVEL_FULL = 0;
+    private static final int LEVEL_LOWER = 1;   // LOWER_SCALE
+    private static final int LEVEL_REDUCED = 2; // REDUCED_SCALE
+
+    private float renderMsPerMegapixel = -1f; // -1 until the first render is measured
+    private float frameIntervalMs = -1f;      // -1 until two input frames in a row are seen
+    private float refreshIntervalMs = 1000f / 60f;
+    private long lastFrameNanos = 0;
+    private long lastInputTime = 0;
+    private int maxDeviceWidth = Integer.MAX_VALUE;
+
+    /**
+     * @param refreshRate Display refresh rate in Hz
+     * @param longSidePx Longest side of the display in pixels
+     */
+    void setDisplay(float refreshRate, int longSidePx) {
+        if (refreshRate > 0) {
+            refreshIntervalMs = 1000f / refreshRate;
+        }
+        if (longSidePx > 0) {
+            maxDeviceWidth = longSidePx * DEVICE_SCALE_LIMIT;
+        }
+    }
+
+    /**
+     * Called with the duration of each page.render call
+     */
+    synchronized void recordRender(int width, int height, long durationMs) {
+        float megapixels = (long) width * height / 1_000_000f;
+        if (megapixels <= 0) {
+            return;
+        }
+        float sample = durationMs / megapixels;
+        renderMsPerMegapixel = renderMsPerMegapixel < 0 ? sample
+                : renderMsPerMegapixel + SMOOTHING * (sample - renderMsPerMegapixel);
+    }
+
+    /**
+     * Called from the input frame callback each time scroll/zoom input is applied
+     */
+    void onInputFrame(long frameTimeNanos) {
+        long now = SystemClock.uptimeMillis();
+        if (lastFrameNanos != 0 && now - lastInputTime < IDLE_DELAY_MS) {
+            float interval = (frameTimeNanos - lastFrameNanos) / 1_000_000f;
+            frameIntervalMs = frameIntervalMs < 0 ? interval
+                    : frameIntervalMs + SMOOTHING * (interval - frameIntervalMs);
+        }
+        lastFrameNanos = frameTimeNanos;
+        lastInputTime = now;
+    }
+
+    boolean isInteracting() {
+        return SystemClock.uptimeMillis() - lastInputTime < IDLE_DELAY_MS;
+    }
+
+    /**
+     * Bitmap width to render a page at, for a layout where it is width x height
+     * @param bestQuality false renders at LOWER_SCALE even when idle
+     */
+    int renderWidth(int width, int height, long memoryQuota, boolean bestQuality) {
+        int level = level(width, height);
+        if (!bestQuality && level == LEVEL_FULL) {
+            level = LEVEL_LOWER;
+        }
+        float scale = level == LEVEL_REDUCED ? REDUCED_SCALE : level == LEVEL_LOWER ? LOWER_SCALE : 1f;
+        if (width * scale > maxDeviceWidth) {
+            scale = (float) maxDeviceWidth / width;
+        }
+
+        long maxBytes = Math.min(MAX_BITMAP_BYTES, memoryQuota / PAGES_PER_QUOTA);
+        double bytes = (double) width * scale * height * scale * 4; // ARGB_8888
+        if (bytes > maxBytes) {
+            scale *= (float) Math.sqrt(maxBytes / bytes);
+        }
+        if (scale < 1f && Log.isLoggable(TAG, Log.DEBUG)) { // Called per page request - off by default
+            Log.d(TAG, "Page " + width + "x" + height + " rendered at scale " + scale + " (level " + level + ")");
+        }
+        return Math.max(1, Math.min(width, (int) (width * scale)));
+    }
+
+    /**
+     * How far to degrade a page of this size right now - only while interacting,
+     * and only if a full render would cost several frames or frames are already late
+     */
+    private int level(int width, int height) {
+        if (!isInteracting()) {
+            return LEVEL_FULL;
+        }
+        float estimateMs;
+        synchronized (this) {
+            estimateMs = renderMsPerMegapixel < 0 ? 0
+                    : renderMsPerMegapixel * ((long) width * height / 1_000_000f);
+        }
+        boolean janky = frameIntervalMs > refreshIntervalMs * 1.5f;
+        if (estimateMs > refreshIntervalMs * 8 || (janky && estimateMs > refreshIntervalMs * 2)) {
+            return LEVEL_REDUCED;
+        }
+        if (estimateMs > refreshIntervalMs * 3 || janky) {
+            return LEVEL_LOWER;
+        }
+        return LEVEL_FULL;
+    }
+}
@@ -0,0 +1,126 @@
+package com.alamin5g.pdf;
+
+import android.os.Looper;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Counters a PDFView keeps about its own rendering, for catching regressions such as
+ * bitmaps allocated on the scroll path or pages rendered more often than needed.
+ * Obtained with PDFView.getRenderStats(); call reset() before the part being measured.
+ *
+ * Counters are updated from render threads and can be read from any thread.
+ */
+public final class RenderStats {
+
+    private int bitmapAllocations;
+    private long bitmapBytesAllocated;
+    private long peakBitmapBytes;
+    private int renders;
+    private int mainThreadRenders;
+    private final Map<Integer, Integer> rendersPerPage = new HashMap<>();
+    private final BooleanSupplier onMainThread;
+
+    RenderStats() {
+        this(() -> Looper.myLooper() == Looper.getMainLooper());
+    }
+
+    /**
+     * @param onMainThread Whether the calling thread is the main thread - tests supply their own
+     */
+    RenderStats(BooleanSupplier onMainThread) {
+        this.onMainThread = onMainThread;
+    }
+
+    /**
+     * Bitmaps created for rendering pages
+     */
+    public synchronized int getBitmapAllocations() {
+        return bitmapAllocations;
+    }
+
+    /**
+     * Total bytes of all bitmaps created for rendering pages
+     */
+    public synchronized long getBitmapBytesAllocated() {
+        return bitmapBytesAllocated;
+    }
+
+    /**
+     * Most bytes of page bitmaps the view held at once
+     */
+    public synchronized long getPeakBitmapBytes() {
+        return peakBitmapBytes;
+    }
+
+    /**
+     * page.render calls, all pages together
+     */
+    public synchronized int getRenders() {
+        return renders;
+    }
+
+    /**
+     * page.render calls for one page (0-based document page)
+     */
+    public synchronized int getRenders(int page) {
+        Integer count = rendersPerPage.get(page);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Renders of the page rendered most often
+     */
+    public synchronized int getMaxRendersPerPage() {
+        int max = 0;
+        for (int count : rendersPerPage.values()) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+    /**
+     * page.render calls that ran on the main thread - should always be 0
+     */
+    public synchronized int getMainThreadRenders() {
+        return mainThreadRenders;
+    }
+
+    public synchronized void reset() {
+        bitmapAllocations = 0;
+        bitmapBytesAllocated = 0;
+        peakBitmapBytes = 0;
+        renders = 0;
+        mainThreadRenders = 0;
+        rendersPerPage.clear();
+    }
+
+    synchronized void onBitmapAllocated(int width, int height, int bytesPerPixel) {
+        bitmapAllocations++;
+        bitmapBytesAllocated += (long) width * height * bytesPerPixel;
+    }
+
+    synchronized void onPageRendered(int page) {
+        renders++;
+        rendersPerPage.put(page, getRenders(page) + 1);
+        if (onMainThread.getAsBoolean()) {
+            mainThreadRenders++;
+        }
+    }
+
+    synchronized void onBitmapsHeld(long bytes) {
+        peakBitmapBytes = Math.max(peakBitmapBytes, bytes);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RenderStats{allocations=" + bitmapAllocations
+                + ", allocatedKB=" + (bitmapBytesAllocated / 1024)
+                + ", peakKB=" + (peakBitmapBytes / 1024)
+                + ", renders=" + renders
+                + ", maxPerPage=" + getMaxRendersPerPage()
+                + ", mainThread=" + mainThreadRenders + "}";
+    }
+}
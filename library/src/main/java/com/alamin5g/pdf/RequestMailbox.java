@@ -0,0 +1,171 @@
+package com.alamin5g.pdf;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * The scheduling half of DocumentActor: requests on one resource run strictly one
+ * after another, one request per task on whichever executor is current, and their
+ * callbacks are delivered through the callback executor (the main thread).
+ * close() drops what is queued and runs the closer after the request in progress.
+ *
+ * Knows nothing about PdfRenderer, so the scheduling can be tested on the JVM with
+ * a fake resource.
+ */
+final class RequestMailbox<R> {
+
+    /**
+     * Work on the resource. Runs on the mailbox; the resource must not escape it.
+     */
+    interface Request<R, T> {
+        T run(R resource) throws Exception;
+    }
+
+    private final Object lock = new Object();
+    private final ArrayDeque<FutureTask<?>> mailbox = new ArrayDeque<>();
+    private final R resource;
+    private final Executor callbackExecutor;
+    private final Executor closeExecutor;
+    private final Runnable closer;
+
+    private Executor executor;
+    private boolean scheduled = false; // a drain task is queued
+    private boolean running = false;   // a request is in progress
+    private int drainToken = 0;        // only the drain with the current token may run
+    private boolean closed = false;
+
+    /**
+     * @param callbackExecutor Where callbacks run
+     * @param closeExecutor Where the closer runs, after the last request
+     * @param closer Releases the resource
+     */
+    RequestMailbox(R resource, Executor callbackExecutor, Executor closeExecutor, Runnable closer) {
+        this.resource = resource;
+        this.callbackExecutor = callbackExecutor;
+        this.closeExecutor = closeExecutor;
+        this.closer = closer;
+    }
+
+    /**
+     * Where requests run from now on - the lane of the view that took the document over
+     */
+    void setExecutor(Executor executor) {
+        synchronized (lock) {
+            this.executor = executor;
+            if (scheduled) {
+                scheduled = false; // The drain queued on the old lane may never run
+            }
+            schedule();
+        }
+    }
+
+    <T> Future<T> submit(Request<R, T> request) {
+        FutureTask<T> task = new FutureTask<>(() -> request.run(resource));
+        enqueue(task);
+        return task;
+    }
+
+    <T> void submit(Request<R, T> request, DocumentActor.Callback<T> callback) {
+        enqueue(new FutureTask<T>(() -> request.run(resource)) {
+            @Override
+            protected void done() {
+                T result = null;
+                Exception error = null;
+                try {
+                    result = get();
+                } catch (ExecutionException e) {
+                    error = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                } catch (CancellationException | InterruptedException e) {
+                    error = e;
+                }
+                final T finalResult = result;
+                final Exception finalError = error;
+                callbackExecutor.execute(() -> callback.onResult(finalResult, finalError));
+            }
+        });
+    }
+
+    /**
+     * Drop requests that have not started. Their callbacks get a CancellationException.
+     */
+    void cancelQueued() {
+        synchronized (lock) {
+            cancelQueuedLocked();
+        }
+    }
+
+    /**
+     * Drop queued requests and run the closer after the one in progress, on the close
+     * executor. Never blocks the caller. Later requests fail with a CancellationException.
+     */
+    void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cancelQueuedLocked();
+            mailbox.add(new FutureTask<Void>(closer, null));
+            executor = closeExecutor;
+            scheduled = false;
+            schedule();
+        }
+    }
+
+    private void enqueue(FutureTask<?> request) {
+        synchronized (lock) {
+            if (closed) {
+                request.cancel(false);
+                return;
+            }
+            mailbox.add(request);
+            schedule();
+        }
+    }
+
+    private void cancelQueuedLocked() {
+        FutureTask<?> request;
+        while ((request = mailbox.poll()) != null) {
+            request.cancel(false);
+        }
+    }
+
+    /**
+     * Queue one drain task unless one is queued or a request is running (it reschedules)
+     */
+    private void schedule() {
+        if (scheduled || running || mailbox.isEmpty() || executor == null) {
+            return;
+        }
+        scheduled = true;
+        final int token = ++drainToken;
+        executor.execute(() -> drain(token));
+    }
+
+    private void drain(int token) {
+        FutureTask<?> request;
+        synchronized (lock) {
+            if (token != drainToken || running) {
+                return; // Superseded by a drain on another lane
+            }
+            scheduled = false;
+            request = mailbox.poll();
+            if (request == null) {
+                return;
+            }
+            running = true;
+        }
+        try {
+            request.run(); // Failures end up in the future
+        } finally {
+            synchronized (lock) {
+                running = false;
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.alamin5g.pdf;
+
+import android.graphics.Bitmap;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds an open document and its rendered bitmaps across a configuration change.
+ * The old PDFView parks its state here when its activity is being recreated; the
+ * new PDFView with the same id and source takes it back in load(). Anything not
+ * reclaimed within the grace period is closed.
+ * Main thread only.
+ */
+final class RetainedDocuments {
+
+    private static final String TAG = "RetainedDocuments";
+    static final long GRACE_PERIOD_MS = 5000;
+
+    private static final Map<String, Retained> parked = new HashMap<>();
+    private static final Handler handler = new Handler(Looper.getMainLooper());
+
+    private RetainedDocuments() {
+    }
+
+    static void park(String key, Retained retained) {
+        Retained previous = parked.remove(key);
+        if (previous != null) {
+            handler.removeCallbacks(previous.expiry);
+            previous.release();
+        }
+        retained.expiry = () -> {
+            if (parked.get(key) == retained) {
+                parked.remove(key);
+                Log.d(TAG, "Grace period over, closing " + key);
+                retained.release();
+            }
+        };
+        parked.put(key, retained);
+        handler.postDelayed(retained.expiry, GRACE_PERIOD_MS);
+        Log.d(TAG, "Parked " + key);
+    }
+
+    static Retained take(String key) {
+        Retained retained = parked.remove(key);
+        if (retained != null) {
+            handler.removeCallbacks(retained.expiry);
+            Log.d(TAG, "Reattached " + key);
+        }
+        return retained;
+    }
+
+    /**
+     * Everything a PDFView hands over - ownership moves with it
+     */
+    static final class Retained {
+        DocumentActor document;
+
+        // Layout inputs - bitmaps are only reused when these match the new view
+        boolean continuous;
+        boolean bestQuality;
+        int[] pages;
+        int spacing;
+        float zoom;
+
+        // Single page mode - the page on screen is always in the cache
+        PageCache pageCache;
+
+        // Continuous mode
+        List<Bitmap> pageBitmaps;
+        List<Float> pageOffsets;
+        List<Float> pageHeights;
+        float totalContentHeight;
+        int layoutWidth;
+        float[] pageAspects;
+        float estimatedPageAspect;
+
+        private Runnable expiry;
+
+        void releaseBitmaps() {
+            if (pageCache != null) {
+                pageCache.setPinned(null);
+                pageCache.evictAll();
+                pageCache = null;
+            }
+            if (pageBitmaps != null) {
+                for (Bitmap bitmap : pageBitmaps) {
+                    if (bitmap != null && !bitmap.isRecycled()) {
+                        bitmap.recycle();
+                    }
+                }
+                pageBitmaps = null;
+            }
+        }
+
+        void release() {
+            releaseBitmaps();
+            if (document != null) {
+                document.close();
+                document = null;
+            }
+        }
+    }
+}
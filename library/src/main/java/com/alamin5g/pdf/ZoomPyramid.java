@@ -0,0 +1,155 @@
+package com.alamin5g.pdf;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.SparseArray;
+
+/**
+ * Continuous-mode page bitmaps kept at a few discrete zoom levels (1x, 2x and 4x of
+ * fit width) after they are replaced on screen. When the zoom changes, a page is
+ * drawn from the level closest to the new zoom straight away while its exact render
+ * is prepared, so zooming back to a level just viewed shows sharp content at once.
+ *
+ * Each page holds at most one bitmap per level. Over budget, higher levels go first
+ * (they cost the most and cover the least), and within a level the pages farthest
+ * from the viewport.
+ * UI thread only. Bitmaps held here are never in the view's page list at the same time.
+ */
+final class ZoomPyramid {
+
+    private static final String TAG = "ZoomPyramid";
+
+    private static final float[] LEVELS = {1f, 2f, 4f};
+    private static final float MIN_SCALE = 0.5f;
+
+    private final SparseArray<Bitmap[]> pages = new SparseArray<>();
+    private long bytes = 0;
+
+    /**
+     * Keep a bitmap that has just been replaced on screen
+     * @param fitWidth Bitmap width of the page at zoom 1
+     */
+    void put(int page, Bitmap bitmap, int fitWidth) {
+        if (bitmap == null || bitmap.isRecycled() || fitWidth <= 0) {
+            return;
+        }
+        float scale = (float) bitmap.getWidth() / fitWidth;
+        if (scale < MIN_SCALE) {
+            bitmap.recycle(); // Scrubbing previews are not worth keeping as a level
+            return;
+        }
+        int level = levelFor(scale);
+        Bitmap[] levels = pages.get(page);
+        if (levels == null) {
+            levels = new Bitmap[LEVELS.length];
+            pages.put(page, levels);
+        }
+        Bitmap previous = levels[level];
+        if (previous != null) {
+            bytes -= previous.getAllocationByteCount();
+            if (previous != bitmap) {
+                previous.recycle();
+            }
+        }
+        levels[level] = bitmap;
+        bytes += bitmap.getAllocationByteCount();
+    }
+
+    /**
+     * Take out the bitmap closest to targetWidth, if one is closer than currentWidth
+     * @param currentWidth Width of what is on screen now, 0 if nothing
+     * @return the bitmap, now owned by the caller, or null
+     */
+    Bitmap takeCloser(int page, int currentWidth, int targetWidth) {
+        Bitmap[] levels = pages.get(page);
+        if (levels == null || targetWidth <= 0) {
+            return null;
+        }
+        double best = currentWidth > 0 ? distance(currentWidth, targetWidth) : Double.MAX_VALUE;
+        int bestLevel = -1;
+        for (int level = 0; level < levels.length; level++) {
+            Bitmap bitmap = levels[level];
+            if (bitmap == null || bitmap.isRecycled()) {
+                continue;
+            }
+            double d = distance(bitmap.getWidth(), targetWidth);
+            // Ties go to the sharper bitmap
+            if (d < best || (d == best && bestLevel >= 0 && bitmap.getWidth() > levels[bestLevel].getWidth())) {
+                best = d;
+                bestLevel = level;
+            }
+        }
+        if (bestLevel < 0) {
+            return null;
+        }
+        Bitmap bitmap = levels[bestLevel];
+        levels[bestLevel] = null;
+        bytes -= bitmap.getAllocationByteCount();
+        return bitmap;
+    }
+
+    /**
+     * Evict until within maxBytes: highest level first, then farthest from first..last
+     */
+    void trim(long maxBytes, int first, int last) {
+        int evicted = 0;
+        for (int level = LEVELS.length - 1; level >= 0 && bytes > maxBytes; level--) {
+            while (bytes > maxBytes) {
+                int farthest = -1;
+                int farthestDistance = -1;
+                for (int i = 0; i < pages.size(); i++) {
+                    if (pages.valueAt(i)[level] == null) {
+                        continue;
+                    }
+                    int page = pages.keyAt(i);
+                    int d = page < first ? first - page : Math.max(0, page - last);
+                    if (d > farthestDistance) {
+                        farthestDistance = d;
+                        farthest = i;
+                    }
+                }
+                if (farthest < 0) {
+                    break; // Nothing left at this level
+                }
+                Bitmap[] levels = pages.valueAt(farthest);
+                bytes -= levels[level].getAllocationByteCount();
+                levels[level].recycle();
+                levels[level] = null;
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            Log.d(TAG, "Evicted " + evicted + " zoom levels, keeping " + (bytes / 1024) + "KB");
+        }
+    }
+
+    long bytes() {
+        return bytes;
+    }
+
+    void clear() {
+        for (int i = 0; i < pages.size(); i++) {
+            for (Bitmap bitmap : pages.valueAt(i)) {
+                if (bitmap != null && !bitmap.isRecycled()) {
+                    bitmap.recycle();
+                }
+            }
+        }
+        pages.clear();
+        bytes = 0;
+    }
+
+    private static int levelFor(float scale) {
+        int nearest = 0;
+        for (int i = 1; i < LEVELS.length; i++) {
+            if (Math.abs(Math.log(scale / LEVELS[i])) < Math.abs(Math.log(scale / LEVELS[nearest]))) {
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    private static double distance(int width, int targetWidth) {
+        return Math.abs(Math.log((double) width / targetWidth));
+    }
+}
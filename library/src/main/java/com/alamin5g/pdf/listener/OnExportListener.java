@@ -0,0 +1,29 @@
+package com.alamin5g.pdf.listener;
+
+import java.io.File;
+
+/**
+ * Listener for PdfExporter progress. All callbacks run on the main thread.
+ */
+public interface OnExportListener {
+    /**
+     * Called each time a page image has been written
+     * @param page Page number (0-based) in the document
+     * @param file The image file written for it
+     * @param exported Pages written so far
+     * @param total Pages selected for export
+     */
+    void onPageExported(int page, File file, int exported, int total);
+
+    /**
+     * Called once when the export stops without an error
+     * @param exported Pages written
+     * @param cancelled True if it stopped because the export was cancelled
+     */
+    void onExportFinished(int exported, boolean cancelled);
+
+    /**
+     * Called once if the export stops because of an error. Pages already written are kept.
+     */
+    void onExportError(Exception e);
+}
@@ -0,0 +1,14 @@
+package com.alamin5g.pdf.listener;
+
+import com.alamin5g.pdf.FrameStats;
+
+/**
+ * Listener for frame timing of scroll, fling and zoom sessions
+ */
+public interface OnFrameStatsListener {
+    /**
+     * Called on the main thread shortly after each session ends
+     * @param stats Frame durations and jank of the session
+     */
+    void onFrameStats(FrameStats stats);
+}
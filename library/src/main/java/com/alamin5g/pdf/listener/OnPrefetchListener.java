@@ -0,0 +1,36 @@
+package com.alamin5g.pdf.listener;
+
+/**
+ * Listener for PdfPrefetcher progress. All callbacks run on the main thread.
+ */
+public interface OnPrefetchListener {
+    /**
+     * Called while a document downloads, at most every 100 ms per document
+     * @param url The document's URL
+     * @param bytesDownloaded Bytes of this document downloaded so far
+     * @param totalBytes Size of this document (-1 if unknown)
+     */
+    void onItemProgress(String url, long bytesDownloaded, long totalBytes);
+
+    /**
+     * Called once per document
+     * @param url The document's URL
+     * @param error Null if it is now available offline, otherwise why it is not
+     */
+    void onItemFinished(String url, Exception error);
+
+    /**
+     * Called after each document finishes
+     * @param finished Documents finished so far, successfully or not
+     * @param total Documents in the queue
+     */
+    void onProgress(int finished, int total);
+
+    /**
+     * Called once when the queue is done or cancelled
+     * @param succeeded Documents now available offline
+     * @param failed Documents that could not be downloaded
+     * @param cancelled True if cancel() stopped the queue
+     */
+    void onPrefetchFinished(int succeeded, int failed, boolean cancelled);
+}
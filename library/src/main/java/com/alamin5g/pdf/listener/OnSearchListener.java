@@ -0,0 +1,25 @@
+package com.alamin5g.pdf.listener;
+
+import android.graphics.RectF;
+
+import java.util.List;
+
+/**
+ * Listener for full-text search results, streamed page by page
+ */
+public interface OnSearchListener {
+    /**
+     * Called on the main thread each time a page with matches has been scanned
+     * @param query The query these results belong to
+     * @param page Page number (0-based) containing the matches
+     * @param matches Bounds of each match in PDF page coordinates (points)
+     */
+    void onPageResults(String query, int page, List<RectF> matches);
+
+    /**
+     * Called on the main thread once every page has been scanned
+     * @param query The query that finished
+     * @param totalMatches Total number of matches across all pages
+     */
+    void onSearchComplete(String query, int totalMatches);
+}
@@ -0,0 +1,211 @@
+package com.alamin5g.pdf.source;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+
+/**
+ * AES building blocks for decrypting documents piece by piece. GCM encryption is
+ * CTR mode starting at counter IV||2, so both modes decrypt any range with a CTR
+ * cipher positioned at the range's block. The GCM tag is checked separately by
+ * GcmTag, over the ciphertext only, without holding the document in memory.
+ */
+final class AesStreams {
+
+    static final int BLOCK = 16;
+    static final int GCM_IV_LENGTH = 12;
+    static final int GCM_TAG_LENGTH = 16;
+
+    private AesStreams() {
+    }
+
+    /**
+     * CTR cipher producing the key stream from block index onwards
+     * @param initialCounter Counter block of the first ciphertext block
+     */
+    static Cipher ctrAt(SecretKey key, byte[] initialCounter, long block) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance("AES/CTR/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(addToCounter(initialCounter, block)));
+        return cipher;
+    }
+
+    /**
+     * Decrypt ciphertext in place, starting at block index, with a reused CTR cipher
+     * @param data Ciphertext from the start of the block
+     */
+    static void decryptAt(Cipher ctr, SecretKey key, byte[] initialCounter, long block, byte[] data, int length)
+            throws GeneralSecurityException {
+        ctr.init(Cipher.DECRYPT_MODE, key, new IvParameterSpec(addToCounter(initialCounter, block)));
+        // CTR output has the input's length
+        ctr.doFinal(data, 0, length, data, 0);
+    }
+
+    /**
+     * First counter block of GCM data for a 96-bit IV: IV || 00000002
+     */
+    static byte[] gcmInitialCounter(byte[] iv) {
+        byte[] counter = new byte[BLOCK];
+        System.arraycopy(iv, 0, counter, 0, GCM_IV_LENGTH);
+        counter[BLOCK - 1] = 2;
+        return counter;
+    }
+
+    /**
+     * 128-bit big-endian counter + value
+     */
+    static byte[] addToCounter(byte[] counter, long value) {
+        byte[] result = counter.clone();
+        long carry = value;
+        for (int i = BLOCK - 1; i >= 0 && carry != 0; i--) {
+            long sum = (result[i] & 0xff) + (carry & 0xff);
+            result[i] = (byte) sum;
+            carry = (carry >>> 8) + (sum >>> 8);
+        }
+        return result;
+    }
+
+    /**
+     * Incremental GCM tag over ciphertext (no additional authenticated data).
+     * GHASH with 4-bit tables (Shoup's method), then encrypted with counter IV||1.
+     */
+    static final class GcmTag {
+
+        private static final long[] LAST4 = {
+                0x0000, 0x1c20, 0x3840, 0x2460, 0x7080, 0x6ca0, 0x48c0, 0x54e0,
+                0xe100, 0xfd20, 0xd940, 0xc560, 0x9180, 0x8da0, 0xa9c0, 0xb5e0
+        };
+
+        private final long[] tableHigh = new long[16];
+        private final long[] tableLow = new long[16];
+        private final byte[] encryptedJ0;
+        private final byte[] block = new byte[BLOCK];
+        private int blockLength = 0;
+        private long stateHigh = 0;
+        private long stateLow = 0;
+        private long length = 0;
+
+        GcmTag(SecretKey key, byte[] iv) throws GeneralSecurityException {
+            Cipher aes = Cipher.getInstance("AES/ECB/NoPadding");
+            aes.init(Cipher.ENCRYPT_MODE, key);
+            byte[] h = aes.doFinal(new byte[BLOCK]);
+            byte[] j0 = new byte[BLOCK];
+            System.arraycopy(iv, 0, j0, 0, GCM_IV_LENGTH);
+            j0[BLOCK - 1] = 1;
+            encryptedJ0 = aes.doFinal(j0);
+            buildTables(readLong(h, 0), readLong(h, 8));
+        }
+
+        void update(byte[] data, int offset, int count) {
+            length += count;
+            if (blockLength > 0) {
+                int n = Math.min(count, BLOCK - blockLength);
+                System.arraycopy(data, offset, block, blockLength, n);
+                blockLength += n;
+                offset += n;
+                count -= n;
+                if (blockLength < BLOCK) {
+                    return;
+                }
+                absorb(block, 0);
+                blockLength = 0;
+            }
+            while (count >= BLOCK) {
+                absorb(data, offset);
+                offset += BLOCK;
+                count -= BLOCK;
+            }
+            System.arraycopy(data, offset, block, 0, count);
+            blockLength = count;
+        }
+
+        /**
+         * Compare with the stored tag, in constant time
+         */
+        boolean verify(byte[] tag) {
+            if (blockLength > 0) {
+                for (int i = blockLength; i < BLOCK; i++) {
+                    block[i] = 0;
+                }
+                absorb(block, 0);
+                blockLength = 0;
+            }
+            // Length block: 64-bit AAD bit length (0), 64-bit ciphertext bit length
+            stateLow ^= length * 8;
+            multiply();
+            byte[] computed = new byte[BLOCK];
+            writeLong(computed, 0, stateHigh);
+            writeLong(computed, 8, stateLow);
+            for (int i = 0; i < BLOCK; i++) {
+                computed[i] ^= encryptedJ0[i];
+            }
+            return MessageDigest.isEqual(computed, tag);
+        }
+
+        private void absorb(byte[] data, int offset) {
+            stateHigh ^= readLong(data, offset);
+            stateLow ^= readLong(data, offset + 8);
+            multiply();
+        }
+
+        private void buildTables(long high, long low) {
+            tableHigh[8] = high;
+            tableLow[8] = low;
+            for (int i = 4; i > 0; i >>= 1) {
+                long reduce = (low & 1) * 0xe1000000L;
+                low = (high << 63) | (low >>> 1);
+                high = (high >>> 1) ^ (reduce << 32);
+                tableHigh[i] = high;
+                tableLow[i] = low;
+            }
+            for (int i = 2; i <= 8; i *= 2) {
+                for (int j = 1; j < i; j++) {
+                    tableHigh[i + j] = tableHigh[i] ^ tableHigh[j];
+                    tableLow[i + j] = tableLow[i] ^ tableLow[j];
+                }
+            }
+        }
+
+        /**
+         * state = state * H in GF(2^128)
+         */
+        private void multiply() {
+            long high = tableHigh[(int) (stateLow & 0xf)];
+            long low = tableLow[(int) (stateLow & 0xf)];
+            for (int i = 15; i >= 0; i--) {
+                int x = (int) ((i < 8 ? stateHigh >>> (56 - 8 * i) : stateLow >>> (120 - 8 * i)) & 0xff);
+                int lo = x & 0xf;
+                int hi = x >> 4;
+                if (i != 15) {
+                    int rem = (int) (low & 0xf);
+                    low = (high << 60) | (low >>> 4);
+                    high = (high >>> 4) ^ (LAST4[rem] << 48) ^ tableHigh[lo];
+                    low ^= tableLow[lo];
+                }
+                int rem = (int) (low & 0xf);
+                low = (high << 60) | (low >>> 4);
+                high = (high >>> 4) ^ (LAST4[rem] << 48) ^ tableHigh[hi];
+                low ^= tableLow[hi];
+            }
+            stateHigh = high;
+            stateLow = low;
+        }
+
+        private static long readLong(byte[] data, int offset) {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | (data[offset + i] & 0xff);
+            }
+            return value;
+        }
+
+        private static void writeLong(byte[] data, int offset, long value) {
+            for (int i = 7; i >= 0; i--) {
+                data[offset + i] = (byte) value;
+                value >>>= 8;
+            }
+        }
+    }
+}
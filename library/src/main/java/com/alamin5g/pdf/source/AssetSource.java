@@ -0,0 +1,46 @@
+package com.alamin5g.pdf.source;
+
+import android.content.Context;
+import android.os.ParcelFileDescriptor;
+
+import java.io.IOException;
+
+/**
+ * PDF bundled in the app's assets folder
+ */
+public class AssetSource implements DocumentSource {
+
+    private final String assetName;
+
+    public AssetSource(String assetName) {
+        this.assetName = assetName;
+    }
+
+    public String getAssetName() {
+        return assetName;
+    }
+
+    @Override
+    public ParcelFileDescriptor open(Context context) throws IOException {
+        // Assets may be compressed inside the APK, so copy them out first
+        return SourceUtils.openViaTempFile(context, context.getAssets().open(assetName));
+    }
+
+    @Override
+    public String getKey() {
+        return "asset:" + assetName;
+    }
+
+    /**
+     * Assets only change with the APK, and the process does not outlive it
+     */
+    @Override
+    public String getVersion(Context context) {
+        return "apk";
+    }
+
+    @Override
+    public String toString() {
+        return "asset:" + assetName;
+    }
+}
@@ -0,0 +1,29 @@
+package com.alamin5g.pdf.source;
+
+import android.content.Context;
+import android.os.ParcelFileDescriptor;
+
+import java.io.IOException;
+
+/**
+ * PDF held in memory as a byte array. On Android 11+ it is handed to the renderer
+ * through an anonymous memory file, so the content is never written to disk.
+ */
+public class ByteArraySource implements DocumentSource {
+
+    private final byte[] bytes;
+
+    public ByteArraySource(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public ParcelFileDescriptor open(Context context) throws IOException {
+        return SourceUtils.openInMemory(context, bytes);
+    }
+
+    @Override
+    public String toString() {
+        return "bytes:" + bytes.length;
+    }
+}
@@ -0,0 +1,40 @@
+package com.alamin5g.pdf.source;
+
+import android.content.Context;
+import android.os.ParcelFileDescriptor;
+
+import java.io.IOException;
+
+/**
+ * Where a PDF document comes from. Sources only describe the document -
+ * nothing is read until PDFView calls open() from its load() pass, always
+ * on a background thread.
+ */
+public interface DocumentSource {
+    /**
+     * Open a seekable, read-only descriptor that PdfRenderer can use
+     * @param context Context used to reach assets, content resolver or cache dir
+     * @return Descriptor owned by the caller
+     */
+    ParcelFileDescriptor open(Context context) throws IOException;
+
+    /**
+     * Stable identity of the document, used to hand an open document over to the
+     * recreated PDFView after a configuration change
+     * @return Key, or null if the source cannot be identified (it is then reopened)
+     */
+    default String getKey() {
+        return null;
+    }
+
+    /**
+     * Cheap stamp of what is behind the key right now, e.g. a file's size and
+     * modification time. A document kept open under getKey() is only reused while
+     * its stamp is unchanged. Blocking - called off the main thread, before open().
+     * @return Stamp compared with equals(), or null if unknown (the document is then
+     *         always opened again)
+     */
+    default String getVersion(Context context) {
+        return null;
+    }
+}
@@ -0,0 +1,383 @@
+package com.alamin5g.pdf.source;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.ParcelFileDescriptor;
+import android.os.ProxyFileDescriptorCallback;
+import android.os.storage.StorageManager;
+import android.system.ErrnoException;
+import android.system.OsConstants;
+import android.util.Log;
+
+import androidx.annotation.RequiresApi;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+
+/**
+ * PDF stored encrypted with AES, decrypted without plaintext ever touching the disk
+ * and without the document on the heap. Two ways, picked by open():
+ * <ul>
+ * <li>Android 11+: decrypted in 64 KB chunks into an anonymous memory file (memfd)
+ * that the renderer reads like any file</li>
+ * <li>Android 8+, or with decryptOnDemand(true): a proxy descriptor whose reads
+ * decrypt just the requested range from the encrypted file - nothing is kept in
+ * memory, at the cost of a round trip per read</li>
+ * </ul>
+ * GCM documents are authenticated before the renderer sees any byte; a wrong key or
+ * a modified file fails open() with an IOException. The bytes served are the bytes
+ * that were authenticated: the memfd is itself a copy, and on demand the ciphertext
+ * is copied to an unlinked file in the cache dir while its tag is checked, so later
+ * writes to the original file cannot reach the renderer. Not supported before Android 8.
+ */
+public class EncryptedFileSource implements DocumentSource {
+
+    private static final String TAG = "EncryptedFileSource";
+    private static final int CHUNK = 64 * 1024;
+
+    /**
+     * File layouts, as written by javax.crypto.Cipher. The IV can instead be kept
+     * outside the file and passed to the constructor.
+     */
+    public enum Mode {
+        /** [12-byte IV] ciphertext [16-byte tag] - "AES/GCM/NoPadding", 96-bit IV, 128-bit tag */
+        GCM,
+        /** [16-byte IV] ciphertext - "AES/CTR/NoPadding", the IV being the first counter block */
+        CTR
+    }
+
+    private final File file;
+    private final SecretKey key;
+    private final Mode mode;
+    private final byte[] iv;
+    private boolean decryptOnDemand = false;
+
+    /**
+     * Encrypted file starting with its IV
+     */
+    public EncryptedFileSource(File file, SecretKey key, Mode mode) {
+        this(file, key, mode, null);
+    }
+
+    /**
+     * @param iv IV kept outside the file (12 bytes for GCM, 16 for CTR), or null if
+     *           the file starts with it
+     */
+    public EncryptedFileSource(File file, SecretKey key, Mode mode, byte[] iv) {
+        if (iv != null && iv.length != ivLength(mode)) {
+            throw new IllegalArgumentException(mode + " needs a " + ivLength(mode) + "-byte IV");
+        }
+        this.file = file;
+        this.key = key;
+        this.mode = mode;
+        this.iv = iv != null ? iv.clone() : null;
+    }
+
+    /**
+     * Decrypt each read on demand instead of the whole document up front (Android 8+).
+     * Uses no memory for the plaintext, but every read the renderer makes is slower.
+     */
+    public EncryptedFileSource decryptOnDemand(boolean decryptOnDemand) {
+        this.decryptOnDemand = decryptOnDemand;
+        return this;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public ParcelFileDescriptor open(Context context) throws IOException {
+        Layout layout = readLayout();
+        boolean proxy = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O;
+        if (!(decryptOnDemand && proxy) && Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            FileDescriptor memory = SourceUtils.createMemoryFile();
+            if (memory != null) {
+                return decryptIntoMemory(memory, layout);
+            }
+        }
+        if (proxy) {
+            return openOnDemand(context, layout);
+        }
+        throw new IOException("Encrypted documents need Android 8.0 or later");
+    }
+
+    /**
+     * No key, so encrypted documents stay out of PageMetadataStore (page sizes and a
+     * fingerprint in plain text) and DocumentHandleCache (decrypted descriptor kept
+     * open). They are decrypted again after a configuration change.
+     */
+    @Override
+    public String getKey() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return "encrypted:" + file.getAbsolutePath();
+    }
+
+    /**
+     * Where the ciphertext is, and the IV
+     */
+    private static final class Layout {
+        final byte[] iv;
+        final long start;
+        final long length;
+
+        Layout(byte[] iv, long start, long length) {
+            this.iv = iv;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    private Layout readLayout() throws IOException {
+        byte[] layoutIv = iv;
+        long start = 0;
+        if (layoutIv == null) {
+            layoutIv = new byte[ivLength(mode)];
+            try (InputStream in = new FileInputStream(file)) {
+                readFully(in, layoutIv);
+            }
+            start = layoutIv.length;
+        }
+        long length = file.length() - start - (mode == Mode.GCM ? AesStreams.GCM_TAG_LENGTH : 0);
+        if (length < 0) {
+            throw new IOException("Not an encrypted document, too short: " + file);
+        }
+        return new Layout(layoutIv, start, length);
+    }
+
+    /**
+     * Decrypt chunk by chunk into the memfd; for GCM it is only handed out once the tag matched
+     */
+    private ParcelFileDescriptor decryptIntoMemory(FileDescriptor memory, Layout layout) throws IOException {
+        byte[] buffer = new byte[CHUNK];
+        byte[] plain = new byte[CHUNK + AesStreams.BLOCK];
+        try (InputStream in = new FileInputStream(file)) {
+            skipFully(in, layout.start);
+            Cipher cipher = AesStreams.ctrAt(key, initialCounter(layout), 0);
+            AesStreams.GcmTag tag = mode == Mode.GCM ? new AesStreams.GcmTag(key, layout.iv) : null;
+            long remaining = layout.length;
+            while (remaining > 0) {
+                int count = in.read(buffer, 0, (int) Math.min(CHUNK, remaining));
+                if (count < 0) {
+                    throw new EOFException("Encrypted document ends early: " + file);
+                }
+                if (tag != null) {
+                    tag.update(buffer, 0, count);
+                }
+                SourceUtils.writeFully(memory, plain, 0, cipher.update(buffer, 0, count, plain));
+                remaining -= count;
+            }
+            SourceUtils.writeFully(memory, plain, 0, cipher.doFinal(plain, 0));
+            if (tag != null) {
+                byte[] stored = new byte[AesStreams.GCM_TAG_LENGTH];
+                readFully(in, stored);
+                if (!tag.verify(stored)) {
+                    throw new IOException("Encrypted document failed authentication - wrong key or modified file");
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            SourceUtils.closeQuietly(memory);
+            throw new IOException("Cannot decrypt " + file + ": " + e.getMessage(), e);
+        } catch (ErrnoException e) {
+            SourceUtils.closeQuietly(memory);
+            throw e.rethrowAsIOException();
+        } catch (IOException | RuntimeException e) {
+            SourceUtils.closeQuietly(memory);
+            throw e;
+        } finally {
+            Arrays.fill(plain, (byte) 0);
+        }
+        Log.d(TAG, "Decrypted " + layout.length + " bytes into memory");
+        try {
+            return SourceUtils.finishMemoryFile(memory); // Closes the raw descriptor either way
+        } catch (ErrnoException e) {
+            throw e.rethrowAsIOException();
+        }
+    }
+
+    @RequiresApi(Build.VERSION_CODES.O)
+    private ParcelFileDescriptor openOnDemand(Context context, Layout layout) throws IOException {
+        RandomAccessFile input;
+        if (mode == Mode.GCM) {
+            input = snapshot(context, layout);
+            layout = new Layout(layout.iv, 0, layout.length); // The copy is just the ciphertext
+        } else {
+            input = new RandomAccessFile(file, "r");
+        }
+        StorageManager storage = (StorageManager) context.getSystemService(Context.STORAGE_SERVICE);
+        HandlerThread thread = new HandlerThread("PDFView-decrypt");
+        thread.start();
+        try {
+            ParcelFileDescriptor descriptor = storage.openProxyFileDescriptor(ParcelFileDescriptor.MODE_READ_ONLY,
+                    new DecryptingCallback(input, layout, thread), new Handler(thread.getLooper()));
+            Log.d(TAG, "Decrypting " + layout.length + " bytes on demand");
+            return descriptor;
+        } catch (GeneralSecurityException e) {
+            input.close();
+            thread.quitSafely();
+            throw new IOException("Cannot decrypt " + file + ": " + e.getMessage(), e);
+        } catch (IOException | RuntimeException e) {
+            input.close();
+            thread.quitSafely();
+            throw e;
+        }
+    }
+
+    /**
+     * Copy the ciphertext to a temporary file and check the GCM tag over what was
+     * copied, decrypting nothing. The file is unlinked once open, so reads decrypt
+     * exactly the authenticated bytes even if the original changes afterwards.
+     */
+    private RandomAccessFile snapshot(Context context, Layout layout) throws IOException {
+        File copy = File.createTempFile("pdf_encrypted", ".bin", context.getCacheDir());
+        try {
+            try (InputStream in = new FileInputStream(file); OutputStream out = new FileOutputStream(copy)) {
+                authenticate(in, layout, out);
+            }
+            return new RandomAccessFile(copy, "r");
+        } finally {
+            if (!copy.delete()) {
+                copy.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Check the GCM tag over the whole ciphertext, writing it to out as it is read
+     */
+    private void authenticate(InputStream in, Layout layout, OutputStream out) throws IOException {
+        byte[] buffer = new byte[CHUNK];
+        try {
+            skipFully(in, layout.start);
+            AesStreams.GcmTag tag = new AesStreams.GcmTag(key, layout.iv);
+            long remaining = layout.length;
+            while (remaining > 0) {
+                int count = in.read(buffer, 0, (int) Math.min(CHUNK, remaining));
+                if (count < 0) {
+                    throw new EOFException("Encrypted document ends early: " + file);
+                }
+                tag.update(buffer, 0, count);
+                out.write(buffer, 0, count);
+                remaining -= count;
+            }
+            byte[] stored = new byte[AesStreams.GCM_TAG_LENGTH];
+            readFully(in, stored);
+            if (!tag.verify(stored)) {
+                throw new IOException("Encrypted document failed authentication - wrong key or modified file");
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Cannot decrypt " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Serves reads of the proxy descriptor on its own thread, decrypting only the
+     * blocks that cover the requested range
+     */
+    @RequiresApi(Build.VERSION_CODES.O)
+    private final class DecryptingCallback extends ProxyFileDescriptorCallback {
+
+        private final RandomAccessFile input;
+        private final Layout layout;
+        private final HandlerThread thread;
+        private final byte[] initialCounter;
+        private final Cipher cipher;
+        private byte[] buffer = new byte[CHUNK];
+
+        DecryptingCallback(RandomAccessFile input, Layout layout, HandlerThread thread)
+                throws GeneralSecurityException {
+            this.input = input;
+            this.layout = layout;
+            this.thread = thread;
+            this.initialCounter = initialCounter(layout);
+            this.cipher = Cipher.getInstance("AES/CTR/NoPadding");
+        }
+
+        @Override
+        public long onGetSize() {
+            return layout.length;
+        }
+
+        @Override
+        public int onRead(long offset, int size, byte[] data) throws ErrnoException {
+            if (offset >= layout.length) {
+                return 0;
+            }
+            int count = (int) Math.min(size, layout.length - offset);
+            long block = offset / AesStreams.BLOCK;
+            int skip = (int) (offset % AesStreams.BLOCK);
+            if (buffer.length < skip + count) {
+                buffer = new byte[skip + count];
+            }
+            try {
+                input.seek(layout.start + block * AesStreams.BLOCK);
+                input.readFully(buffer, 0, skip + count);
+                AesStreams.decryptAt(cipher, key, initialCounter, block, buffer, skip + count);
+                System.arraycopy(buffer, skip, data, 0, count);
+                return count;
+            } catch (IOException | GeneralSecurityException e) {
+                Log.e(TAG, "Cannot decrypt at " + offset + ": " + e.getMessage());
+                throw new ErrnoException("onRead", OsConstants.EIO);
+            } finally {
+                Arrays.fill(buffer, 0, skip + count, (byte) 0);
+            }
+        }
+
+        @Override
+        public void onRelease() {
+            try {
+                input.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Error closing encrypted file: " + e.getMessage());
+            }
+            thread.quitSafely();
+        }
+    }
+
+    private byte[] initialCounter(Layout layout) {
+        return mode == Mode.GCM ? AesStreams.gcmInitialCounter(layout.iv) : layout.iv;
+    }
+
+    private static int ivLength(Mode mode) {
+        return mode == Mode.GCM ? AesStreams.GCM_IV_LENGTH : AesStreams.BLOCK;
+    }
+
+    private static void readFully(InputStream in, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            int count = in.read(bytes, offset, bytes.length - offset);
+            if (count < 0) {
+                throw new EOFException("Encrypted document ends early");
+            }
+            offset += count;
+        }
+    }
+
+    private static void skipFully(InputStream in, long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                throw new EOFException("Encrypted document ends early");
+            }
+            count -= skipped;
+        }
+    }
+}
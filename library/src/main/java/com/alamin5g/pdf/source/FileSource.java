@@ -0,0 +1,43 @@
+package com.alamin5g.pdf.source;
+
+import android.content.Context;
+import android.os.ParcelFileDescriptor;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * PDF stored as a local file
+ */
+public class FileSource implements DocumentSource {
+
+    private final File file;
+
+    public FileSource(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public ParcelFileDescriptor open(Context context) throws IOException {
+        return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+    }
+
+    @Override
+    public String getKey() {
+        return "file:" + file.getAbsolutePath();
+    }
+
+    @Override
+    public String getVersion(Context context) {
+        return SourceUtils.fileVersion(file);
+    }
+
+    @Override
+    public String toString() {
+        return "file:" + file.getAbsolutePath();
+    }
+}
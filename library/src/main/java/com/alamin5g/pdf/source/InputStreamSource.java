@@ -0,0 +1,31 @@
+package com.alamin5g.pdf.source;
+
+import android.content.Context;
+import android.os.ParcelFileDescriptor;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PDF read from an InputStream. The stream is consumed and closed by open(),
+ * so this source can only be opened once. On Android 11+ the data is kept in an
+ * anonymous memory file instead of a temporary file.
+ */
+public class InputStreamSource implements DocumentSource {
+
+    private final InputStream inputStream;
+
+    public InputStreamSource(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    @Override
+    public ParcelFileDescriptor open(Context context) throws IOException {
+        return SourceUtils.openInMemory(context, inputStream);
+    }
+
+    @Override
+    public String toString() {
+        return "stream";
+    }
+}
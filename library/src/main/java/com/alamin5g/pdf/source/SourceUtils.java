@@ -0,0 +1,177 @@
+package com.alamin5g.pdf.source;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.ParcelFileDescriptor;
+import android.system.ErrnoException;
+import android.system.Os;
+import android.system.OsConstants;
+import android.util.Log;
+
+import androidx.annotation.RequiresApi;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helpers shared by the document sources
+ */
+public final class SourceUtils {
+
+    private static final String TAG = "SourceUtils";
+
+    private SourceUtils() {
+    }
+
+    /**
+     * File name for a cache entry of a URL or document key: the first 128 bits of
+     * its SHA-256 in hex. Used by the download, offline and page size caches.
+     */
+    public static String cacheName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                name.append(String.format("%02x", digest[i]));
+            }
+            return name.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+
+    /**
+     * Open in-memory PDF data as a seekable descriptor. On Android 11+ the data goes
+     * into an anonymous memory file (memfd) and never touches the disk; older versions,
+     * or kernels without memfd, fall back to a temporary file.
+     */
+    static ParcelFileDescriptor openInMemory(Context context, byte[] bytes) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            FileDescriptor memory = createMemoryFile();
+            if (memory != null) {
+                try {
+                    writeFully(memory, bytes, 0, bytes.length);
+                    return finishMemoryFile(memory);
+                } catch (ErrnoException e) {
+                    closeQuietly(memory);
+                    throw e.rethrowAsIOException();
+                }
+            }
+        }
+        return openViaTempFile(context, new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * Same as openInMemory(Context, byte[]) for a stream, which is consumed and closed
+     */
+    static ParcelFileDescriptor openInMemory(Context context, InputStream inputStream) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            FileDescriptor memory = createMemoryFile();
+            if (memory != null) {
+                try (InputStream in = inputStream) {
+                    byte[] buffer = new byte[64 * 1024];
+                    int length;
+                    while ((length = in.read(buffer)) > 0) {
+                        writeFully(memory, buffer, 0, length);
+                    }
+                    return finishMemoryFile(memory);
+                } catch (ErrnoException e) {
+                    closeQuietly(memory);
+                    throw e.rethrowAsIOException();
+                } catch (IOException | RuntimeException e) {
+                    closeQuietly(memory);
+                    throw e;
+                }
+            }
+        }
+        return openViaTempFile(context, inputStream);
+    }
+
+    /**
+     * @return the memfd, or null if the kernel does not support it
+     */
+    @RequiresApi(Build.VERSION_CODES.R)
+    static FileDescriptor createMemoryFile() {
+        try {
+            return Os.memfd_create("pdf", OsConstants.MFD_CLOEXEC);
+        } catch (ErrnoException e) {
+            Log.w(TAG, "memfd_create unavailable, using a temporary file: " + e.getMessage());
+            return null;
+        }
+    }
+
+    static void writeFully(FileDescriptor fd, byte[] bytes, int offset, int count)
+            throws ErrnoException, IOException {
+        while (count > 0) {
+            int written = Os.write(fd, bytes, offset, count);
+            offset += written;
+            count -= written;
+        }
+    }
+
+    /**
+     * Rewind the written memfd and wrap it; the raw descriptor is closed either way
+     */
+    static ParcelFileDescriptor finishMemoryFile(FileDescriptor memory) throws ErrnoException, IOException {
+        try {
+            Os.lseek(memory, 0, OsConstants.SEEK_SET);
+            return ParcelFileDescriptor.dup(memory);
+        } finally {
+            closeQuietly(memory);
+        }
+    }
+
+    /**
+     * Size and modification time of a file, as a DocumentSource version
+     */
+    static String fileVersion(File file) {
+        return file.length() + ":" + file.lastModified();
+    }
+
+    static void closeQuietly(FileDescriptor fd) {
+        try {
+            Os.close(fd);
+        } catch (ErrnoException e) {
+            Log.w(TAG, "Error closing memory file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Copy a stream into a temporary file in the cache dir and open it.
+     * PdfRenderer needs a seekable descriptor, which streams cannot provide.
+     */
+    static ParcelFileDescriptor openViaTempFile(Context context, InputStream inputStream) throws IOException {
+        File tempFile = File.createTempFile("pdf_temp", ".pdf", context.getCacheDir());
+        try {
+            try (InputStream in = inputStream; FileOutputStream outputStream = new FileOutputStream(tempFile)) {
+                byte[] buffer = new byte[8192];
+                int length;
+                while ((length = in.read(buffer)) > 0) {
+                    outputStream.write(buffer, 0, length);
+                }
+            }
+            return openAndDelete(tempFile);
+        } catch (IOException | RuntimeException e) {
+            tempFile.delete(); // Don't leave a partial copy in the cache dir
+            throw e;
+        }
+    }
+
+    /**
+     * Open a temporary file and unlink it right away - the descriptor keeps the data alive
+     */
+    static ParcelFileDescriptor openAndDelete(File tempFile) throws IOException {
+        ParcelFileDescriptor descriptor = ParcelFileDescriptor.open(tempFile, ParcelFileDescriptor.MODE_READ_ONLY);
+        if (!tempFile.delete()) {
+            tempFile.deleteOnExit();
+        }
+        return descriptor;
+    }
+}
@@ -0,0 +1,69 @@
+package com.alamin5g.pdf.source;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.DocumentsContract;
+import android.provider.OpenableColumns;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PDF behind a content:// or file:// URI
+ */
+public class UriSource implements DocumentSource {
+
+    private final Uri uri;
+
+    public UriSource(Uri uri) {
+        this.uri = uri;
+    }
+
+    public Uri getUri() {
+        return uri;
+    }
+
+    @Override
+    public ParcelFileDescriptor open(Context context) throws IOException {
+        InputStream inputStream = context.getContentResolver().openInputStream(uri);
+        if (inputStream == null) {
+            throw new IOException("Cannot open input stream from URI: " + uri);
+        }
+        return SourceUtils.openViaTempFile(context, inputStream);
+    }
+
+    @Override
+    public String getKey() {
+        return "uri:" + uri;
+    }
+
+    /**
+     * Size and last modification time as reported by the provider; null if it
+     * reports neither
+     */
+    @Override
+    public String getVersion(Context context) {
+        try (Cursor cursor = context.getContentResolver().query(uri, null, null, null, null)) {
+            if (cursor == null || !cursor.moveToFirst()) {
+                return null;
+            }
+            String size = column(cursor, OpenableColumns.SIZE);
+            String modified = column(cursor, DocumentsContract.Document.COLUMN_LAST_MODIFIED);
+            return size != null || modified != null ? size + ":" + modified : null;
+        } catch (RuntimeException e) {
+            return null; // e.g. permission revoked - open() reports it
+        }
+    }
+
+    private static String column(Cursor cursor, String name) {
+        int index = cursor.getColumnIndex(name);
+        return index >= 0 && !cursor.isNull(index) ? cursor.getString(index) : null;
+    }
+
+    @Override
+    public String toString() {
+        return "uri:" + uri;
+    }
+}
@@ -0,0 +1,419 @@
+package com.alamin5g.pdf.source;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.ParcelFileDescriptor;
+import android.util.Log;
+
+import com.alamin5g.pdf.listener.OnDownloadProgressListener;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * PDF downloaded from an HTTP/HTTPS URL when opened.
+ *
+ * The download goes to a partial file in the cache dir. If it is cancelled or the
+ * connection drops, the partial file is kept and the next attempt resumes it with
+ * a Range request, as long as the server sent an ETag or Last-Modified to validate
+ * against. Partial files left for more than a day are deleted.
+ *
+ * Documents downloaded ahead with prefetch() (see PdfPrefetcher) are kept in an
+ * offline store in app storage, which the system does not clear like the cache
+ * dir; open() uses that copy without any network access.
+ */
+public class UrlSource implements DocumentSource {
+
+    private static final String TAG = "UrlSource";
+    private static final String DOWNLOAD_DIR = "pdf_downloads";
+    private static final String OFFLINE_DIR = "pdf_offline"; // complete prefetched documents, in no-backup storage
+    private static final long WAIT_POLL_MS = 200; // how often a waiting prefetch checks for cancellation
+    private static final long PARTIAL_MAX_AGE_MS = 24 * 60 * 60 * 1000L;
+    private static final int HTTP_RANGE_NOT_SATISFIABLE = 416; // No HttpURLConnection constant
+
+    // Partial files being written right now - a second open() of the same URL in
+    // parallel goes to a throwaway temp file instead, a prefetch() waits for it.
+    // Notified whenever one is removed.
+    private static final Set<String> activeDownloads = new HashSet<>();
+
+    private final String url;
+    private OnDownloadProgressListener progressListener;
+
+    public UrlSource(String url) {
+        this.url = url;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Receives progress from the downloading thread
+     */
+    public void setOnDownloadProgressListener(OnDownloadProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    @Override
+    public ParcelFileDescriptor open(Context context) throws IOException {
+        return open(context, null);
+    }
+
+    /**
+     * Download and open, resuming a partial file from an earlier attempt
+     * @param signal Cancels the transfer (the partial file is kept); may be null
+     * @throws OperationCanceledException if cancelled
+     */
+    public ParcelFileDescriptor open(Context context, CancellationSignal signal) throws IOException {
+        if (url == null || url.trim().isEmpty()) {
+            throw new IllegalArgumentException("URL cannot be null or empty");
+        }
+
+        File offline = offlineFile(context);
+        if (offline.isFile()) {
+            Log.d(TAG, "Opening offline copy of " + url);
+            return ParcelFileDescriptor.open(offline, ParcelFileDescriptor.MODE_READ_ONLY);
+        }
+
+        File dir = new File(context.getCacheDir(), DOWNLOAD_DIR);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create download directory: " + dir);
+        }
+        deleteStalePartials(dir);
+
+        String name = SourceUtils.cacheName(url);
+        boolean resumable;
+        synchronized (activeDownloads) {
+            resumable = activeDownloads.add(name);
+        }
+        try {
+            if (resumable) {
+                File partial = new File(dir, name + ".part");
+                File validatorFile = new File(dir, name + ".validator");
+                download(partial, validatorFile, null, signal);
+                validatorFile.delete(); // Complete - nothing left to resume
+                return SourceUtils.openAndDelete(partial);
+            }
+            Log.d(TAG, "Already downloading " + url + " elsewhere, using a temporary file");
+            File tempFile = File.createTempFile("pdf_download", ".pdf", context.getCacheDir());
+            try {
+                download(tempFile, null, null, signal);
+            } catch (IOException | RuntimeException e) {
+                tempFile.delete();
+                throw e;
+            }
+            return SourceUtils.openAndDelete(tempFile);
+        } finally {
+            if (resumable) {
+                synchronized (activeDownloads) {
+                    activeDownloads.remove(name);
+                    activeDownloads.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Download into the offline store, where open() then finds it without network access.
+     * A copy already there is revalidated with its ETag/Last-Modified and only downloaded
+     * again if the server reports a change. If the URL is being downloaded right now (e.g.
+     * by a PDFView), this waits for that download first. Blocking - call off the main thread.
+     * @param signal Cancels the transfer; the partial file is kept for resuming. May be null
+     * @return the offline copy
+     * @throws OperationCanceledException if cancelled
+     */
+    public File prefetch(Context context, CancellationSignal signal) throws IOException {
+        if (url == null || url.trim().isEmpty()) {
+            throw new IllegalArgumentException("URL cannot be null or empty");
+        }
+        File dir = new File(context.getCacheDir(), DOWNLOAD_DIR);
+        File offlineDir = offlineDir(context);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create download directory: " + dir);
+        }
+        if (!offlineDir.isDirectory() && !offlineDir.mkdirs()) {
+            throw new IOException("Cannot create offline directory: " + offlineDir);
+        }
+        deleteStalePartials(dir);
+
+        String name = SourceUtils.cacheName(url);
+        synchronized (activeDownloads) {
+            while (!activeDownloads.add(name)) {
+                // open() unlinks its download once opened, so there is nothing to share -
+                // wait until it is done instead of failing this document
+                if (signal != null) {
+                    signal.throwIfCanceled();
+                }
+                try {
+                    activeDownloads.wait(WAIT_POLL_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for " + url);
+                }
+            }
+        }
+        File offline = new File(offlineDir, name + ".pdf");
+        File offlineValidator = new File(offlineDir, name + ".validator");
+        try {
+            String current = offline.isFile() ? readValidator(offlineValidator) : null;
+            File partial = new File(dir, name + ".part");
+            File validatorFile = new File(dir, name + ".validator");
+            if (!download(partial, validatorFile, current, signal)) {
+                Log.d(TAG, "Offline copy of " + url + " is up to date");
+                return offline;
+            }
+            // Replaced in one step, so open() never sees a half-written copy
+            if (!partial.renameTo(offline)) {
+                throw new IOException("Cannot move download to " + offline);
+            }
+            if (!validatorFile.isFile() || !validatorFile.renameTo(offlineValidator)) {
+                offlineValidator.delete(); // Nothing to revalidate against next time
+                validatorFile.delete();
+            }
+            Log.d(TAG, "Stored offline copy of " + url);
+            return offline;
+        } finally {
+            synchronized (activeDownloads) {
+                activeDownloads.remove(name);
+                activeDownloads.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * True if prefetch() has stored this document, so open() needs no network
+     */
+    public boolean isAvailableOffline(Context context) {
+        return offlineFile(context).isFile();
+    }
+
+    /**
+     * Forget the offline copy; the next open() downloads again
+     */
+    public boolean deleteOfflineCopy(Context context) {
+        File offline = offlineFile(context);
+        new File(offline.getParentFile(), SourceUtils.cacheName(url) + ".validator").delete();
+        return offline.delete();
+    }
+
+    private File offlineFile(Context context) {
+        return new File(offlineDir(context), SourceUtils.cacheName(url) + ".pdf");
+    }
+
+    /**
+     * Not the cache dir - the system may clear that when storage runs low, and
+     * prefetched documents have to be there when the device is offline
+     */
+    private static File offlineDir(Context context) {
+        return new File(context.getNoBackupFilesDir(), OFFLINE_DIR);
+    }
+
+    /**
+     * Download into target, appending to what is already there when the server allows it
+     * @param validatorFile Where the ETag/Last-Modified is kept for resuming; null disables resume
+     * @param revalidate Validator of a complete copy held elsewhere - sent as a condition; may be null
+     * @return false if the server answered that the revalidated copy has not changed
+     */
+    private boolean download(File target, File validatorFile, String revalidate, CancellationSignal signal) throws IOException {
+        long existing = target.length();
+        String validator = existing > 0 && validatorFile != null ? readValidator(validatorFile) : null;
+        if (validator == null) {
+            existing = 0; // Nothing safe to resume against
+        }
+
+        Log.d(TAG, "Downloading PDF from URL: " + url + (existing > 0 ? " (resuming at " + existing + " bytes)" : ""));
+
+        URL pdfUrl = new URL(url);
+        HttpURLConnection connection = (HttpURLConnection) pdfUrl.openConnection();
+        if (signal != null) {
+            signal.throwIfCanceled();
+            // Disconnecting unblocks a read that is waiting on the network
+            signal.setOnCancelListener(connection::disconnect);
+        }
+        try {
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(30000); // 30 seconds
+            connection.setReadTimeout(60000);    // 60 seconds
+
+            // Set user agent to avoid blocking
+            connection.setRequestProperty("User-Agent", "Alamin5G-PDF-Viewer/1.0.10");
+            if (existing > 0) {
+                connection.setRequestProperty("Range", "bytes=" + existing + "-");
+                connection.setRequestProperty("If-Range", validator);
+            }
+            if (revalidate != null) {
+                // ETags are quoted (optionally W/-prefixed); anything else is a Last-Modified date
+                boolean etag = revalidate.startsWith("\"") || revalidate.startsWith("W/");
+                connection.setRequestProperty(etag ? "If-None-Match" : "If-Modified-Since", revalidate);
+            }
+
+            int responseCode = connection.getResponseCode();
+            boolean append;
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && revalidate != null) {
+                return false;
+            } else if (responseCode == HttpURLConnection.HTTP_PARTIAL && existing > 0) {
+                append = true;
+            } else if (responseCode == HTTP_RANGE_NOT_SATISFIABLE && existing > 0) {
+                // Asked for the bytes after the end: fine if the partial file already is the whole document
+                if (existing == rangeTotal(connection) && validator.equals(responseValidator(connection))) {
+                    Log.d(TAG, "Partial download of " + url + " is already complete");
+                    if (progressListener != null) {
+                        progressListener.onDownloadProgress(existing, existing, 100);
+                    }
+                    return true;
+                }
+                Log.d(TAG, "Cannot resume " + url + ", downloading again");
+                target.delete();
+                if (validatorFile != null) {
+                    validatorFile.delete();
+                }
+                connection.disconnect();
+                return download(target, validatorFile, revalidate, signal); // Empty now - no Range, so no second retry
+            } else if (responseCode == HttpURLConnection.HTTP_OK) {
+                append = false; // Full body - the document changed or ranges are not supported
+                existing = 0;
+                if (validatorFile != null) {
+                    writeValidator(validatorFile, connection);
+                }
+            } else {
+                // The server refused - a partial file for it is worthless
+                target.delete();
+                if (validatorFile != null) {
+                    validatorFile.delete();
+                }
+                throw new IOException("HTTP error code: " + responseCode);
+            }
+
+            // Get file size for progress tracking
+            long contentLength = connection.getContentLengthLong();
+            long totalBytes = contentLength >= 0 ? existing + contentLength : -1;
+            Log.d(TAG, "PDF file size: " + totalBytes + " bytes");
+
+            try (InputStream inputStream = connection.getInputStream();
+                 FileOutputStream outputStream = new FileOutputStream(target, append)) {
+                // Download with progress tracking
+                byte[] buffer = new byte[8192];
+                long bytesDownloaded = existing;
+                int bytesRead;
+
+                while ((bytesRead = inputStream.read(buffer)) != -1) {
+                    if (signal != null && signal.isCanceled()) {
+                        throw new OperationCanceledException();
+                    }
+                    outputStream.write(buffer, 0, bytesRead);
+                    bytesDownloaded += bytesRead;
+
+                    // Report progress
+                    if (progressListener != null) {
+                        int progress = totalBytes > 0 ? (int) ((bytesDownloaded * 100) / totalBytes) : -1;
+                        progressListener.onDownloadProgress(bytesDownloaded, totalBytes, progress);
+                    }
+                }
+            }
+
+            Log.d(TAG, "PDF downloaded successfully: " + target.getAbsolutePath());
+            return true;
+        } catch (IOException e) {
+            if (signal != null && signal.isCanceled()) {
+                // The disconnect surfaced as an I/O error
+                Log.d(TAG, "Download cancelled, kept " + target.length() + " bytes for resume");
+                throw new OperationCanceledException();
+            }
+            throw e;
+        } finally {
+            if (signal != null) {
+                signal.setOnCancelListener(null);
+            }
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Document length from a "Content-Range: bytes *&#47;length" header, or -1
+     */
+    private static long rangeTotal(HttpURLConnection connection) {
+        String range = connection.getHeaderField("Content-Range");
+        int slash = range != null ? range.lastIndexOf('/') : -1;
+        if (slash < 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(range.substring(slash + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1; // "*" - length unknown
+        }
+    }
+
+    private static String responseValidator(HttpURLConnection connection) {
+        String validator = connection.getHeaderField("ETag");
+        return validator != null ? validator : connection.getHeaderField("Last-Modified");
+    }
+
+    private static String readValidator(File validatorFile) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(validatorFile), StandardCharsets.UTF_8))) {
+            String validator = reader.readLine();
+            return validator == null || validator.trim().isEmpty() ? null : validator.trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeValidator(File validatorFile, HttpURLConnection connection) {
+        String validator = responseValidator(connection);
+        if (validator == null) {
+            validatorFile.delete();
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(validatorFile)) {
+            out.write(validator.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot store download validator: " + e.getMessage());
+        }
+    }
+
+    private static void deleteStalePartials(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - PARTIAL_MAX_AGE_MS;
+        for (File file : files) {
+            if (file.lastModified() < cutoff && file.delete()) {
+                Log.d(TAG, "Deleted stale partial download: " + file.getName());
+            }
+        }
+    }
+
+    @Override
+    public String getKey() {
+        return "url:" + url;
+    }
+
+    /**
+     * The offline copy when there is one, otherwise what was downloaded last - a
+     * document kept open is reused without asking the server again
+     */
+    @Override
+    public String getVersion(Context context) {
+        File offline = offlineFile(context);
+        return offline.isFile() ? "offline:" + SourceUtils.fileVersion(offline) : "download";
+    }
+
+    @Override
+    public String toString() {
+        return "url:" + url;
+    }
+}
@@ -0,0 +1,129 @@
+package com.alamin5g.pdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.alamin5g.pdf.synthetic.SyntheticPdf;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+/**
+ * Budgets for continuous mode on the mixed-size synthetic document: open, scroll 500
+ * pages, pinch zoom and rotate must not render a page more often than the layout
+ * requires, allocate more bitmaps than pages shown, hold more than the memory quota,
+ * or touch the document on the main thread.
+ */
+public class ContinuousRenderBudgetTest {
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int PAGES = SyntheticPdf.MIXED_SIZES.pages;
+    private static final int VIEW_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 2340;
+
+    private static int[] sizes;
+    private ContinuousScenario scenario;
+
+    @BeforeClass
+    public static void writeDocument() throws IOException {
+        sizes = PageSizes.read(SyntheticPdf.write(folder.getRoot(), SyntheticPdf.MIXED_SIZES));
+    }
+
+    @Before
+    public void setUp() {
+        scenario = new ContinuousScenario(sizes, VIEW_WIDTH, VIEW_HEIGHT);
+    }
+
+    @After
+    public void tearDown() {
+        // Every scenario: the document is only touched off the main thread, one call at a time
+        assertEquals(0, scenario.stats.getMainThreadRenders());
+        assertEquals(0, scenario.renderer.getMainThreadCalls());
+        assertTrue(scenario.renderer.getMaxActive() <= 1);
+        scenario.close();
+    }
+
+    @Test
+    public void openRendersOnlyTheFirstScreen() {
+        scenario.open();
+        assertEquals(PAGES, scenario.getPageCount());
+        assertTrue(scenario.getContentHeight() > 0);
+        assertWithinViewportBudget();
+    }
+
+    @Test
+    public void scrollingThroughTheDocumentRendersEachPageOnce() {
+        scenario.open();
+        scenario.frame();
+        while (!scenario.isAtEnd()) {
+            scenario.scrollBy(VIEW_HEIGHT / 3);
+        }
+        RenderStats stats = scenario.stats;
+        assertEquals(1, stats.getMaxRendersPerPage());
+        assertEquals(1, stats.getRenders(PAGES - 1));
+        assertTrue("allocations " + stats.getBitmapAllocations(), stats.getBitmapAllocations() <= PAGES);
+        assertTrue("peak " + stats.getPeakBitmapBytes(), stats.getPeakBitmapBytes() <= ContinuousScenario.MEMORY_QUOTA);
+    }
+
+    @Test
+    public void pinchZoomRendersOnlyPagesAroundTheViewport() {
+        scenario.open();
+        scenario.scrollToPage(PAGES / 2);
+        scenario.stats.reset();
+
+        scenario.zoomTo(2f);
+        for (int i = 0; i < 10; i++) {
+            scenario.frame(); // Idle frames ask for nothing new
+        }
+        assertWithinViewportBudget();
+    }
+
+    @Test
+    public void rotationRendersOnlyPagesAroundTheViewport() {
+        scenario.open();
+        scenario.scrollToPage(PAGES / 2);
+        scenario.stats.reset();
+
+        scenario.resize(VIEW_HEIGHT, VIEW_WIDTH);
+        for (int i = 0; i < 10; i++) {
+            scenario.frame();
+        }
+        assertWithinViewportBudget();
+
+        scenario.stats.reset();
+        scenario.resize(VIEW_WIDTH, VIEW_HEIGHT);
+        assertWithinViewportBudget();
+    }
+
+    @Test
+    public void failedPageIsNotRequestedEveryFrame() {
+        scenario.renderer.failPage(PAGES / 2);
+        scenario.open();
+        scenario.scrollToPage(PAGES / 2);
+        for (int i = 0; i < 30; i++) {
+            scenario.frame();
+        }
+        assertEquals(1, scenario.renderer.getAttempts(PAGES / 2));
+
+        scenario.zoomTo(1.5f); // A new layout tries once more
+        scenario.frame();
+        assertEquals(2, scenario.renderer.getAttempts(PAGES / 2));
+    }
+
+    private void assertWithinViewportBudget() {
+        RenderStats stats = scenario.stats;
+        int budget = scenario.getVisiblePages() + 2 * ContinuousLayout.PREFETCH_DISTANCE;
+        assertTrue("allocations " + stats.getBitmapAllocations() + " > " + budget,
+                stats.getBitmapAllocations() <= budget);
+        assertTrue(stats.getMaxRendersPerPage() <= 1);
+        assertTrue("peak " + stats.getPeakBitmapBytes(), stats.getPeakBitmapBytes() <= ContinuousScenario.MEMORY_QUOTA);
+    }
+}
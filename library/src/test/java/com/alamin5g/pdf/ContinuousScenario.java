@@ -0,0 +1,326 @@
+package com.alamin5g.pdf;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Continuous mode without a view, for scripted scenarios on the JVM. The page
+ * geometry, request order and trimming are PDFView's own - ContinuousLayout,
+ * PageRequests and RenderQualityGovernor - and documents open the way PDFView opens
+ * them: the first page is measured, the layout is built on it and the rest is
+ * measured in batches while the visible pages render. Only the bitmaps are fake:
+ * a FakeRenderer behind a RequestMailbox stands in for DocumentActor. Frames and
+ * callbacks run on a stand-in main thread, renders on a worker pool like the render
+ * engine's lanes.
+ */
+final class ContinuousScenario implements AutoCloseable {
+
+    static final long MEMORY_QUOTA = 96L * 1024 * 1024;
+    private static final long SETTLE_TIMEOUT_MS = 10_000;
+
+    final RenderStats stats;
+    final FakeRenderer renderer;
+
+    private final ExecutorService main = Executors.newSingleThreadExecutor();
+    private final ExecutorService lanes = Executors.newFixedThreadPool(2);
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private final RequestMailbox<FakeRenderer> mailbox;
+
+    // Main thread only, as in PDFView
+    private final ContinuousLayout layout = new ContinuousLayout();
+    private final PageRequests requests = new PageRequests();
+    private final RenderQualityGovernor governor = new RenderQualityGovernor();
+    private float[] aspects;
+    private float estimatedAspect = 1.414f;
+    private FakeRenderer.FakeBitmap[] bitmaps;
+    private int viewWidth;
+    private int viewHeight;
+    private float zoom = 1f;
+    private float top;
+    private int inFlight;
+
+    /**
+     * @param sizes Page widths and heights in points, interleaved
+     */
+    ContinuousScenario(int[] sizes, int viewWidth, int viewHeight) {
+        Thread mainThread = call(Thread::currentThread);
+        this.stats = new RenderStats(() -> Thread.currentThread() == mainThread);
+        this.renderer = new FakeRenderer(sizes, stats, mainThread);
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        this.mailbox = new RequestMailbox<>(renderer, main, io, closed::countDown);
+        mailbox.setExecutor(lanes);
+    }
+
+    /**
+     * Open a document seen for the first time, like renderAllPages: measure the first
+     * page, lay out, request the visible pages, then measure the rest in batches.
+     * Returns once everything started has been delivered.
+     */
+    void open() {
+        call(() -> {
+            inFlight++;
+            mailbox.submit(document -> document.measureAspect(0), (aspect, error) -> {
+                inFlight--;
+                if (error != null) {
+                    return;
+                }
+                int pages = renderer.getPageCount();
+                aspects = new float[pages];
+                aspects[0] = aspect;
+                estimatedAspect = aspect;
+                bitmaps = new FakeRenderer.FakeBitmap[pages];
+                layout.layout(pages, (int) (viewWidth * zoom), aspects, estimatedAspect, 0);
+                requests.newLayout();
+                requestVisiblePages();
+                measureBatch(0);
+            });
+            return null;
+        });
+        settle();
+        if (aspects == null) {
+            throw new IllegalStateException("Document did not open");
+        }
+    }
+
+    int getPageCount() {
+        return call(() -> layout.size());
+    }
+
+    long getContentHeight() {
+        return call(() -> (long) layout.contentHeight());
+    }
+
+    int getPageOffset(int page) {
+        return call(() -> (int) layout.offset(page));
+    }
+
+    int getPageHeight(int page) {
+        return call(() -> (int) layout.height(page));
+    }
+
+    /**
+     * Scroll so the page is at the top, draw a frame and wait for its renders
+     */
+    void scrollToPage(int page) {
+        call(() -> {
+            top = Math.min(layout.offset(page), layout.maxTop(viewHeight));
+            return null;
+        });
+        frame();
+    }
+
+    /**
+     * Scroll by dy pixels, draw a frame and wait for its renders
+     */
+    void scrollBy(int dy) {
+        call(() -> {
+            top = Math.max(0, Math.min(top + dy, layout.maxTop(viewHeight)));
+            return null;
+        });
+        frame();
+    }
+
+    boolean isAtEnd() {
+        return call(() -> top >= layout.maxTop(viewHeight));
+    }
+
+    /**
+     * End of a pinch: lay out again at the new zoom, keeping the top page in place
+     */
+    void zoomTo(float zoom) {
+        call(() -> {
+            this.zoom = zoom;
+            relayoutKeepingPosition();
+            return null;
+        });
+        frame();
+    }
+
+    /**
+     * Rotation: the view gets new dimensions and lays out again
+     */
+    void resize(int width, int height) {
+        call(() -> {
+            viewWidth = width;
+            viewHeight = height;
+            relayoutKeepingPosition();
+            return null;
+        });
+        frame();
+    }
+
+    /**
+     * onDraw: ask for the visible pages (and prefetch), then wait until all renders
+     * it started have been delivered
+     */
+    void frame() {
+        call(() -> {
+            requestVisiblePages();
+            return null;
+        });
+        settle();
+    }
+
+    /**
+     * Pages on screen right now
+     */
+    int getVisiblePages() {
+        return call(() -> layout.lastVisible(top, viewHeight) - layout.firstVisible(top) + 1);
+    }
+
+    /**
+     * Close the document and wait for the closer, which runs on the I/O executor
+     * after the request in progress, before stopping the executors
+     */
+    @Override
+    public void close() {
+        mailbox.close();
+        try {
+            if (!closed.await(SETTLE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Document did not close");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } finally {
+            main.shutdown();
+            lanes.shutdown();
+            io.shutdown();
+        }
+    }
+
+    /**
+     * measurePagesInBackground: one batch per request, so renders queue in between
+     */
+    private void measureBatch(int from) {
+        if (from >= aspects.length) {
+            return;
+        }
+        int end = Math.min(aspects.length, from + ContinuousLayout.MEASURE_BATCH_SIZE);
+        inFlight++;
+        mailbox.submit(document -> {
+            float[] measured = new float[end - from];
+            for (int i = 0; i < measured.length; i++) {
+                measured[i] = document.measureAspect(from + i);
+            }
+            return measured;
+        }, (measured, error) -> {
+            inFlight--;
+            if (error != null) {
+                return;
+            }
+            if (ContinuousLayout.applyMeasured(aspects, from, measured)) {
+                top = layout.layoutKeepingPosition(aspects, estimatedAspect, 0, top, viewHeight);
+            }
+            measureBatch(end);
+        });
+    }
+
+    /**
+     * relayoutContinuousPages: same aspects at a new width; bitmaps stay and are drawn
+     * stretched until re-rendered
+     */
+    private void relayoutKeepingPosition() {
+        int page = layout.firstVisible(top);
+        float intoPage = (top - layout.offset(page)) / Math.max(1f, layout.height(page));
+        layout.layout(layout.size(), (int) (viewWidth * zoom), aspects, estimatedAspect, 0);
+        requests.newLayout();
+        top = Math.max(0, Math.min(layout.offset(page) + intoPage * layout.height(page), layout.maxTop(viewHeight)));
+    }
+
+    private void requestVisiblePages() {
+        int first = layout.firstVisible(top);
+        int last = layout.lastVisible(top, viewHeight);
+        layout.visitRequests(first, last, top, viewHeight, ContinuousLayout.PREFETCH_DISTANCE,
+                MEMORY_QUOTA, true, this::requestIfNotSharp);
+    }
+
+    private void requestIfNotSharp(int index) {
+        FakeRenderer.FakeBitmap bitmap = bitmaps[index];
+        if (bitmap != null && bitmap.width >= renderWidth(index) && bitmap.width <= layout.pageWidth()) {
+            return;
+        }
+        if (!requests.start(index)) {
+            return;
+        }
+        final int generation = requests.generation();
+        final int width = renderWidth(index);
+        inFlight++;
+        mailbox.submit(document -> document.render(index, width), (rendered, error) -> {
+            inFlight--;
+            requests.finished(index);
+            if (!requests.isCurrent(generation)) {
+                return;
+            }
+            if (error != null) {
+                requests.failed(index, generation);
+                return;
+            }
+            bitmaps[index] = rendered;
+            if (aspects[index] == 0) {
+                // Rendered before its batch was measured - the bitmap has the real size
+                aspects[index] = (float) rendered.height / rendered.width;
+                top = layout.layoutKeepingPosition(aspects, estimatedAspect, 0, top, viewHeight);
+            }
+            trim();
+            stats.onBitmapsHeld(heldBytes());
+        });
+    }
+
+    private int renderWidth(int index) {
+        return governor.renderWidth(layout.pageWidth(), (int) layout.height(index), MEMORY_QUOTA, true);
+    }
+
+    /**
+     * trimContinuousPages without memory pressure
+     */
+    private void trim() {
+        int first = layout.firstVisible(top);
+        int last = layout.lastVisible(top, viewHeight);
+        long kept = 0;
+        for (int i = first; i <= last; i++) {
+            kept += bitmaps[i] != null ? bitmaps[i].bytes() : 0;
+        }
+        ContinuousLayout.trim(first, last, bitmaps.length, Integer.MAX_VALUE, kept, MEMORY_QUOTA,
+                i -> bitmaps[i] != null ? bitmaps[i].bytes() : -1, i -> bitmaps[i] = null);
+    }
+
+    private long heldBytes() {
+        long bytes = 0;
+        for (FakeRenderer.FakeBitmap bitmap : bitmaps) {
+            bytes += bitmap != null ? bitmap.bytes() : 0;
+        }
+        return bytes;
+    }
+
+    /**
+     * Wait until every request started so far has been delivered on the main thread
+     */
+    private void settle() {
+        long deadline = System.currentTimeMillis() + SETTLE_TIMEOUT_MS;
+        while (call(() -> inFlight) > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IllegalStateException("Renders did not finish");
+            }
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private <T> T call(Callable<T> task) {
+        try {
+            return main.submit(task).get(SETTLE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.alamin5g.pdf;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless stand-in for PdfRenderer: a document is just its page sizes, and a
+ * render only reports a bitmap of the requested size to RenderStats. Every call
+ * counts as disk access, so calls from the main thread are recorded.
+ */
+final class FakeRenderer {
+
+    /**
+     * What a render returns - the size of the bitmap it would have filled
+     */
+    static final class FakeBitmap {
+        final int width;
+        final int height;
+
+        FakeBitmap(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        long bytes() {
+            return (long) width * height * 4;
+        }
+    }
+
+    private final int[] sizes; // width and height in points, interleaved
+    private final RenderStats stats;
+    private final Thread mainThread;
+    private final Set<Integer> failing = new HashSet<>();
+    private final int[] attempts;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger maxActive = new AtomicInteger();
+    private final AtomicInteger mainThreadCalls = new AtomicInteger();
+
+    FakeRenderer(int[] sizes, RenderStats stats, Thread mainThread) {
+        this.sizes = sizes;
+        this.stats = stats;
+        this.mainThread = mainThread;
+        this.attempts = new int[sizes.length / 2];
+    }
+
+    int getPageCount() {
+        return sizes.length / 2;
+    }
+
+    float measureAspect(int page) {
+        enter();
+        try {
+            return (float) sizes[page * 2 + 1] / sizes[page * 2];
+        } finally {
+            exit();
+        }
+    }
+
+    FakeBitmap render(int page, int width) throws IOException {
+        enter();
+        try {
+            synchronized (attempts) {
+                attempts[page]++;
+            }
+            if (failing.contains(page)) {
+                throw new IOException("Cannot render page " + page);
+            }
+            int height = Math.max(1, (int) (width * (float) sizes[page * 2 + 1] / sizes[page * 2]));
+            stats.onBitmapAllocated(width, height, 4);
+            stats.onPageRendered(page);
+            return new FakeBitmap(width, height);
+        } finally {
+            exit();
+        }
+    }
+
+    /**
+     * Renders of this page fail from now on. Call before the page is requested.
+     */
+    void failPage(int page) {
+        failing.add(page);
+    }
+
+    int getAttempts(int page) {
+        synchronized (attempts) {
+            return attempts[page];
+        }
+    }
+
+    /**
+     * Most calls in progress at the same time - the actor allows one
+     */
+    int getMaxActive() {
+        return maxActive.get();
+    }
+
+    int getMainThreadCalls() {
+        return mainThreadCalls.get();
+    }
+
+    private void enter() {
+        maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+        if (Thread.currentThread() == mainThread) {
+            mainThreadCalls.incrementAndGet();
+        }
+    }
+
+    private void exit() {
+        active.decrementAndGet();
+    }
+}
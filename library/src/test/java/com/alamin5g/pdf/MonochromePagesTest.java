@@ -0,0 +1,83 @@
+package com.alamin5g.pdf;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+/**
+ * Which rendered pages may become masks - a page with any color must stay in color
+ */
+public class MonochromePagesTest {
+
+    private static final int WIDTH = 1000;
+    private static final int HEIGHT = 1400;
+    private static final int WHITE = 0xffffffff;
+    private static final int INK = 0xff202020;
+    private static final int RED = 0xffe02020;
+
+    @Test
+    public void grayTextPageIsGray() {
+        int[] page = page(WHITE);
+        text(page);
+        assertEquals(MonochromePages.GRAY, classify(page));
+    }
+
+    @Test
+    public void oneSmallColoredMarkKeepsThePageInColor() {
+        // 3x3 pixels between the lines of a 64x64 sampling grid (steps of 15 and 21)
+        int[] page = page(WHITE);
+        text(page);
+        fill(page, 10, 10, 3, 3, RED);
+        assertEquals(MonochromePages.COLOR, classify(page));
+    }
+
+    @Test
+    public void singleColoredPixelInACornerKeepsThePageInColor() {
+        int[] page = page(WHITE);
+        page[page.length - 1] = 0xff0000ff;
+        assertEquals(MonochromePages.COLOR, classify(page));
+    }
+
+    @Test
+    public void unpaintedPaperIsGrayOnWhite() {
+        int[] page = page(0x00000000); // PdfRenderer leaves paper transparent
+        text(page);
+        assertEquals(MonochromePages.GRAY_TRANSLUCENT, classify(page));
+    }
+
+    @Test
+    public void faintTranslucentColorIsGray() {
+        // Antialiased edge: little color left once put on white paper
+        int[] page = page(WHITE);
+        fill(page, 500, 700, 2, 2, 0x08ff0000);
+        assertEquals(MonochromePages.GRAY_TRANSLUCENT, classify(page));
+    }
+
+    private static int classify(int[] page) {
+        return MonochromePages.classify(WIDTH, HEIGHT,
+                (row, y) -> System.arraycopy(page, y * WIDTH, row, 0, WIDTH));
+    }
+
+    private static int[] page(int paper) {
+        int[] page = new int[WIDTH * HEIGHT];
+        Arrays.fill(page, paper);
+        return page;
+    }
+
+    /**
+     * Lines of gray "text" down the page
+     */
+    private static void text(int[] page) {
+        for (int y = 100; y < HEIGHT - 100; y += 40) {
+            fill(page, 80, y, WIDTH - 160, 12, INK);
+        }
+    }
+
+    private static void fill(int[] page, int left, int top, int width, int height, int color) {
+        for (int y = top; y < top + height; y++) {
+            Arrays.fill(page, y * WIDTH + left, y * WIDTH + left + width, color);
+        }
+    }
+}
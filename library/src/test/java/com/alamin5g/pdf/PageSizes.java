@@ -0,0 +1,107 @@
+package com.alamin5g.pdf;
+
+import com.alamin5g.pdf.synthetic.SyntheticPdf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Page sizes of a PDF read back from the file, for documents with a flat page tree
+ * and a plain cross-reference table - what SyntheticPdf writes. Fails on a
+ * cross-reference entry that does not point at its object.
+ */
+final class PageSizes {
+
+    private static final Pattern STARTXREF = Pattern.compile("startxref\\s+(\\d+)\\s+%%EOF\\s*$");
+    private static final Pattern SECTION = Pattern.compile("xref\\s+0 (\\d+)\\s+");
+    private static final Pattern ROOT = Pattern.compile("/Root (\\d+) 0 R");
+    private static final Pattern PAGES = Pattern.compile("/Pages (\\d+) 0 R");
+    private static final Pattern KID = Pattern.compile("(\\d+) 0 R");
+    private static final Pattern MEDIA_BOX = Pattern.compile("/MediaBox \\[0 0 (\\d+) (\\d+)\\]");
+
+    private PageSizes() {
+    }
+
+    /**
+     * @return Page widths and heights in points, interleaved, in page order
+     */
+    static int[] read(File pdf) throws IOException {
+        // Latin-1 keeps one char per byte, so string indexes are file offsets
+        String text = new String(Files.readAllBytes(pdf.toPath()), StandardCharsets.ISO_8859_1);
+        Matcher start = STARTXREF.matcher(text);
+        if (!start.find()) {
+            throw new IOException("No startxref in " + pdf);
+        }
+        int xref = Integer.parseInt(start.group(1));
+        Matcher section = SECTION.matcher(text);
+        if (!section.find(xref) || section.start() != xref) {
+            throw new IOException("startxref does not point at the xref table");
+        }
+        int objects = Integer.parseInt(section.group(1));
+        int[] offsets = new int[objects];
+        for (int n = 0; n < objects; n++) {
+            int entry = section.end() + n * 20; // Entries are exactly 20 bytes
+            offsets[n] = Integer.parseInt(text.substring(entry, entry + 10));
+            if (n > 0 && !text.startsWith(n + " 0 obj", offsets[n])) {
+                throw new IOException("xref entry " + n + " does not point at its object");
+            }
+        }
+
+        String catalog = object(text, offsets, find(ROOT, text.substring(xref)));
+        String tree = object(text, offsets, find(PAGES, catalog));
+        String kids = tree.substring(tree.indexOf("/Kids ["), tree.indexOf(']'));
+        int count = find(Pattern.compile("/Count (\\d+)"), tree);
+        int[] sizes = new int[count * 2];
+        Matcher kid = KID.matcher(kids);
+        int page = 0;
+        while (kid.find()) {
+            String object = object(text, offsets, Integer.parseInt(kid.group(1)));
+            Matcher box = MEDIA_BOX.matcher(object);
+            if (page >= count || !object.contains("/Type /Page ") || !box.find()) {
+                throw new IOException("Bad page object " + kid.group(1));
+            }
+            sizes[page * 2] = Integer.parseInt(box.group(1));
+            sizes[page * 2 + 1] = Integer.parseInt(box.group(2));
+            page++;
+        }
+        if (page != count) {
+            throw new IOException(page + " pages in the tree, /Count " + count);
+        }
+        return sizes;
+    }
+
+    /**
+     * Sizes of a corpus without generating it
+     */
+    static int[] of(SyntheticPdf.Corpus corpus) {
+        int[] sizes = new int[corpus.pages * 2];
+        for (int i = 0; i < corpus.pages; i++) {
+            SyntheticPdf.PageSize size = SyntheticPdf.pageSize(corpus, i);
+            sizes[i * 2] = size.width;
+            sizes[i * 2 + 1] = size.height;
+        }
+        return sizes;
+    }
+
+    private static String object(String text, int[] offsets, int number) throws IOException {
+        if (number <= 0 || number >= offsets.length) {
+            throw new IOException("No object " + number);
+        }
+        int end = text.indexOf("endobj", offsets[number]);
+        // Up to the stream data, which may contain anything
+        int stream = text.indexOf("stream", offsets[number]);
+        return text.substring(offsets[number], stream >= 0 && stream < end ? stream : end);
+    }
+
+    private static int find(Pattern pattern, String text) throws IOException {
+        Matcher matcher = pattern.matcher(text);
+        if (!matcher.find()) {
+            throw new IOException("No " + pattern.pattern());
+        }
+        return Integer.parseInt(matcher.group(1));
+    }
+}
@@ -0,0 +1,46 @@
+package com.alamin5g.pdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * The cached-text check must never skip a page searchText would match, whatever
+ * way the page's text contents split or spell the words
+ */
+public class PdfTextSearchTest {
+
+    @Test
+    public void separatorsBetweenTextContentsDoNotHideMatches() {
+        // extractText joins text contents with spaces; a word may span two of them
+        assertContains("perfor mance tuning", "performance");
+        assertContains("exam-\nple", "example");
+        assertContains("hello,   world", "hello world");
+    }
+
+    @Test
+    public void caseLigaturesAndWidthAreFolded() {
+        assertContains("FINANCIAL REPORT", "financial");
+        assertContains("\ufb01nancial", "financial"); // "fi" ligature
+        assertContains("\uff21\uff22\uff23", "abc");  // full-width letters
+        assertContains("Stra\u00dfe", "STRASSE");
+    }
+
+    @Test
+    public void accentsAreIgnored() {
+        assertContains("caf\u00e9", "cafe");
+        assertContains("cafe\u0301", "caf\u00e9"); // decomposed and composed
+    }
+
+    @Test
+    public void queryOfOnlySeparatorsNormalizesToEmpty() {
+        assertEquals("", PdfTextSearch.normalize(" - , "));
+    }
+
+    private static void assertContains(String pageText, String query) {
+        String text = PdfTextSearch.normalize(pageText);
+        String needle = PdfTextSearch.normalize(query);
+        assertTrue("'" + text + "' should contain '" + needle + "'", text.contains(needle));
+    }
+}
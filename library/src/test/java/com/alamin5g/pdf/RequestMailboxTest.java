@@ -0,0 +1,134 @@
+package com.alamin5g.pdf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RequestMailboxTest {
+
+    private ExecutorService main;
+    private ExecutorService lanes;
+    private ExecutorService io;
+    private Thread mainThread;
+
+    @Before
+    public void setUp() throws Exception {
+        main = Executors.newSingleThreadExecutor();
+        mainThread = main.submit(Thread::currentThread).get();
+        lanes = Executors.newFixedThreadPool(4); // several workers, like the render engine
+        io = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() {
+        main.shutdownNow();
+        lanes.shutdownNow();
+        io.shutdownNow();
+    }
+
+    @Test
+    public void requestsRunOneAtATimeInOrderOffTheMainThread() throws Exception {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> callbackThreads = Collections.synchronizedList(new ArrayList<>());
+        RequestMailbox<Object> mailbox = new RequestMailbox<>(new Object(), main, io, () -> { });
+        mailbox.setExecutor(lanes);
+
+        CountDownLatch done = new CountDownLatch(100);
+        for (int i = 0; i < 100; i++) {
+            final int index = i;
+            mailbox.submit(resource -> {
+                maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                threads.add(Thread.currentThread());
+                Thread.sleep(1);
+                order.add(index);
+                active.decrementAndGet();
+                return index;
+            }, (result, error) -> {
+                callbackThreads.add(Thread.currentThread());
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(1, maxActive.get());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, order.get(i).intValue());
+        }
+        assertFalse(threads.contains(mainThread));
+        assertEquals(Collections.singleton(mainThread), new HashSet<>(callbackThreads));
+    }
+
+    @Test
+    public void closeDropsQueuedRequestsAndClosesAfterTheOneRunning() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        AtomicInteger closedAfter = new AtomicInteger(-1);
+        AtomicInteger finished = new AtomicInteger();
+        RequestMailbox<Object> mailbox = new RequestMailbox<>(new Object(), main, io, () -> {
+            closedAfter.set(finished.get());
+            closed.countDown();
+        });
+        mailbox.setExecutor(lanes);
+
+        Future<Integer> running = mailbox.submit(resource -> {
+            started.countDown();
+            release.await();
+            finished.incrementAndGet();
+            return 1;
+        });
+        CountDownLatch cancelled = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            mailbox.submit(resource -> finished.incrementAndGet(), (result, error) -> {
+                if (error instanceof CancellationException) {
+                    cancelled.countDown();
+                }
+            });
+        }
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        mailbox.close();
+        assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+        release.countDown();
+
+        assertEquals(1, running.get(5, TimeUnit.SECONDS).intValue());
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, closedAfter.get()); // After the running request, none of the dropped ones
+        assertTrue(mailbox.submit(resource -> 2).isCancelled());
+    }
+
+    @Test
+    public void requestsFollowTheDocumentToANewLane() throws Exception {
+        ExecutorService oldLane = Executors.newSingleThreadExecutor();
+        ExecutorService newLane = Executors.newSingleThreadExecutor();
+        try {
+            Thread newLaneThread = newLane.submit(Thread::currentThread).get();
+            RequestMailbox<Object> mailbox = new RequestMailbox<>(new Object(), main, io, () -> { });
+            mailbox.setExecutor(oldLane);
+            assertEquals(1, mailbox.submit(resource -> 1).get(5, TimeUnit.SECONDS).intValue());
+
+            mailbox.setExecutor(newLane);
+            assertEquals(newLaneThread, mailbox.submit(resource -> Thread.currentThread()).get(5, TimeUnit.SECONDS));
+        } finally {
+            oldLane.shutdownNow();
+            newLane.shutdownNow();
+        }
+    }
+}
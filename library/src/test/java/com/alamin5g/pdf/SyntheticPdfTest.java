@@ -0,0 +1,131 @@
+package com.alamin5g.pdf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.alamin5g.pdf.synthetic.SyntheticPdf;
+
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The generated documents are valid, the same on every run, and open and lay out
+ * like real ones: page count and layout come from the file, not from the generator.
+ */
+public class SyntheticPdfTest {
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int VIEW_WIDTH = 1080;
+    private static final int VIEW_HEIGHT = 2340;
+
+    @Test
+    public void sameCorpusGivesTheSameBytes() throws IOException {
+        assertArrayEquals(bytes(SyntheticPdf.STANDARD), bytes(SyntheticPdf.STANDARD));
+    }
+
+    @Test
+    public void writtenPagesHaveTheGeneratorsSizes() throws IOException {
+        for (SyntheticPdf.Corpus corpus : new SyntheticPdf.Corpus[]{SyntheticPdf.STANDARD,
+                SyntheticPdf.MIXED_SIZES, SyntheticPdf.IMAGE_HEAVY}) {
+            File file = SyntheticPdf.write(folder.getRoot(), corpus);
+            assertArrayEquals(corpus.toString(), PageSizes.of(corpus), PageSizes.read(file));
+        }
+    }
+
+    @Test
+    public void existingFileIsReused() throws IOException {
+        File file = SyntheticPdf.write(folder.getRoot(), SyntheticPdf.STANDARD);
+        long modified = file.lastModified();
+        assertEquals(file, SyntheticPdf.write(folder.getRoot(), SyntheticPdf.STANDARD));
+        assertEquals(modified, file.lastModified());
+    }
+
+    @Test
+    public void unknownCorpusNameFallsBackToStandard() {
+        assertSame(SyntheticPdf.MIXED_SIZES, SyntheticPdf.named("mixed"));
+        assertSame(SyntheticPdf.STANDARD, SyntheticPdf.named("nope"));
+        assertSame(SyntheticPdf.STANDARD, SyntheticPdf.named(null));
+    }
+
+    @Test
+    public void standardDocumentOpensAndLaysOut() throws IOException {
+        int[] sizes = PageSizes.read(SyntheticPdf.write(folder.getRoot(), SyntheticPdf.STANDARD));
+        try (ContinuousScenario scenario = new ContinuousScenario(sizes, VIEW_WIDTH, VIEW_HEIGHT)) {
+            scenario.open();
+            assertEquals(SyntheticPdf.STANDARD.pages, scenario.getPageCount());
+            assertLaidOutBySize(scenario, sizes);
+            assertOnlyScreenRendered(scenario);
+        }
+    }
+
+    @Test
+    public void mixedSizesDocumentOpensAndLaysOut() throws IOException {
+        int[] sizes = PageSizes.read(SyntheticPdf.write(folder.getRoot(), SyntheticPdf.MIXED_SIZES));
+        try (ContinuousScenario scenario = new ContinuousScenario(sizes, VIEW_WIDTH, VIEW_HEIGHT)) {
+            scenario.open();
+            assertEquals(SyntheticPdf.MIXED_SIZES.pages, scenario.getPageCount());
+            assertLaidOutBySize(scenario, sizes);
+
+            scenario.stats.reset();
+            scenario.scrollToPage(SyntheticPdf.MIXED_SIZES.pages / 2);
+            assertOnlyScreenRendered(scenario);
+        }
+    }
+
+    /**
+     * 10k pages take a while to write, so the layout uses the generator's sizes - which
+     * writtenPagesHaveTheGeneratorsSizes checks against the file for the smaller corpora
+     */
+    @Test
+    public void largeDocumentOpensRenderingOnlyTheFirstScreen() {
+        int[] sizes = PageSizes.of(SyntheticPdf.LARGE);
+        try (ContinuousScenario scenario = new ContinuousScenario(sizes, VIEW_WIDTH, VIEW_HEIGHT)) {
+            scenario.open();
+            assertEquals(SyntheticPdf.LARGE.pages, scenario.getPageCount());
+            assertLaidOutBySize(scenario, sizes);
+            assertOnlyScreenRendered(scenario);
+
+            scenario.scrollToPage(SyntheticPdf.LARGE.pages - 1);
+            assertEquals(1, scenario.stats.getRenders(SyntheticPdf.LARGE.pages - 1));
+            assertTrue(scenario.stats.getPeakBitmapBytes() <= ContinuousScenario.MEMORY_QUOTA);
+        }
+    }
+
+    /**
+     * Nothing but the pages on screen and the prefetched ones around them, each once
+     */
+    private static void assertOnlyScreenRendered(ContinuousScenario scenario) {
+        int budget = scenario.getVisiblePages() + 2 * ContinuousLayout.PREFETCH_DISTANCE;
+        assertTrue("renders " + scenario.stats.getRenders(), scenario.stats.getRenders() <= budget);
+        assertTrue(scenario.stats.getMaxRendersPerPage() <= 1);
+    }
+
+    /**
+     * Pages follow each other without gaps, each as high as its aspect ratio at the view width
+     */
+    private static void assertLaidOutBySize(ContinuousScenario scenario, int[] sizes) {
+        long y = 0;
+        for (int i = 0; i < sizes.length / 2; i++) {
+            assertEquals(y, scenario.getPageOffset(i));
+            int expected = (int) (VIEW_WIDTH * ((float) sizes[i * 2 + 1] / sizes[i * 2]));
+            assertEquals("page " + i, expected, scenario.getPageHeight(i));
+            y += expected;
+        }
+        assertEquals(y, scenario.getContentHeight());
+    }
+
+    private static byte[] bytes(SyntheticPdf.Corpus corpus) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SyntheticPdf.write(out, corpus);
+        return out.toByteArray();
+    }
+}
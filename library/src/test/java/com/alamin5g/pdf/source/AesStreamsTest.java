@@ -0,0 +1,235 @@
+package com.alamin5g.pdf.source;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AesStreams against the JDK's own "AES/GCM/NoPadding" and "AES/CTR/NoPadding":
+ * the incremental tag, range decryption as the on-demand descriptor does it, and
+ * the 128-bit counter arithmetic.
+ */
+public class AesStreamsTest {
+
+    // Empty, shorter than a block, whole blocks, odd sizes, and past a counter byte carry
+    private static final int[] LENGTHS = {0, 1, 15, 16, 17, 31, 32, 100, 4095, 4096, 4097, 100_003};
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void tagMatchesJdkGcmInAnyChunking() throws GeneralSecurityException {
+        for (int length : LENGTHS) {
+            for (int keySize : new int[]{16, 32}) {
+                Encrypted gcm = encryptGcm(length, keySize);
+                AesStreams.GcmTag whole = new AesStreams.GcmTag(gcm.key, gcm.iv);
+                whole.update(gcm.ciphertext, 0, length);
+                assertTrue("length " + length, whole.verify(gcm.tag));
+
+                AesStreams.GcmTag chunked = new AesStreams.GcmTag(gcm.key, gcm.iv);
+                for (int offset = 0; offset < length; ) {
+                    int count = Math.min(length - offset, random.nextInt(40)); // Includes empty updates
+                    chunked.update(gcm.ciphertext, offset, count);
+                    offset += count;
+                }
+                assertTrue("chunked length " + length, chunked.verify(gcm.tag));
+            }
+        }
+    }
+
+    @Test
+    public void tamperedTagFailsVerify() throws GeneralSecurityException {
+        for (int length : LENGTHS) {
+            Encrypted gcm = encryptGcm(length, 16);
+            byte[] tag = gcm.tag.clone();
+            tag[random.nextInt(tag.length)] ^= (byte) (1 << random.nextInt(8));
+            AesStreams.GcmTag check = new AesStreams.GcmTag(gcm.key, gcm.iv);
+            check.update(gcm.ciphertext, 0, length);
+            assertFalse("length " + length, check.verify(tag));
+        }
+    }
+
+    @Test
+    public void tamperedCiphertextFailsVerify() throws GeneralSecurityException {
+        for (int length : LENGTHS) {
+            if (length == 0) {
+                continue;
+            }
+            Encrypted gcm = encryptGcm(length, 16);
+            // A random byte, and the last one - in a partial final block for odd sizes
+            for (int position : new int[]{random.nextInt(length), length - 1}) {
+                byte[] ciphertext = gcm.ciphertext.clone();
+                ciphertext[position] ^= (byte) (1 << random.nextInt(8));
+                AesStreams.GcmTag check = new AesStreams.GcmTag(gcm.key, gcm.iv);
+                check.update(ciphertext, 0, length);
+                assertFalse("length " + length + " at " + position, check.verify(gcm.tag));
+            }
+        }
+    }
+
+    @Test
+    public void truncatedCiphertextFailsVerify() throws GeneralSecurityException {
+        Encrypted gcm = encryptGcm(100, 16);
+        AesStreams.GcmTag check = new AesStreams.GcmTag(gcm.key, gcm.iv);
+        check.update(gcm.ciphertext, 0, 99);
+        assertFalse(check.verify(gcm.tag));
+    }
+
+    @Test
+    public void wrongKeyFailsVerify() throws GeneralSecurityException {
+        Encrypted gcm = encryptGcm(100, 16);
+        AesStreams.GcmTag check = new AesStreams.GcmTag(key(16), gcm.iv);
+        check.update(gcm.ciphertext, 0, gcm.ciphertext.length);
+        assertFalse(check.verify(gcm.tag));
+    }
+
+    @Test
+    public void gcmRangesDecryptAtRandomOffsets() throws GeneralSecurityException {
+        Cipher ctr = Cipher.getInstance("AES/CTR/NoPadding");
+        for (int length : LENGTHS) {
+            if (length == 0) {
+                continue;
+            }
+            Encrypted gcm = encryptGcm(length, 16);
+            byte[] counter = AesStreams.gcmInitialCounter(gcm.iv);
+            for (int i = 0; i < 50; i++) {
+                int offset = random.nextInt(length);
+                int count = 1 + random.nextInt(Math.min(length - offset, 200));
+                assertRange(ctr, gcm, counter, offset, count);
+            }
+            // The whole document in one read
+            assertRange(ctr, gcm, counter, 0, length);
+        }
+    }
+
+    @Test
+    public void gcmRangesDecryptAcrossCounterCarries() throws GeneralSecurityException {
+        Cipher ctr = Cipher.getInstance("AES/CTR/NoPadding");
+        Encrypted gcm = encryptGcm(100_003, 16);
+        // Counters start at 2, so block 254 is the first with a carry out of the last byte
+        for (int block : new int[]{253, 254, 255, 510, 4094}) {
+            for (int skip : new int[]{0, 1, 15}) {
+                int offset = block * AesStreams.BLOCK + skip;
+                assertRange(ctr, gcm, AesStreams.gcmInitialCounter(gcm.iv), offset, 40);
+            }
+        }
+    }
+
+    @Test
+    public void ctrAtMatchesJdkCtrStreamAcrossCarries() throws GeneralSecurityException {
+        SecretKey key = key(16);
+        byte[] plain = new byte[64 * AesStreams.BLOCK];
+        random.nextBytes(plain);
+        // Low bytes near overflow, so the counter carries into higher bytes within a few blocks
+        for (int ones = 1; ones <= AesStreams.BLOCK; ones++) {
+            byte[] iv = new byte[AesStreams.BLOCK];
+            random.nextBytes(iv);
+            Arrays.fill(iv, AesStreams.BLOCK - ones, AesStreams.BLOCK, (byte) 0xff);
+            iv[AesStreams.BLOCK - 1] = (byte) 0xfd;
+            Cipher jdk = Cipher.getInstance("AES/CTR/NoPadding");
+            jdk.init(Cipher.ENCRYPT_MODE, key, new IvParameterSpec(iv));
+            byte[] stream = jdk.doFinal(plain);
+
+            for (int block : new int[]{0, 1, 2, 3, 4, 63}) {
+                Cipher cipher = AesStreams.ctrAt(key, iv, block);
+                byte[] decrypted = cipher.doFinal(stream, block * AesStreams.BLOCK, AesStreams.BLOCK);
+                assertArrayEquals("ones " + ones + " block " + block,
+                        Arrays.copyOfRange(plain, block * AesStreams.BLOCK, (block + 1) * AesStreams.BLOCK),
+                        decrypted);
+            }
+        }
+    }
+
+    @Test
+    public void addToCounterCarries() {
+        byte[] counter = new byte[AesStreams.BLOCK];
+        Arrays.fill(counter, 1, AesStreams.BLOCK, (byte) 0xff);
+        byte[] expected = new byte[AesStreams.BLOCK];
+        expected[0] = 1;
+        assertArrayEquals(expected, AesStreams.addToCounter(counter, 1));
+
+        // All ones wraps to zero, like the JDK's counter
+        byte[] ones = new byte[AesStreams.BLOCK];
+        Arrays.fill(ones, (byte) 0xff);
+        assertArrayEquals(new byte[AesStreams.BLOCK], AesStreams.addToCounter(ones, 1));
+
+        expected = new byte[AesStreams.BLOCK];
+        expected[AesStreams.BLOCK - 2] = 1;
+        expected[AesStreams.BLOCK - 1] = (byte) 0xff;
+        assertArrayEquals(expected, AesStreams.addToCounter(new byte[AesStreams.BLOCK], 0x1ff));
+
+        // A carry out of a 64-bit addend into the high half
+        counter = new byte[AesStreams.BLOCK];
+        Arrays.fill(counter, 8, AesStreams.BLOCK, (byte) 0xff);
+        expected = counter.clone();
+        expected[7] = 1;
+        expected[AesStreams.BLOCK - 1] = (byte) 0xfe;
+        assertArrayEquals(expected, AesStreams.addToCounter(counter, 0xffffffffffffffffL));
+
+        assertArrayEquals(counter, AesStreams.addToCounter(counter, 0));
+    }
+
+    /**
+     * Decrypt count bytes at offset the way the on-demand descriptor does: from the
+     * start of the offset's block, with a reused cipher
+     */
+    private static void assertRange(Cipher ctr, Encrypted gcm, byte[] counter, int offset, int count)
+            throws GeneralSecurityException {
+        long block = offset / AesStreams.BLOCK;
+        int skip = offset % AesStreams.BLOCK;
+        byte[] buffer = Arrays.copyOfRange(gcm.ciphertext, (int) block * AesStreams.BLOCK, offset + count);
+        AesStreams.decryptAt(ctr, gcm.key, counter, block, buffer, skip + count);
+        assertArrayEquals("offset " + offset + " count " + count,
+                Arrays.copyOfRange(gcm.plain, offset, offset + count),
+                Arrays.copyOfRange(buffer, skip, skip + count));
+    }
+
+    private Encrypted encryptGcm(int length, int keySize) throws GeneralSecurityException {
+        SecretKey key = key(keySize);
+        byte[] iv = new byte[AesStreams.GCM_IV_LENGTH];
+        random.nextBytes(iv);
+        byte[] plain = new byte[length];
+        random.nextBytes(plain);
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(AesStreams.GCM_TAG_LENGTH * 8, iv));
+        byte[] sealed = cipher.doFinal(plain);
+        return new Encrypted(key, iv, plain, Arrays.copyOf(sealed, length),
+                Arrays.copyOfRange(sealed, length, sealed.length));
+    }
+
+    private SecretKey key(int size) {
+        byte[] key = new byte[size];
+        random.nextBytes(key);
+        return new SecretKeySpec(key, "AES");
+    }
+
+    /**
+     * Output of the JDK's GCM, split like EncryptedFileSource's layout
+     */
+    private static final class Encrypted {
+        final SecretKey key;
+        final byte[] iv;
+        final byte[] plain;
+        final byte[] ciphertext;
+        final byte[] tag;
+
+        Encrypted(SecretKey key, byte[] iv, byte[] plain, byte[] ciphertext, byte[] tag) {
+            this.key = key;
+            this.iv = iv;
+            this.plain = plain;
+            this.ciphertext = ciphertext;
+            this.tag = tag;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package com.alamin5g.pdf.synthetic;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Generates test PDFs from a seed, so performance scenarios run on the same
+ * documents in JVM tests and on every device without shipping real ones. A corpus
+ * fixes the page count, the page sizes to mix and the share of each kind of content:
+ * <ul>
+ * <li>text - lines of words, cheap to render</li>
+ * <li>paths - thousands of stroked and filled curves, slow to rasterize</li>
+ * <li>images - a grid of photo-like images, slow to decode</li>
+ * </ul>
+ * Every page is generated from the seed and its index only, so page 5000 of the
+ * 10k-page corpus looks the same whatever else changes, and the output is the same
+ * byte for byte on every run. The PDF is written directly (no Android classes), so
+ * the library's unit tests use it as well as the sample app.
+ */
+public final class SyntheticPdf {
+
+    /**
+     * Page sizes in points
+     */
+    public enum PageSize {
+        A4(595, 842),
+        LETTER(612, 792),
+        A4_LANDSCAPE(842, 595),
+        LETTER_LANDSCAPE(792, 612);
+
+        public final int width;
+        public final int height;
+
+        PageSize(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    private static final PageSize[] PORTRAIT = {PageSize.A4};
+    private static final PageSize[] MIXED = PageSize.values();
+
+    private static final int PATH_SEGMENTS = 4000;  // per heavy-path page
+    private static final int POLYGONS = 200;        // per heavy-path page
+    private static final int IMAGE_GRID = 3;         // images per row and column
+    private static final int IMAGE_POOL = 12;        // distinct images, shared by all pages
+    private static final int IMAGE_SIZE = 384;
+
+    // Objects before the pages: catalog, page tree, font, transparency state, images
+    private static final int CATALOG = 1;
+    private static final int PAGE_TREE = 2;
+    private static final int FONT = 3;
+    private static final int TRANSLUCENT = 4;
+    private static final int FIRST_IMAGE = 5;
+
+    /**
+     * A reproducible document: name, seed, page count, sizes and content mix
+     */
+    public static final class Corpus {
+        public final String name;
+        public final long seed;
+        public final int pages;
+        final PageSize[] sizes;
+        public final int pathPercent;
+        public final int imagePercent;
+
+        public Corpus(String name, long seed, int pages, PageSize[] sizes, int pathPercent, int imagePercent) {
+            this.name = name;
+            this.seed = seed;
+            this.pages = pages;
+            this.sizes = sizes.clone();
+            this.pathPercent = pathPercent;
+            this.imagePercent = imagePercent;
+        }
+
+        public String fileName() {
+            return "synthetic_" + name + "_" + seed + "_" + pages + "_" + sizes.length
+                    + "_" + pathPercent + "_" + imagePercent + ".pdf";
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + pages + " pages, seed " + seed + ")";
+        }
+    }
+
+    // Corpora used by the scenarios
+    public static final Corpus STANDARD = new Corpus("standard", 1, 200, PORTRAIT, 0, 0);
+    public static final Corpus LARGE = new Corpus("large", 2, 10_000, MIXED, 5, 5);
+    public static final Corpus MIXED_SIZES = new Corpus("mixed", 3, 500, MIXED, 10, 10);
+    public static final Corpus HEAVY_PATHS = new Corpus("paths", 4, 100, PORTRAIT, 100, 0);
+    public static final Corpus IMAGE_HEAVY = new Corpus("images", 5, 100, MIXED, 0, 100);
+
+    private static final Corpus[] ALL = {STANDARD, LARGE, MIXED_SIZES, HEAVY_PATHS, IMAGE_HEAVY};
+
+    private SyntheticPdf() {
+    }
+
+    /**
+     * @return the corpus with this name, or STANDARD
+     */
+    public static Corpus named(String name) {
+        for (Corpus corpus : ALL) {
+            if (corpus.name.equals(name)) {
+                return corpus;
+            }
+        }
+        return STANDARD;
+    }
+
+    /**
+     * Size of one page, without generating the document
+     */
+    public static PageSize pageSize(Corpus corpus, int index) {
+        return corpus.sizes[pageRandom(corpus, index).nextInt(corpus.sizes.length)];
+    }
+
+    /**
+     * The corpus file in dir, generated if it does not exist yet. Blocking.
+     */
+    public static File write(File dir, Corpus corpus) throws IOException {
+        File file = new File(dir, corpus.fileName());
+        if (file.length() > 0) {
+            return file;
+        }
+        File temp = new File(dir, file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            write(out, corpus);
+        } catch (IOException | RuntimeException e) {
+            temp.delete();
+            throw e;
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot write " + file);
+        }
+        return file;
+    }
+
+    /**
+     * Write the corpus as a PDF to out, page by page. Does not close out.
+     */
+    public static void write(OutputStream out, Corpus corpus) throws IOException {
+        boolean images = corpus.imagePercent > 0;
+        int firstPage = FIRST_IMAGE + (images ? IMAGE_POOL : 0);
+        int objects = firstPage + corpus.pages * 2; // a page and its content stream each
+        long[] offsets = new long[objects];
+        CountingOutputStream pdf = new CountingOutputStream(new BufferedOutputStream(out, 64 * 1024));
+
+        ascii(pdf, "%PDF-1.4\n%\u00e2\u00e3\u00cf\u00d3\n");
+        offsets[CATALOG] = pdf.count;
+        ascii(pdf, CATALOG + " 0 obj\n<< /Type /Catalog /Pages " + PAGE_TREE + " 0 R >>\nendobj\n");
+
+        offsets[PAGE_TREE] = pdf.count;
+        StringBuilder tree = new StringBuilder(corpus.pages * 10 + 100);
+        tree.append(PAGE_TREE).append(" 0 obj\n<< /Type /Pages /Count ").append(corpus.pages).append(" /Kids [");
+        for (int i = 0; i < corpus.pages; i++) {
+            tree.append(i % 10 == 0 ? "\n" : " ").append(firstPage + i * 2).append(" 0 R");
+        }
+        tree.append("\n] >>\nendobj\n");
+        ascii(pdf, tree.toString());
+
+        offsets[FONT] = pdf.count;
+        ascii(pdf, FONT + " 0 obj\n<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica >>\nendobj\n");
+        offsets[TRANSLUCENT] = pdf.count;
+        ascii(pdf, TRANSLUCENT + " 0 obj\n<< /Type /ExtGState /ca 0.376 >>\nendobj\n"); // alpha 96 of 255
+
+        StringBuilder resources = new StringBuilder("<< /Font << /F1 " + FONT + " 0 R >> /ExtGState << /GS1 "
+                + TRANSLUCENT + " 0 R >>");
+        if (images) {
+            Random random = new Random(corpus.seed);
+            resources.append(" /XObject <<");
+            for (int n = 0; n < IMAGE_POOL; n++) {
+                offsets[FIRST_IMAGE + n] = pdf.count;
+                writeStream(pdf, FIRST_IMAGE + n, "/Type /XObject /Subtype /Image /Width " + IMAGE_SIZE
+                        + " /Height " + IMAGE_SIZE + " /ColorSpace /DeviceRGB /BitsPerComponent 8 ",
+                        createImage(random));
+                resources.append(" /Im").append(n).append(' ').append(FIRST_IMAGE + n).append(" 0 R");
+            }
+            resources.append(" >>");
+        }
+        resources.append(" >>");
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < corpus.pages; i++) {
+            Random random = pageRandom(corpus, i);
+            PageSize size = corpus.sizes[random.nextInt(corpus.sizes.length)];
+            content.setLength(0);
+            int kind = random.nextInt(100);
+            if (kind < corpus.pathPercent) {
+                drawPaths(content, size, random);
+            } else if (kind < corpus.pathPercent + corpus.imagePercent) {
+                drawImages(content, size, random);
+            } else {
+                drawText(content, size, random);
+            }
+            drawPageNumber(content, size, i);
+
+            int page = firstPage + i * 2;
+            offsets[page] = pdf.count;
+            ascii(pdf, page + " 0 obj\n<< /Type /Page /Parent " + PAGE_TREE + " 0 R /MediaBox [0 0 "
+                    + size.width + " " + size.height + "] /Resources " + resources
+                    + " /Contents " + (page + 1) + " 0 R >>\nendobj\n");
+            offsets[page + 1] = pdf.count;
+            writeStream(pdf, page + 1, "", content.toString().getBytes(StandardCharsets.US_ASCII));
+        }
+
+        long xref = pdf.count;
+        StringBuilder table = new StringBuilder(objects * 20 + 100);
+        table.append("xref\n0 ").append(objects).append("\n0000000000 65535 f \n");
+        for (int n = 1; n < objects; n++) {
+            String offset = Long.toString(offsets[n]);
+            for (int pad = offset.length(); pad < 10; pad++) {
+                table.append('0');
+            }
+            table.append(offset).append(" 00000 n \n");
+        }
+        table.append("trailer\n<< /Size ").append(objects).append(" /Root ").append(CATALOG)
+                .append(" 0 R >>\nstartxref\n").append(xref).append("\n%%EOF\n");
+        ascii(pdf, table.toString());
+        pdf.flush();
+    }
+
+    private static Random pageRandom(Corpus corpus, int index) {
+        return new Random(corpus.seed * 1_000_003L + index);
+    }
+
+    private static void drawText(StringBuilder content, PageSize size, Random random) {
+        content.append("0 g\nBT\n/F1 11 Tf\n");
+        StringBuilder line = new StringBuilder();
+        int previousY = 0;
+        for (int y = 72; y < size.height - 72; y += 15) {
+            line.setLength(0);
+            while (line.length() < (size.width - 144) / 6) {
+                int letters = 2 + random.nextInt(9);
+                for (int i = 0; i < letters; i++) {
+                    line.append((char) ('a' + random.nextInt(26)));
+                }
+                line.append(' ');
+            }
+            // Td moves relative to the previous line; PDF y grows upwards
+            content.append(y == 72 ? 72 : 0).append(' ').append(y == 72 ? size.height - y : previousY - y)
+                    .append(" Td (").append(line).append(") Tj\n");
+            previousY = y;
+        }
+        content.append("ET\n");
+    }
+
+    /**
+     * Random cubic curves in one long stroked path, plus translucent filled polygons -
+     * the kind of page (maps, CAD drawings) where rasterizing dominates render time
+     */
+    private static void drawPaths(StringBuilder content, PageSize size, Random random) {
+        color(content, random.nextInt(128), random.nextInt(128), random.nextInt(128)).append(" RG\n0.5 w\n");
+        float x = random.nextFloat() * size.width;
+        float y = random.nextFloat() * size.height;
+        point(content, x, y, size).append(" m\n");
+        for (int i = 0; i < PATH_SEGMENTS; i++) {
+            float nx = clamp(x + (random.nextFloat() - 0.5f) * 80, size.width);
+            float ny = clamp(y + (random.nextFloat() - 0.5f) * 80, size.height);
+            point(content, x + (random.nextFloat() - 0.5f) * 40, y + (random.nextFloat() - 0.5f) * 40, size).append(' ');
+            point(content, nx + (random.nextFloat() - 0.5f) * 40, ny + (random.nextFloat() - 0.5f) * 40, size).append(' ');
+            point(content, nx, ny, size).append(" c\n");
+            x = nx;
+            y = ny;
+        }
+        content.append("S\nq\n/GS1 gs\n");
+        for (int i = 0; i < POLYGONS; i++) {
+            color(content, random.nextInt(256), random.nextInt(256), random.nextInt(256)).append(" rg\n");
+            float cx = random.nextFloat() * size.width;
+            float cy = random.nextFloat() * size.height;
+            point(content, cx, cy, size).append(" m\n");
+            for (int j = 0; j < 6; j++) {
+                point(content, cx + (random.nextFloat() - 0.5f) * 60, cy + (random.nextFloat() - 0.5f) * 60, size)
+                        .append(" l\n");
+            }
+            content.append("h f\n");
+        }
+        content.append("Q\n");
+    }
+
+    private static void drawImages(StringBuilder content, PageSize size, Random random) {
+        float margin = 36;
+        float cell = Math.min(size.width - 2 * margin, size.height - 2 * margin) / IMAGE_GRID;
+        for (int row = 0; row < IMAGE_GRID; row++) {
+            for (int column = 0; column < IMAGE_GRID; column++) {
+                // Image space is the unit square; scale it to the cell, bottom-left corner first
+                content.append("q ");
+                number(content, cell - 4).append(" 0 0 ");
+                number(content, cell - 4).append(' ');
+                point(content, margin + column * cell, margin + (row + 1) * cell - 4, size)
+                        .append(" cm /Im").append(random.nextInt(IMAGE_POOL)).append(" Do Q\n");
+            }
+        }
+    }
+
+    private static void drawPageNumber(StringBuilder content, PageSize size, int index) {
+        String number = String.valueOf(index + 1);
+        content.append("0.25 g\nBT\n/F1 10 Tf\n")
+                .append(size.width / 2 - number.length() * 3).append(' ').append(30)
+                .append(" Td (").append(number).append(") Tj\nET\n");
+    }
+
+    /**
+     * Noisy color gradient, which compresses poorly - like a photo. RGB, 8 bits per channel.
+     */
+    private static byte[] createImage(Random random) {
+        int from = random.nextInt(0xffffff);
+        int to = random.nextInt(0xffffff);
+        byte[] pixels = new byte[IMAGE_SIZE * IMAGE_SIZE * 3];
+        int p = 0;
+        for (int y = 0; y < IMAGE_SIZE; y++) {
+            for (int x = 0; x < IMAGE_SIZE; x++) {
+                float t = (float) (x + y) / (2 * IMAGE_SIZE);
+                int noise = random.nextInt(48) - 24;
+                pixels[p++] = (byte) mix(from >> 16, to >> 16, t, noise);
+                pixels[p++] = (byte) mix(from >> 8, to >> 8, t, noise);
+                pixels[p++] = (byte) mix(from, to, t, noise);
+            }
+        }
+        return pixels;
+    }
+
+    /**
+     * A Flate-compressed stream object
+     * @param dictionary Entries besides /Length and /Filter, ending with a space if not empty
+     */
+    private static void writeStream(CountingOutputStream pdf, int object, String dictionary, byte[] data)
+            throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2 + 64);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+            deflater.write(data);
+        }
+        ascii(pdf, object + " 0 obj\n<< " + dictionary + "/Filter /FlateDecode /Length " + compressed.size()
+                + " >>\nstream\n");
+        compressed.writeTo(pdf);
+        ascii(pdf, "\nendstream\nendobj\n");
+    }
+
+    /**
+     * A point given from the top-left corner, like a canvas, in PDF space (from the bottom-left)
+     */
+    private static StringBuilder point(StringBuilder content, float x, float y, PageSize size) {
+        number(content, x).append(' ');
+        return number(content, size.height - y);
+    }
+
+    private static StringBuilder color(StringBuilder content, int r, int g, int b) {
+        number(content, r / 255f).append(' ');
+        number(content, g / 255f).append(' ');
+        return number(content, b / 255f);
+    }
+
+    /**
+     * Two decimals, without the cost and locale of String.format
+     */
+    private static StringBuilder number(StringBuilder content, float value) {
+        long hundredths = Math.round(value * 100);
+        if (hundredths < 0) {
+            content.append('-');
+            hundredths = -hundredths;
+        }
+        content.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        return content.append(fraction < 10 ? "0" : "").append(fraction);
+    }
+
+    private static int mix(int from, int to, float t, int noise) {
+        int value = (int) ((from & 0xff) * (1 - t) + (to & 0xff) * t) + noise;
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private static float clamp(float value, int max) {
+        return Math.max(0, Math.min(max, value));
+    }
+
+    private static void ascii(OutputStream out, String text) throws IOException {
+        out.write(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Keeps the byte offset of the next write, for the cross-reference table
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}